@@ -1,14 +1,19 @@
 import common.PropositionEntry;
+import common.propositions.AtomicProposition;
 import interpreting.common.PropositionProcessor;
 import interpreting.common.RepresentationTable;
+import interpreting.tokenization.TokenType;
 import logic.BruteForceReasoner;
 import common.LogicContext;
 import logic.Reasoner;
+import logic.ReasoningResult;
+import logic.sat.IncrementalArgument;
 
 import java.io.InputStream;
 import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 
 public class Application {
@@ -143,7 +148,7 @@ public class Application {
     private void showTruthTable() {
         PropositionEntry entry = askEntry("");
         if (entry != null)
-            table.printTruthTable(entry);
+            table.printTruthTable(entry, output);
     }
 
     private void equalityTest() {
@@ -161,11 +166,12 @@ public class Application {
             return;
 
         output.println("\nEvaluating equality between the two selections...");
-        Boolean result = reasoner.areEqual(entry1, entry2);
-        if (result == null)
+        ReasoningResult result = reasoner.checkEquality(entry1, entry2);
+        if (result.value() == null)
             output.println("Something went wrong.");
         else
-            output.println("The two propositions are " + (result ? "" : "not ") + "equivalent.");
+            output.println("The two propositions are " + (result.value() ? "" : "not ") + "equivalent.");
+        printCounterexample("They differ when", result.counterexample());
     }
 
     private void validityTest() {
@@ -177,13 +183,17 @@ public class Application {
         PropositionEntry conclusion = askEntry("Select a conclusion (the proposition you want to prove)");
         if (conclusion == null) return;
 
+        // The argument is re-checked incrementally as each premise is added
+        IncrementalArgument argument = new IncrementalArgument(conclusion);
         List<PropositionEntry> premises = new ArrayList<>();
         while (true) {
             PropositionEntry entry = askEntry("Select a premise to add (or nothing to quit)");
             if (entry == null)
                 break;
-            else
-                premises.add(entry);
+            premises.add(entry);
+            argument.addPremise(entry);
+            output.println("With " + premises.size() + (premises.size() == 1 ? " premise" : " premises")
+                    + ", the argument is " + (argument.isValid() ? "" : "not ") + "valid.");
         }
         if (premises.isEmpty()) {
             output.println("No premises entered.");
@@ -197,11 +207,28 @@ public class Application {
         output.println("\n∴ " + conclusion.proposition());
 
         output.println("Evaluating validity...");
-        Boolean result = reasoner.isArgumentValid(conclusion, premises);
+        Boolean result = argument.isValid();
         if (result == null)
             output.println("Something went wrong.");
         else
             output.println("The argument is " + (result ? "" : "not ") + "valid.");
+        printCounterexample("Every premise is true but the conclusion is false when", argument.getCounterexample());
+    }
+
+    /**
+     * Prints the truth value of each atomic in a counterexample, if there is one.
+     */
+    private void printCounterexample(String message, Map<AtomicProposition, Boolean> counterexample) {
+        if (counterexample == null || counterexample.isEmpty())
+            return;
+        StringBuilder line = new StringBuilder(message);
+        String separator = " ";
+        for (Map.Entry<AtomicProposition, Boolean> value: counterexample.entrySet()) {
+            line.append(separator).append(value.getKey()).append(" = ")
+                    .append(table.getRepresentation(value.getValue() ? TokenType.TRUE : TokenType.FALSE));
+            separator = ", ";
+        }
+        output.println(line.append('.'));
     }
 
     /**
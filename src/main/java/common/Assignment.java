@@ -0,0 +1,160 @@
+package common;
+
+import common.propositions.AtomicProposition;
+
+import java.util.*;
+
+/**
+ * A combination of truth values for a fixed list of {@link AtomicProposition AtomicPropositions}.
+ * <p>
+ * Each atomic is given a dense id, its index in the list, and its truth value is held in bit <code>id</code>
+ * of a packed <code>long</code> array. Unlike {@link AtomicProposition#setValue(boolean)},
+ * an assignment leaves the atomics themselves untouched, so several threads may evaluate
+ * the same propositions at once, each with its own assignment.
+ * <p>
+ * Instances are mutable and should not be shared between threads.
+ *
+ * @see common.propositions.Proposition#evaluate(Assignment)
+ */
+public final class Assignment {
+
+    private final List<AtomicProposition> atomics;
+    private final Map<AtomicProposition, Integer> ids;
+    private final long[] bits;
+
+    // The most recent list given to idsOf, and its result
+    private List<AtomicProposition> lastList;
+    private int[] lastIds;
+
+    /**
+     * Instantiates a new assignment in which every atomic is <code>false</code>.
+     *
+     * @param atomics the atomics to assign, without duplicates; atomic <code>i</code> is given id <code>i</code>
+     */
+    public Assignment(List<AtomicProposition> atomics) {
+        this.atomics = List.copyOf(atomics);
+        this.ids = new IdentityHashMap<>(atomics.size());
+        for (int i = 0; i < this.atomics.size(); i++) {
+            if (ids.put(this.atomics.get(i), i) != null)
+                throw new IllegalArgumentException("Duplicate atomic: " + this.atomics.get(i));
+        }
+        this.bits = new long[(this.atomics.size() + Long.SIZE - 1) / Long.SIZE];
+    }
+
+    /**
+     * Returns the atomics of this assignment, in order of id.
+     */
+    public List<AtomicProposition> atomics() {
+        return atomics;
+    }
+
+    /**
+     * Returns the number of atomics.
+     */
+    public int size() {
+        return atomics.size();
+    }
+
+    /**
+     * Returns the id of an atomic, or -1 if it is not part of this assignment.
+     */
+    public int idOf(AtomicProposition atomic) {
+        return ids.getOrDefault(atomic, -1);
+    }
+
+    /**
+     * Returns the ids of several atomics.
+     * <p>
+     * The result of the most recent call is reused when the same list instance is given again,
+     * so evaluating one program many times looks its atomics up only once. Alternating between lists,
+     * such as those of several {@link logic.evaluation.EvaluationProgram#bind bound} programs,
+     * looks them up again on every call, and such programs are better evaluated by
+     * {@link logic.evaluation.EvaluationProgram#evaluate(long, boolean[]) row index}.
+     *
+     * @throws IllegalArgumentException if any atomic is not part of this assignment
+     */
+    public int[] idsOf(List<AtomicProposition> list) {
+        if (list == lastList)
+            return lastIds;
+        int[] result = new int[list.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = idOf(list.get(i));
+            if (result[i] < 0)
+                throw new IllegalArgumentException("Unassigned atomic: " + list.get(i));
+        }
+        lastList = list;
+        lastIds = result;
+        return result;
+    }
+
+    /**
+     * Returns the truth value of the atomic with an id.
+     */
+    public boolean get(int id) {
+        return (bits[id >>> 6] >>> id & 1L) != 0;
+    }
+
+    /**
+     * Returns the truth value of an atomic.
+     *
+     * @throws IllegalArgumentException if the atomic is not part of this assignment
+     */
+    public boolean get(AtomicProposition atomic) {
+        int id = idOf(atomic);
+        if (id < 0)
+            throw new IllegalArgumentException("Unassigned atomic: " + atomic);
+        return get(id);
+    }
+
+    /**
+     * Sets the truth value of the atomic with an id.
+     */
+    public void set(int id, boolean value) {
+        if (value)
+            bits[id >>> 6] |= 1L << id;
+        else
+            bits[id >>> 6] &= ~(1L << id);
+    }
+
+    /**
+     * Sets the truth value of an atomic.
+     *
+     * @throws IllegalArgumentException if the atomic is not part of this assignment
+     */
+    public void set(AtomicProposition atomic, boolean value) {
+        int id = idOf(atomic);
+        if (id < 0)
+            throw new IllegalArgumentException("Unassigned atomic: " + atomic);
+        set(id, value);
+    }
+
+    /**
+     * Sets the first 64 atomics from the bits of a truth table row, and every other atomic to <code>false</code>.
+     *
+     * @param row a combination where bit <code>i</code> holds the value of the atomic with id <code>i</code>
+     */
+    public void setRow(long row) {
+        if (bits.length == 0)
+            return;
+        Arrays.fill(bits, 0);
+        bits[0] = atomics.size() >= Long.SIZE ? row : row & ((1L << atomics.size()) - 1);
+    }
+
+    /**
+     * Returns the values of the first 64 atomics, where bit <code>i</code> holds the value of the atomic with id <code>i</code>.
+     */
+    public long row() {
+        return bits.length == 0 ? 0 : bits[0];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("{");
+        for (int i = 0; i < atomics.size(); i++) {
+            if (i > 0)
+                builder.append(", ");
+            builder.append(atomics.get(i)).append('=').append(get(i) ? 'T' : 'F');
+        }
+        return builder.append('}').toString();
+    }
+}
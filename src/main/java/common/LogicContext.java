@@ -1,7 +1,14 @@
 package common;
 
+import common.operators.BinaryOperator;
+import common.operators.UnaryOperator;
 import common.propositions.AtomicProposition;
+import common.propositions.BinaryProposition;
+import common.propositions.Proposition;
+import common.propositions.UnaryProposition;
 
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.*;
 
 /**
@@ -19,6 +26,12 @@ import java.util.*;
  * <code>AtomicPropositions</code> are held in a {@link Map}
  * to, using a corresponding {@link String}, allow access to existing ones or create new ones
  * through {@link #getOrCreateAtomic(String)}.
+ * <p>
+ * Compound propositions can likewise be shared: {@link #getOrCreateUnary} and {@link #getOrCreateBinary}
+ * return the existing instance with the same operator and (identical) operands whenever there is one,
+ * so identical subformulas across every entry built this way are a single object,
+ * and two such propositions are structurally equal exactly when they are the same instance.
+ * Shared instances are only weakly held by the context, and are forgotten once no entry uses them.
  *
  * @see PropositionEntry
  * @see common.propositions.AtomicProposition
@@ -26,6 +39,8 @@ import java.util.*;
 public class LogicContext implements Collection<PropositionEntry> {
     private final List<PropositionEntry> propositions;
     private final Map<String, AtomicProposition> atomicsMap;
+    private final Map<NodeKey, NodeReference> nodes = new HashMap<>();
+    private final ReferenceQueue<Proposition> collectedNodes = new ReferenceQueue<>();
 
     /**
      * Instantiates an empty LogicContext.
@@ -45,14 +60,76 @@ public class LogicContext implements Collection<PropositionEntry> {
 
     /**
      * Returns the {@link AtomicProposition} corresponding to a string.
-     * If no such instance exists, one is created using the given string.
+     * If no such instance exists, one is created using the given string,
+     * and later calls with the same string return that instance.
      *
      * @param repr the repr
      * @return an <code>AtomicProposition</code> with the name of repr
      * @see AtomicProposition#AtomicProposition(String, boolean) AtomicProposition#AtomicProposition(String, boolean)Constructor for AtomicProposition
      */
     public AtomicProposition getOrCreateAtomic(String repr) {
-        return atomicsMap.getOrDefault(repr, new AtomicProposition(repr));
+        return atomicsMap.computeIfAbsent(repr, AtomicProposition::new);
+    }
+
+    /**
+     * Returns the {@link UnaryProposition} applying an operator to an operand.
+     * If no such instance exists, one is created,
+     * and later calls with the same operator and operand instance return that instance.
+     *
+     * @param p        the operand
+     * @param operator the operator
+     * @return the shared <code>UnaryProposition</code>
+     */
+    public UnaryProposition getOrCreateUnary(Proposition p, UnaryOperator operator) {
+        NodeKey key = new NodeKey(operator, p, null);
+        Proposition existing = lookup(key);
+        if (existing != null)
+            return (UnaryProposition) existing;
+        UnaryProposition created = new UnaryProposition(p, operator);
+        nodes.put(key, new NodeReference(created, key, collectedNodes));
+        return created;
+    }
+
+    /**
+     * Returns the {@link BinaryProposition} joining two operands with an operator.
+     * If no such instance exists, one is created,
+     * and later calls with the same operator and operand instances (in the same order) return that instance.
+     *
+     * @param p        the first operand
+     * @param q        the second operand
+     * @param operator the operator
+     * @return the shared <code>BinaryProposition</code>
+     */
+    public BinaryProposition getOrCreateBinary(Proposition p, Proposition q, BinaryOperator operator) {
+        NodeKey key = new NodeKey(operator, p, q);
+        Proposition existing = lookup(key);
+        if (existing != null)
+            return (BinaryProposition) existing;
+        BinaryProposition created = new BinaryProposition(p, q, operator);
+        nodes.put(key, new NodeReference(created, key, collectedNodes));
+        return created;
+    }
+
+    /**
+     * Returns the number of shared compound propositions that are still in use.
+     */
+    public int sharedNodeCount() {
+        expungeCollectedNodes();
+        return nodes.size();
+    }
+
+    private Proposition lookup(NodeKey key) {
+        expungeCollectedNodes();
+        NodeReference reference = nodes.get(key);
+        return reference == null ? null : reference.get();
+    }
+
+    private void expungeCollectedNodes() {
+        NodeReference collected;
+        while ((collected = (NodeReference) collectedNodes.poll()) != null) {
+            // The key may have been reused by a newer instance since this one was collected
+            nodes.remove(collected.key, collected);
+        }
     }
 
     /**
@@ -178,5 +255,25 @@ public class LogicContext implements Collection<PropositionEntry> {
     public void clear() {
         atomicsMap.clear();
         propositions.clear();
+        nodes.clear();
+    }
+
+    /**
+     * Identifies a compound proposition by its operator and operand instances.
+     * Propositions do not override <code>equals</code>, so operands are compared by identity.
+     */
+    private record NodeKey(Enum<?> operator, Proposition p, Proposition q) {}
+
+    /**
+     * A weak reference to a shared proposition that remembers its key,
+     * so that the table entry can be removed once the proposition is collected.
+     */
+    private static class NodeReference extends WeakReference<Proposition> {
+        private final NodeKey key;
+
+        NodeReference(Proposition referent, NodeKey key, ReferenceQueue<Proposition> queue) {
+            super(referent, queue);
+            this.key = key;
+        }
     }
 }
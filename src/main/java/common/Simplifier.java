@@ -0,0 +1,255 @@
+package common;
+
+import common.operators.BinaryOperator;
+import common.operators.UnaryOperator;
+import common.propositions.AtomicProposition;
+import common.propositions.BinaryProposition;
+import common.propositions.Proposition;
+import common.propositions.UnaryProposition;
+
+import java.util.*;
+
+/**
+ * A class that rewrites propositions into smaller equivalent ones.
+ * <p>
+ * Trees are rewritten bottom-up, so every rule is applied to operands that are already simplified,
+ * and the result of a rule is simplified again until no rule applies. The rules are:
+ * <ul>
+ *     <li>constant propagation, e.g. <code>p ^ T = p</code>, <code>p -> F = ¬p</code>, <code>¬T = F</code>;</li>
+ *     <li>idempotence and complements, e.g. <code>p v p = p</code>, <code>p ^ ¬p = F</code>, <code>p <-> p = T</code>;</li>
+ *     <li>absorption, e.g. <code>p ^ (p v q) = p</code>;</li>
+ *     <li>double-negation elimination, <code>¬¬p = p</code>;</li>
+ *     <li>duplicate operands, e.g. <code>p ^ (p ^ q) = p ^ q</code>.</li>
+ * </ul>
+ * Results are built through a {@link LogicContext}, so structurally identical subformulas
+ * are a single instance, which lets the rules recognise them by identity.
+ * The input is never modified; when it was built through the same context
+ * and cannot be simplified, the same instance is returned.
+ * <p>
+ * Instances are not thread-safe.
+ */
+public class Simplifier {
+
+    private static final AtomicProposition TRUE = Proposition.getTrue();
+    private static final AtomicProposition FALSE = Proposition.getFalse();
+
+    private final LogicContext context;
+
+    /**
+     * Instantiates a new Simplifier that shares nodes only among its own results.
+     */
+    public Simplifier() {
+        this(new LogicContext());
+    }
+
+    /**
+     * Instantiates a new Simplifier that builds its results through a context,
+     * so that they share nodes with the other propositions of that context.
+     *
+     * @param context the context whose shared nodes are used
+     */
+    public Simplifier(LogicContext context) {
+        this.context = context;
+    }
+
+    /**
+     * Simplifies the proposition of an entry.
+     *
+     * @return an entry with the simplified proposition and only the atomics that remain in it,
+     * or <code>entry</code> itself if the simplified proposition is the same instance
+     */
+    public PropositionEntry simplify(PropositionEntry entry) {
+        Proposition simplified = simplify(entry.proposition());
+        if (simplified == entry.proposition())
+            return entry;
+
+        Set<AtomicProposition> remaining = Collections.newSetFromMap(new IdentityHashMap<>());
+        collectAtomics(simplified, remaining);
+        Set<AtomicProposition> atomics = new HashSet<>(entry.atomics());
+        atomics.retainAll(remaining);
+        return new PropositionEntry(simplified, atomics);
+    }
+
+    /**
+     * Returns a proposition equivalent to <code>proposition</code> to which none of the rules apply.
+     * <p>
+     * Subformulas are visited with an explicit stack, so arbitrarily deep propositions are supported.
+     */
+    public Proposition simplify(Proposition proposition) {
+        Map<Proposition, Proposition> simplified = new IdentityHashMap<>();
+        Deque<Proposition> stack = new ArrayDeque<>();
+        stack.push(proposition);
+        while (!stack.isEmpty()) {
+            Proposition p = stack.peek();
+            if (simplified.containsKey(p)) {
+                stack.pop();
+                continue;
+            }
+
+            if (p instanceof UnaryProposition unary) {
+                Proposition operand = simplified.get(unary.getProposition());
+                if (operand == null) {
+                    stack.push(unary.getProposition());
+                    continue;
+                }
+                simplified.put(p, unary(unary.getOperator(), operand));
+            }
+            else if (p instanceof BinaryProposition binary) {
+                Proposition left = simplified.get(binary.getLeftProposition());
+                Proposition right = simplified.get(binary.getRightProposition());
+                if (left == null || right == null) {
+                    if (left == null)
+                        stack.push(binary.getLeftProposition());
+                    if (right == null)
+                        stack.push(binary.getRightProposition());
+                    continue;
+                }
+                simplified.put(p, binary(binary.getOperator(), left, right));
+            }
+            else
+                simplified.put(p, p);
+            stack.pop();
+        }
+        return simplified.get(proposition);
+    }
+
+    /**
+     * Returns the simplified result of applying a unary operator to a simplified operand.
+     */
+    private Proposition unary(UnaryOperator operator, Proposition p) {
+        switch (operator) {
+            case NOT:
+                if (p == TRUE)
+                    return FALSE;
+                if (p == FALSE)
+                    return TRUE;
+                if (isNegation(p))
+                    return ((UnaryProposition) p).getProposition();
+                return context.getOrCreateUnary(p, operator);
+            default:
+                throw new IllegalStateException("Unexpected value: " + operator);
+        }
+    }
+
+    /**
+     * Returns the simplified result of applying a binary operator to simplified operands.
+     */
+    private Proposition binary(BinaryOperator operator, Proposition p, Proposition q) {
+        return switch (operator) {
+            case AND -> and(p, q);
+            case OR -> or(p, q);
+            case IMPLY -> imply(p, q);
+            case BICONDITIONAL -> biconditional(p, q);
+        };
+    }
+
+    private Proposition and(Proposition p, Proposition q) {
+        if (p == FALSE || q == FALSE || complementary(p, q))
+            return FALSE;
+        if (p == TRUE || p == q)
+            return q;
+        if (q == TRUE)
+            return p;
+        // Absorption: p ^ (p v r) = p
+        if (hasOperand(q, BinaryOperator.OR, p))
+            return p;
+        if (hasOperand(p, BinaryOperator.OR, q))
+            return q;
+        // Duplicate operands: p ^ (p ^ r) = p ^ r
+        if (hasOperand(q, BinaryOperator.AND, p))
+            return q;
+        if (hasOperand(p, BinaryOperator.AND, q))
+            return p;
+        return context.getOrCreateBinary(p, q, BinaryOperator.AND);
+    }
+
+    private Proposition or(Proposition p, Proposition q) {
+        if (p == TRUE || q == TRUE || complementary(p, q))
+            return TRUE;
+        if (p == FALSE || p == q)
+            return q;
+        if (q == FALSE)
+            return p;
+        // Absorption: p v (p ^ r) = p
+        if (hasOperand(q, BinaryOperator.AND, p))
+            return p;
+        if (hasOperand(p, BinaryOperator.AND, q))
+            return q;
+        // Duplicate operands: p v (p v r) = p v r
+        if (hasOperand(q, BinaryOperator.OR, p))
+            return q;
+        if (hasOperand(p, BinaryOperator.OR, q))
+            return p;
+        return context.getOrCreateBinary(p, q, BinaryOperator.OR);
+    }
+
+    private Proposition imply(Proposition p, Proposition q) {
+        if (p == FALSE || q == TRUE || p == q)
+            return TRUE;
+        if (p == TRUE)
+            return q;
+        if (q == FALSE)
+            return unary(UnaryOperator.NOT, p);
+        // p -> ¬p = ¬p, and ¬q -> q = q
+        if (complementary(p, q))
+            return q;
+        return context.getOrCreateBinary(p, q, BinaryOperator.IMPLY);
+    }
+
+    private Proposition biconditional(Proposition p, Proposition q) {
+        if (p == q)
+            return TRUE;
+        if (complementary(p, q))
+            return FALSE;
+        if (p == TRUE)
+            return q;
+        if (q == TRUE)
+            return p;
+        if (p == FALSE)
+            return unary(UnaryOperator.NOT, q);
+        if (q == FALSE)
+            return unary(UnaryOperator.NOT, p);
+        return context.getOrCreateBinary(p, q, BinaryOperator.BICONDITIONAL);
+    }
+
+    private static boolean isNegation(Proposition p) {
+        return p instanceof UnaryProposition unary && unary.getOperator() == UnaryOperator.NOT;
+    }
+
+    /**
+     * Returns whether one proposition is the negation of the other.
+     */
+    private static boolean complementary(Proposition p, Proposition q) {
+        return (isNegation(p) && ((UnaryProposition) p).getProposition() == q)
+                || (isNegation(q) && ((UnaryProposition) q).getProposition() == p);
+    }
+
+    /**
+     * Returns whether <code>p</code> applies <code>operator</code> directly to <code>operand</code>.
+     */
+    private static boolean hasOperand(Proposition p, BinaryOperator operator, Proposition operand) {
+        return p instanceof BinaryProposition binary && binary.getOperator() == operator
+                && (binary.getLeftProposition() == operand || binary.getRightProposition() == operand);
+    }
+
+    private static void collectAtomics(Proposition root, Set<AtomicProposition> atomics) {
+        Set<Proposition> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Proposition> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Proposition p = stack.pop();
+            if (!visited.add(p))
+                continue;
+            if (p instanceof AtomicProposition atomic) {
+                if (atomic != TRUE && atomic != FALSE)
+                    atomics.add(atomic);
+            }
+            else if (p instanceof UnaryProposition unary)
+                stack.push(unary.getProposition());
+            else if (p instanceof BinaryProposition binary) {
+                stack.push(binary.getLeftProposition());
+                stack.push(binary.getRightProposition());
+            }
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package common.operators;
 
+import common.Assignment;
 import common.propositions.Proposition;
 
 /**
@@ -27,4 +28,21 @@ public enum BinaryOperator {
             case BICONDITIONAL -> p.evaluate() == q.evaluate();
         };
     }
+
+    /**
+     * Applies this operator to two propositions under an assignment.
+     *
+     * @param p the first operand
+     * @param q the second operand
+     * @param assignment the truth values of every atomic in both operands
+     * @return the resulting truth value
+     */
+    public boolean apply(Proposition p, Proposition q, Assignment assignment) {
+        return switch (this) {
+            case AND -> p.evaluate(assignment) && q.evaluate(assignment);
+            case OR -> p.evaluate(assignment) || q.evaluate(assignment);
+            case IMPLY -> !p.evaluate(assignment) || q.evaluate(assignment);
+            case BICONDITIONAL -> p.evaluate(assignment) == q.evaluate(assignment);
+        };
+    }
 }
@@ -1,5 +1,6 @@
 package common.operators;
 
+import common.Assignment;
 import common.propositions.Proposition;
 
 /**
@@ -24,4 +25,20 @@ public enum UnaryOperator {
                 throw new RuntimeException();
         }
     }
+
+    /**
+     * Applies this operator to a single proposition under an assignment.
+     *
+     * @param p the operand
+     * @param assignment the truth values of every atomic in the operand
+     * @return the resulting truth value
+     */
+    public boolean apply(Proposition p, Assignment assignment) {
+        switch (this) {
+            case NOT:
+                return !p.evaluate(assignment);
+            default:
+                throw new RuntimeException();
+        }
+    }
 }
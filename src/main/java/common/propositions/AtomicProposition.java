@@ -1,5 +1,6 @@
 package common.propositions;
 
+import common.Assignment;
 import interpreting.common.RepresentationTable;
 import interpreting.tokenization.TokenType;
 import common.LogicContext;
@@ -80,6 +81,15 @@ public class AtomicProposition extends Proposition {
         return value;
     }
 
+    /**
+     * @return the truth value given to this atomic by <code>assignment</code>,
+     * or the fixed value of this atomic if it is one of the constants TRUE or FALSE.
+     */
+    @Override
+    public boolean evaluate(Assignment assignment) {
+        return mutable ? assignment.get(this) : value;
+    }
+
     /**
      * @return a corresponding String representation from {@link RepresentationTable}
      * if called on the constants TRUE or FALSE,
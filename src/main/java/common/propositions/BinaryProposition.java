@@ -1,5 +1,6 @@
 package common.propositions;
 
+import common.Assignment;
 import common.operators.BinaryOperator;
 import interpreting.common.RepresentationTable;
 
@@ -9,12 +10,15 @@ import interpreting.common.RepresentationTable;
 public class BinaryProposition extends Proposition {
     private static RepresentationTable table = RepresentationTable.getInstance();
 
-    private Proposition p;
-    private Proposition q;
-    private BinaryOperator operator;
+    private final Proposition p;
+    private final Proposition q;
+    private final BinaryOperator operator;
 
     /**
      * Instantiates a new binary proposition.
+     * <p>
+     * <b>Usage guideline:</b> Prefer {@link common.LogicContext#getOrCreateBinary},
+     * which shares one instance between identical propositions.
      *
      * @param p        the first operand
      * @param q        the second operand
@@ -31,6 +35,11 @@ public class BinaryProposition extends Proposition {
         return operator.apply(p, q);
     }
 
+    @Override
+    public boolean evaluate(Assignment assignment) {
+        return operator.apply(p, q, assignment);
+    }
+
     /**
      * Creates and returns a string representation of this instance.
      * <p>
@@ -58,4 +67,11 @@ public class BinaryProposition extends Proposition {
     public Proposition getRightProposition() {
         return q;
     }
+
+    /**
+     * @return the operator joining the two operands
+     */
+    public BinaryOperator getOperator() {
+        return operator;
+    }
 }
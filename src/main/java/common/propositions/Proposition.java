@@ -1,5 +1,7 @@
 package common.propositions;
 
+import common.Assignment;
+
 /**
  * An abstract class representing a proposition.
  * <p>
@@ -8,18 +10,32 @@ package common.propositions;
  * For top-level propositions needing context or metadata, see {@link common.PropositionEntry}
  */
 public abstract class Proposition {
-    private static AtomicProposition TRUE = null;
-    private static AtomicProposition FALSE = null;
+    private static final AtomicProposition TRUE = new AtomicProposition("T", true, false);
+    private static final AtomicProposition FALSE = new AtomicProposition("F", false, false);
 
     /**
-     * Returns the truth value of this proposition.
+     * Returns the truth value of this proposition, using the values currently stored in its atomics.
      * <p>
      * Implementations should call this method on child propositions (if any).
+     * <p>
+     * Since atomics are shared by every proposition in a context, this is unsafe when several threads
+     * evaluate propositions of the same context; use {@link #evaluate(Assignment)} instead.
      *
      * @return the truth value of this proposition
      */
     public abstract boolean evaluate();
 
+    /**
+     * Returns the truth value of this proposition under an assignment, without reading or modifying its atomics.
+     * <p>
+     * Implementations should call this method on child propositions (if any).
+     *
+     * @param assignment the truth values of every atomic in this proposition
+     * @return the truth value of this proposition
+     * @throws IllegalArgumentException if an atomic is not part of the assignment
+     */
+    public abstract boolean evaluate(Assignment assignment);
+
     /**
      * Returns a string representation of this proposition.
      * <p>
@@ -39,8 +55,6 @@ public abstract class Proposition {
      * @return the constant {@link AtomicProposition} instance TRUE
      */
     public static AtomicProposition getTrue() {
-        if (TRUE == null)
-             TRUE = new AtomicProposition("T", true, false);
         return TRUE;
     }
 
@@ -48,8 +62,6 @@ public abstract class Proposition {
      * @return the constant {@link AtomicProposition} instance FALSE
      */
     public static AtomicProposition getFalse() {
-        if (FALSE == null)
-            FALSE = new AtomicProposition("F", false, false);
         return FALSE;
     }
 
@@ -1,6 +1,6 @@
 package common.propositions;
 
-import common.operators.BinaryOperator;
+import common.Assignment;
 import common.operators.UnaryOperator;
 import interpreting.common.RepresentationTable;
 
@@ -11,11 +11,14 @@ import interpreting.common.RepresentationTable;
 public class UnaryProposition extends Proposition {
     private static RepresentationTable table = RepresentationTable.getInstance();
 
-    private Proposition p;
-    private UnaryOperator operator;
+    private final Proposition p;
+    private final UnaryOperator operator;
 
     /**
      * Instantiates a new unary proposition.
+     * <p>
+     * <b>Usage guideline:</b> Prefer {@link common.LogicContext#getOrCreateUnary},
+     * which shares one instance between identical propositions.
      *
      * @param p        the operand
      * @param operator the operator
@@ -30,6 +33,11 @@ public class UnaryProposition extends Proposition {
         return operator.apply(p);
     }
 
+    @Override
+    public boolean evaluate(Assignment assignment) {
+        return operator.apply(p, assignment);
+    }
+
     /**
      * Creates and returns a string representation of this instance.
      * <p>
@@ -50,4 +58,11 @@ public class UnaryProposition extends Proposition {
     public Proposition getProposition() {
         return p;
     }
+
+    /**
+     * @return the operator applied to the operand
+     */
+    public UnaryOperator getOperator() {
+        return operator;
+    }
 }
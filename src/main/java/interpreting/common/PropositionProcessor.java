@@ -1,9 +1,11 @@
 package interpreting.common;
 
 import common.PropositionEntry;
+import common.Simplifier;
 import common.propositions.AtomicProposition;
 import interpreting.parsing.Parser;
 import interpreting.tokenization.Lexer;
+import interpreting.tokenization.TokenStream;
 import common.LogicContext;
 
 /**
@@ -14,15 +16,21 @@ import common.LogicContext;
  * For example, if a parser generates a tree represented by <code>"p ^ q"</code> then generates <code>"q -> r"</code>
  * without modifying the {@link LogicContext} externally or through {@link #setContext},
  * the <code>AtomicProposition</code> with representation <code>"q"</code> will be the same instance among both propositions.
+ * <p>
+ * Optionally, each generated proposition can be {@link Simplifier simplified} before it is added to the context
+ * (see {@link #setSimplifying(boolean)}).
  *
  * @see LogicContext
  * @see AtomicProposition
  */
 public class PropositionProcessor {
-    private Lexer lexer;
+    private String input;
+    // Reused for every input, so that tokenizing allocates nothing once it is large enough
+    private final TokenStream tokens = new TokenStream();
     private Parser parser;
     private LogicContext context;
     private InterpretingResult<PropositionEntry> prevTreeResult;
+    private boolean simplifying = false;
 
     /**
      * Instantiates a new Proposition processor.
@@ -32,8 +40,8 @@ public class PropositionProcessor {
      */
     public PropositionProcessor(String input, LogicContext context) {
         this.context = context;
-        this.lexer = new Lexer(input);
-        this.parser = new Parser(lexer, context);
+        this.input = input;
+        this.parser = new Parser(context);
     }
 
     /**
@@ -49,12 +57,17 @@ public class PropositionProcessor {
      * Attempts to generate a {@link PropositionEntry}
      * from the current input string.
      * <p>
-     * If generation succeeds, the resulting <code>PropositionEntry</code> is added to the context.
+     * If generation succeeds, the resulting <code>PropositionEntry</code> is added to the context,
+     * after being simplified if {@link #isSimplifying() simplification} is enabled.
      */
     public void generateProposition() {
-        prevTreeResult = parser.buildPropositionTree();
-        if (generateSucceeded())
+        Lexer.tokenize(input, tokens);
+        prevTreeResult = parser.buildPropositionTree(tokens);
+        if (generateSucceeded()) {
+            if (simplifying)
+                prevTreeResult = new InterpretingResult<>(new Simplifier(context).simplify(prevTreeResult.value()), null);
             context.add(prevTreeResult.value());
+        }
     }
 
     /**
@@ -92,13 +105,32 @@ public class PropositionProcessor {
         return prevTreeResult.message();
     }
 
+    /**
+     * Returns whether generated propositions are simplified.
+     */
+    public boolean isSimplifying() {
+        return simplifying;
+    }
+
+    /**
+     * Sets whether generated propositions are simplified before being added to the context.
+     * <p>
+     * A simplified proposition is equivalent to the input, but may be displayed differently
+     * and may no longer contain every atomic of the input.
+     *
+     * @param simplifying whether to simplify
+     */
+    public void setSimplifying(boolean simplifying) {
+        this.simplifying = simplifying;
+    }
+
     /**
      * Sets input.
      *
      * @param input the input
      */
     public void setInput(String input) {
-        lexer.setInput(input);
+        this.input = input;
     }
 
     /**
@@ -1,12 +1,12 @@
 package interpreting.common;
 
 import common.PropositionEntry;
-import common.propositions.AtomicProposition;
-import common.propositions.Proposition;
 import interpreting.tokenization.TokenType;
 import common.operators.BinaryOperator;
 import common.operators.UnaryOperator;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -14,13 +14,21 @@ import java.util.Set;
 
 /**
  * A singleton class determining how tokens, operators, and certain propositions are represented as Strings.
+ * <p>
+ * Every representation is compiled into a {@link TokenTrie} when the table is built,
+ * so tokens are looked up by walking the trie rather than by searching every representation.
  */
-// TODO: Replace list & linear searches with multiple maps
 public class RepresentationTable {
 
+    private static final int ASCII = 128;
+
     private static RepresentationTable instance;
     private final List<TableRow> table = new ArrayList<>();
     private final Set<Character> allowedCharacters = new HashSet<>();
+    private final TokenTrie trie;
+    // Answers isAllowed and validIdentifierChar for ASCII characters with a single array read
+    private final boolean[] asciiAllowed = new boolean[ASCII];
+    private final boolean[] asciiIdentifier = new boolean[ASCII];
 
     /*
      * reprType | definition
@@ -72,6 +80,21 @@ public class RepresentationTable {
                 }
             }
         }
+        trie = new TokenTrie(table);
+        for (char c = 0; c < ASCII; c++) {
+            asciiIdentifier[c] = isIdentifierChar(c);
+            asciiAllowed[c] = Character.isWhitespace(c) || asciiIdentifier[c] || allowedCharacters.contains(c);
+        }
+    }
+
+    /**
+     * Prints a truth table for a proposition to {@link System#out}.
+     *
+     * @param entry the top-level proposition
+     * @see #printTruthTable(PropositionEntry, Appendable)
+     */
+    public void printTruthTable(PropositionEntry entry) {
+        printTruthTable(entry, System.out);
     }
 
     /**
@@ -81,88 +104,42 @@ public class RepresentationTable {
      * <p>
      * Because the number of rows is 2^<sup># of atomics</sup>,
      * extra checks may be desired for large propositions.
+     * To print only some rows, use a {@link TruthTableWriter} directly.
      * @param entry the top-level proposition
+     * @param out where to print the table
      */
-    public void printTruthTable(PropositionEntry entry) {
-
-        Proposition proposition = entry.proposition();
-        List<AtomicProposition> atomicList = new ArrayList<>(entry.atomics());
-
-        String treeRepr = proposition.toString();
-        int reprLen = treeRepr.length();
-        int atomicsLen = 2;
-        List<Integer> atomicLengths = new ArrayList<>(atomicList.size());
-
-        // Print atomics and entire proposition
-        StringBuilder topRow = new StringBuilder(" ");
-        for (int i = atomicList.size() - 1; i >= 0; i--) {
-            String aRepr = atomicList.get(i).toString();
-            topRow.append(aRepr).append(" | ");
-            atomicLengths.add(aRepr.length());
-            atomicsLen += aRepr.length() + 3;
-        }
-        System.out.print(justifyCenter("Atomics", atomicsLen - 3));
-        System.out.println("| " + justifyCenter("Proposition", reprLen + 1));
-        topRow.append(treeRepr);
-        System.out.println(topRow);
-
-        // Divider
-        for (int i = 0; i < atomicsLen + reprLen; i++) {
-            System.out.print("-");
-        }
-        System.out.println();
-
-        // Truth Table
-        long numCombinations = 1L << atomicList.size();
-        // Check for overflow
-        if (numCombinations < atomicList.size()) {
-            System.out.println("Too many atomic propositions! (" + atomicList.size() + ")");
-            return;
-        }
-        for (long comb = numCombinations - 1; comb >= 0; comb--) {
-            for (int i = atomicList.size() - 1; i >= 0; i--) {
-                boolean val = (comb >> i) % 2 == 1;
-                atomicList.get(i).setValue(val);
-                System.out.printf(justifyCenter(val ? "T" : "F", atomicLengths.get(i) + 2) + "|");
+    public void printTruthTable(PropositionEntry entry, Appendable out) {
+        try {
+            if (entry.atomics().size() > TruthTableWriter.MAX_ATOMICS) {
+                out.append("Too many atomic propositions! (" + entry.atomics().size() + ")")
+                        .append(System.lineSeparator());
+                return;
             }
-            System.out.println(justifyCenter(proposition.evaluate() ? "T" : "F", reprLen + 1));
+            new TruthTableWriter(entry).writeTo(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 
-    // Helper method for printTruthTable
-    private String justifyCenter(String str, int width) {
-        if (str.length() >= width) return str;
-        int padding = (width - str.length()) / 2;
-        return String.format("%" + (padding + str.length()) + "s%" + (width - padding - str.length()) + "s", str, "");
-    }
-
     /**
      * @return the token type that corresponds to <code>input</code>, <code>null</code> if nothing matches.
      */
     public TokenType getTokenType(String input) {
-        for (TableRow row: table) {
-            for (String repr: row.representations()) {
-                if (repr.equals(input))
-                    return row.tokenType();
-            }
-        }
-        return null;
+        return trie.match(input, 0, input.length());
     }
 
     /**
      * @return a Set of all token types with a representation that starts with <code>input</code>
      */
     public Set<TokenType> getPossibleTokenTypes(String input) {
-        Set<TokenType> possible = new HashSet<>();
-        for (TableRow row: table) {
-            for (String repr: row.representations()) {
-                if (input.length() <= repr.length() && repr.startsWith(input)) {
-                    possible.add(row.tokenType());
-                    break;
-                }
-            }
-        }
-        return possible;
+        return trie.possibleTypes(input);
+    }
+
+    /**
+     * @return the trie of every token representation, for matching tokens without building Strings
+     */
+    public TokenTrie getTokenTrie() {
+        return trie;
     }
 
     /**
@@ -220,6 +197,8 @@ public class RepresentationTable {
      * @return whether <code>c</code> is allowed when interpreting.
      */
     public boolean isAllowed(char c) {
+        if (c < ASCII)
+            return asciiAllowed[c];
         return Character.isWhitespace(c) || validIdentifierChar(c) || allowedCharacters.contains(c);
     }
 
@@ -227,6 +206,12 @@ public class RepresentationTable {
      * @return whether <code>c</code> can be used in an identifier.
      */
     public boolean validIdentifierChar(char c) {
+        if (c < ASCII)
+            return asciiIdentifier[c];
+        return isIdentifierChar(c);
+    }
+
+    private static boolean isIdentifierChar(char c) {
         return c == '_' || Character.isLetterOrDigit(c);
     }
 
@@ -0,0 +1,150 @@
+package interpreting.common;
+
+import interpreting.tokenization.TokenType;
+
+import java.util.*;
+
+/**
+ * A character trie over every representation in a {@link RepresentationTable}, used as a DFA to match tokens.
+ * <p>
+ * States are numbered from {@link #ROOT}, and each state stands for the prefix of some representation spelled
+ * by the path to it. Transitions on ASCII characters are held in one flat table, so stepping on them is a
+ * single array read; the few other characters (such as <code>∧</code> or <code>→</code>) are held in small
+ * per-state arrays. Matching never allocates.
+ * <p>
+ * Tries are immutable once built, so one trie may be shared between threads.
+ */
+public final class TokenTrie {
+
+    /**
+     * The state before any character has been read.
+     */
+    public static final int ROOT = 0;
+
+    /**
+     * The result of {@link #step} when no representation continues with the character.
+     */
+    public static final int NONE = -1;
+
+    private static final int ASCII = 128;
+    private static final TokenType[] TYPES = TokenType.values();
+
+    // asciiNext[state * ASCII + c] is the next state on ASCII character c, or NONE
+    private final int[] asciiNext;
+    // For each state, parallel arrays of the other characters it continues with, and their next states
+    private final char[][] otherChars;
+    private final int[][] otherNext;
+    // The token type represented exactly by each state, or null
+    private final TokenType[] types;
+    // A mask, by ordinal, of every token type whose representations pass through each state
+    private final int[] reachable;
+
+    /**
+     * Builds a trie from the representations of each row, where earlier rows take precedence
+     * if two rows share a representation.
+     */
+    TokenTrie(List<TableRow> rows) {
+        List<Map<Character, Integer>> next = new ArrayList<>();
+        List<TokenType> exact = new ArrayList<>();
+        List<Integer> masks = new ArrayList<>();
+        next.add(new HashMap<>());
+        exact.add(null);
+        masks.add(0);
+        for (TableRow row: rows) {
+            int bit = 1 << row.tokenType().ordinal();
+            // Every representation starts with the empty prefix
+            masks.set(ROOT, masks.get(ROOT) | bit);
+            for (String repr: row.representations()) {
+                int state = ROOT;
+                for (int i = 0; i < repr.length(); i++) {
+                    Integer child = next.get(state).get(repr.charAt(i));
+                    if (child == null) {
+                        child = next.size();
+                        next.get(state).put(repr.charAt(i), child);
+                        next.add(new HashMap<>());
+                        exact.add(null);
+                        masks.add(0);
+                    }
+                    state = child;
+                    masks.set(state, masks.get(state) | bit);
+                }
+                if (exact.get(state) == null)
+                    exact.set(state, row.tokenType());
+            }
+        }
+
+        int states = next.size();
+        asciiNext = new int[states * ASCII];
+        Arrays.fill(asciiNext, NONE);
+        otherChars = new char[states][];
+        otherNext = new int[states][];
+        types = exact.toArray(new TokenType[0]);
+        reachable = new int[states];
+        for (int state = 0; state < states; state++) {
+            reachable[state] = masks.get(state);
+            List<Character> others = new ArrayList<>();
+            for (Map.Entry<Character, Integer> transition: next.get(state).entrySet()) {
+                char c = transition.getKey();
+                if (c < ASCII)
+                    asciiNext[state * ASCII + c] = transition.getValue();
+                else
+                    others.add(c);
+            }
+            otherChars[state] = new char[others.size()];
+            otherNext[state] = new int[others.size()];
+            for (int i = 0; i < others.size(); i++) {
+                otherChars[state][i] = others.get(i);
+                otherNext[state][i] = next.get(state).get(others.get(i));
+            }
+        }
+    }
+
+    /**
+     * Returns the state after reading <code>c</code> in <code>state</code>, or {@link #NONE}
+     * if no representation continues that way.
+     */
+    public int step(int state, char c) {
+        if (c < ASCII)
+            return asciiNext[state * ASCII + c];
+        char[] chars = otherChars[state];
+        for (int i = 0; i < chars.length; i++) {
+            if (chars[i] == c)
+                return otherNext[state][i];
+        }
+        return NONE;
+    }
+
+    /**
+     * Returns the token type whose representation is exactly the prefix of a state, or <code>null</code> if none is.
+     */
+    public TokenType typeOf(int state) {
+        return types[state];
+    }
+
+    /**
+     * Returns the token type represented by exactly <code>input[start, end)</code>, or <code>null</code> if none is.
+     */
+    public TokenType match(CharSequence input, int start, int end) {
+        int state = ROOT;
+        for (int i = start; i < end && state != NONE; i++)
+            state = step(state, input.charAt(i));
+        return state == NONE ? null : types[state];
+    }
+
+    /**
+     * Returns every token type with a representation that starts with <code>prefix</code>.
+     */
+    public Set<TokenType> possibleTypes(CharSequence prefix) {
+        int state = ROOT;
+        for (int i = 0; i < prefix.length() && state != NONE; i++)
+            state = step(state, prefix.charAt(i));
+        Set<TokenType> possible = EnumSet.noneOf(TokenType.class);
+        if (state == NONE)
+            return possible;
+        for (TokenType type: TYPES) {
+            if ((reachable[state] & 1 << type.ordinal()) != 0)
+                possible.add(type);
+        }
+        return possible;
+    }
+}
@@ -0,0 +1,379 @@
+package interpreting.common;
+
+import common.PropositionEntry;
+import common.propositions.AtomicProposition;
+import logic.evaluation.EvaluationProgram;
+import logic.evaluation.PropositionCompiler;
+import logic.evaluation.TruthTable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Renders the truth table of a proposition, in the layout of {@link RepresentationTable#printTruthTable}.
+ * <p>
+ * Every row has the same width, so rows are rendered by copying a template row into a reusable buffer
+ * and changing only the characters holding truth values; the buffer is written out in large blocks.
+ * Values are read from the entry's packed {@link TruthTable} when one is already kept, or when the whole table
+ * is written and small enough to be kept for anything else that uses the entry. Otherwise each block of 64 rows
+ * is evaluated through the compiled {@link EvaluationProgram} as it is reached, so a range or the first few rows
+ * of a large table are written without evaluating the rest. Either way, large tables are bounded by the speed
+ * of output rather than formatting or evaluation.
+ * <p>
+ * Rows are numbered from <code>0</code>, in the order they are displayed: row <code>0</code> has every atomic true,
+ * and the last row has every atomic false. The rows written can be limited to a range, and to the rows where
+ * the proposition is true or false. Rows can also be read one at a time through {@link #iterator()}.
+ * <p>
+ * Each call to {@link #writeTo} or {@link #iterator()} starts from the first row in range,
+ * so one writer can render the same table any number of times.
+ * Instances are mutable and should not be shared between threads.
+ */
+public class TruthTableWriter implements Iterable<String> {
+
+    /**
+     * The number of characters rendered before each write, unless a single row needs more.
+     */
+    public static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The largest number of atomics whose rows can be numbered with a <code>long</code>.
+     */
+    public static final int MAX_ATOMICS = Long.SIZE - 2;
+
+    /**
+     * Which rows of a truth table to write.
+     */
+    public enum Filter {
+        /**
+         * Writes every row.
+         */
+        ALL,
+        /**
+         * Writes only the rows where the proposition is true.
+         */
+        TRUE_ROWS,
+        /**
+         * Writes only the rows where the proposition is false.
+         */
+        FALSE_ROWS
+    }
+
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private final PropositionEntry entry;
+    private final List<AtomicProposition> atomics;
+    private final EvaluationProgram program;
+    private final long rowCount;
+
+    private final char[] header;
+    private final char[] rowTemplate;
+    // The position within a row of the truth value of each atomic, and of the proposition
+    private final int[] atomicPositions;
+    private final int valuePosition;
+
+    private long fromRow;
+    private long toRow;
+    private Filter filter = Filter.ALL;
+    private boolean headerIncluded = true;
+
+    /**
+     * Instantiates a writer for every row of the truth table of an entry, with a header.
+     *
+     * @throws IllegalArgumentException if the entry has more than {@value #MAX_ATOMICS} atomics
+     */
+    public TruthTableWriter(PropositionEntry entry) {
+        if (entry.atomics().size() > MAX_ATOMICS)
+            throw new IllegalArgumentException("Too many atomic propositions! (" + entry.atomics().size() + ")");
+        this.entry = entry;
+        // A kept table decides the order of the atomics, so that its values can be read directly
+        TruthTable table = TruthTable.cached(entry);
+        atomics = table != null ? table.getAtomics() : new ArrayList<>(entry.atomics());
+        program = PropositionCompiler.compile(entry).bind(atomics);
+        rowCount = 1L << atomics.size();
+        fromRow = 0;
+        toRow = rowCount;
+
+        // Atomics are displayed from the last to the first, so that rows count down in binary
+        String treeRepr = entry.proposition().toString();
+        int reprLen = treeRepr.length();
+        int atomicsLen = 2;
+        StringBuilder names = new StringBuilder(" ");
+        StringBuilder row = new StringBuilder();
+        atomicPositions = new int[atomics.size()];
+        for (int i = atomics.size() - 1; i >= 0; i--) {
+            String aRepr = atomics.get(i).toString();
+            names.append(aRepr).append(" | ");
+            atomicsLen += aRepr.length() + 3;
+            atomicPositions[i] = row.length() + centerOffset(1, aRepr.length() + 2);
+            row.append(justifyCenter("F", aRepr.length() + 2)).append('|');
+        }
+        valuePosition = row.length() + centerOffset(1, reprLen + 1);
+        row.append(justifyCenter("F", reprLen + 1)).append(LINE_SEPARATOR);
+        rowTemplate = row.toString().toCharArray();
+
+        header = (justifyCenter("Atomics", atomicsLen - 3) + "| " + justifyCenter("Proposition", reprLen + 1)
+                + LINE_SEPARATOR + names + treeRepr + LINE_SEPARATOR
+                + "-".repeat(atomicsLen + reprLen) + LINE_SEPARATOR).toCharArray();
+    }
+
+    /**
+     * Returns the atomics of the table, where atomic <code>i</code> is true in row <code>r</code>
+     * exactly when bit <code>i</code> of <code>rowCount() - 1 - r</code> is set.
+     */
+    public List<AtomicProposition> getAtomics() {
+        return Collections.unmodifiableList(atomics);
+    }
+
+    /**
+     * Returns the number of rows in the whole table, <code>2<sup>n</sup></code> for <code>n</code> atomics.
+     */
+    public long rowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Limits the rows written to a range.
+     *
+     * @param from the first row to write
+     * @param to   one past the last row to write
+     * @throws IllegalArgumentException if the range is not within the table
+     */
+    public void setRows(long from, long to) {
+        if (from < 0 || to > rowCount || from > to)
+            throw new IllegalArgumentException("Invalid row range: " + from + " to " + to + " of " + rowCount);
+        fromRow = from;
+        toRow = to;
+    }
+
+    /**
+     * Sets which rows within the range are written.
+     */
+    public void setFilter(Filter filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * Sets whether {@link #writeTo} writes the column headings and divider before the rows.
+     */
+    public void setHeaderIncluded(boolean headerIncluded) {
+        this.headerIncluded = headerIncluded;
+    }
+
+    /**
+     * Writes the table, flushing the buffer each time it fills.
+     *
+     * @return the number of rows written
+     */
+    public long writeTo(Appendable out) throws IOException {
+        Cursor cursor = new Cursor(tableToWrite());
+        char[] buffer = newBuffer();
+        int length = renderHeader(buffer);
+        long written = 0;
+        while (true) {
+            int rows = cursor.render(buffer, length);
+            length += rows * rowTemplate.length;
+            written += rows;
+            if (length == 0)
+                return written;
+            out.append(CharBuffer.wrap(buffer, 0, length));
+            length = 0;
+        }
+    }
+
+    /**
+     * Writes the table encoded as UTF-8, flushing the buffer each time it fills.
+     *
+     * @return the number of rows written
+     */
+    public long writeTo(WritableByteChannel channel) throws IOException {
+        Cursor cursor = new Cursor(tableToWrite());
+        char[] buffer = newBuffer();
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        ByteBuffer bytes = ByteBuffer.allocateDirect((int) (buffer.length * encoder.maxBytesPerChar()));
+        int length = renderHeader(buffer);
+        long written = 0;
+        while (true) {
+            int rows = cursor.render(buffer, length);
+            length += rows * rowTemplate.length;
+            written += rows;
+            boolean endOfInput = cursor.isFinished();
+
+            CharBuffer chars = CharBuffer.wrap(buffer, 0, length);
+            CoderResult result;
+            while ((result = encoder.encode(chars, bytes, endOfInput)).isOverflow())
+                drain(bytes, channel);
+            if (result.isError())
+                result.throwException();
+            if (endOfInput) {
+                while ((result = encoder.flush(bytes)).isOverflow())
+                    drain(bytes, channel);
+                if (result.isError())
+                    result.throwException();
+                drain(bytes, channel);
+                return written;
+            }
+            drain(bytes, channel);
+
+            // Characters the encoder is holding back, such as the first half of a surrogate pair, start the next block
+            length = chars.remaining();
+            System.arraycopy(buffer, chars.position(), buffer, 0, length);
+        }
+    }
+
+    private static void drain(ByteBuffer bytes, WritableByteChannel channel) throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining())
+            channel.write(bytes);
+        bytes.clear();
+    }
+
+    /**
+     * Returns an iterator over the rows of the table that would be written, without line separators or header.
+     * Rows are evaluated and rendered only as they are requested.
+     */
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<>() {
+            private final Cursor cursor = new Cursor(keptTable());
+            private final char[] row = new char[rowTemplate.length];
+            private boolean ready = false;
+
+            @Override
+            public boolean hasNext() {
+                if (!ready)
+                    ready = cursor.render(row, 0) == 1;
+                return ready;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                ready = false;
+                return new String(row, 0, rowTemplate.length - LINE_SEPARATOR.length());
+            }
+        };
+    }
+
+    /**
+     * Returns the packed table to read values from when writing, computing and keeping it only if
+     * the whole table is written, or <code>null</code> if each block should be evaluated as it is reached.
+     */
+    private TruthTable tableToWrite() {
+        if (fromRow == 0 && toRow == rowCount && TruthTable.fitsOnHeap(atomics.size())) {
+            TruthTable table = TruthTable.of(entry);
+            return table.getAtomics().equals(atomics) ? table : null;
+        }
+        return keptTable();
+    }
+
+    /**
+     * Returns the entry's packed table if one is kept over the atomics in the same order, otherwise <code>null</code>.
+     */
+    private TruthTable keptTable() {
+        TruthTable table = TruthTable.cached(entry);
+        return table != null && table.getAtomics().equals(atomics) ? table : null;
+    }
+
+    private char[] newBuffer() {
+        return new char[Math.max(BUFFER_SIZE, Math.max(header.length, rowTemplate.length))];
+    }
+
+    private int renderHeader(char[] buffer) {
+        if (!headerIncluded)
+            return 0;
+        System.arraycopy(header, 0, buffer, 0, header.length);
+        return header.length;
+    }
+
+    /**
+     * A position within the rows to be written, and the values of the block of 64 rows around it.
+     */
+    private final class Cursor {
+        // Exactly one of these provides the values
+        private final TruthTable table;
+        private final long[] lanes;
+        private final long[] registers;
+        private long row = fromRow;
+        private long block = -1;
+        private long values;
+
+        /**
+         * @param table the table to read values from, or <code>null</code> to evaluate them through the program
+         */
+        Cursor(TruthTable table) {
+            this.table = table;
+            lanes = table == null ? new long[atomics.size()] : null;
+            registers = table == null ? program.newLaneRegisters() : null;
+        }
+
+        /**
+         * Returns whether every row in range has been rendered or skipped.
+         */
+        boolean isFinished() {
+            return row >= toRow;
+        }
+
+        /**
+         * Renders as many of the remaining rows as fit into a buffer.
+         *
+         * @param offset where in <code>buffer</code> to render the first row
+         * @return the number of rows rendered, which is <code>0</code> once every row has been rendered
+         */
+        int render(char[] buffer, int offset) {
+            int rows = 0;
+            while (offset + rowTemplate.length <= buffer.length && row < toRow) {
+                long combination = rowCount - 1 - row;
+                long b = combination / EvaluationProgram.LANES;
+                if (b != block) {
+                    if (table != null)
+                        values = table.word(b);
+                    else {
+                        EvaluationProgram.fillLanes(b, lanes);
+                        values = program.evaluateLanes(lanes, registers);
+                    }
+                    block = b;
+                    // Skip the rest of the block at once if no row in it passes the filter
+                    long wanted = filter == Filter.TRUE_ROWS ? values : ~values;
+                    long remaining = -1L >>> (Long.SIZE - 1 - combination % EvaluationProgram.LANES);
+                    if (filter != Filter.ALL && (wanted & remaining) == 0) {
+                        row += combination % EvaluationProgram.LANES + 1;
+                        continue;
+                    }
+                }
+                row++;
+
+                boolean value = (values >>> (combination % EvaluationProgram.LANES) & 1) != 0;
+                if (filter == Filter.TRUE_ROWS && !value || filter == Filter.FALSE_ROWS && value)
+                    continue;
+                System.arraycopy(rowTemplate, 0, buffer, offset, rowTemplate.length);
+                for (int i = 0; i < atomicPositions.length; i++) {
+                    if ((combination >>> i & 1) != 0)
+                        buffer[offset + atomicPositions[i]] = 'T';
+                }
+                if (value)
+                    buffer[offset + valuePosition] = 'T';
+                offset += rowTemplate.length;
+                rows++;
+            }
+            return rows;
+        }
+    }
+
+    private static int centerOffset(int length, int width) {
+        return length >= width ? 0 : (width - length) / 2;
+    }
+
+    private static String justifyCenter(String str, int width) {
+        if (str.length() >= width)
+            return str;
+        int padding = centerOffset(str.length(), width);
+        return " ".repeat(padding) + str + " ".repeat(width - padding - str.length());
+    }
+}
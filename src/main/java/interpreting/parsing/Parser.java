@@ -1,12 +1,11 @@
 package interpreting.parsing;
 
 import common.PropositionEntry;
-import common.operators.BinaryOperator;
-import common.operators.UnaryOperator;
 import common.propositions.*;
 import interpreting.common.InterpretingResult;
 import interpreting.tokenization.Token;
 import common.LogicContext;
+import interpreting.tokenization.TokenStream;
 import interpreting.tokenization.TokenType;
 
 import java.util.*;
@@ -14,6 +13,14 @@ import java.util.*;
 /**
  * A class that transforms a sequence of tokens into a propositional tree.
  * <p>
+ * Tokens are read in a single pass, and the tree is built as they are read,
+ * by applying each operator once its operands are complete (see {@link TreeBuilder}).
+ * Nothing recurses, so deeply nested input is parsed in constant stack space,
+ * and the stacks used are kept between calls.
+ * <p>
+ * A {@link TokenStream} can also be parsed directly with {@link #buildPropositionTree(TokenStream)},
+ * which allocates little beyond the propositions it creates.
+ * <p>
  * Input is assumed to follow the expected syntactic format.
  * If the input is invalid, this is handled as a normal part of control flow,
  * as an {@link InterpretingResult} will be returned containing an error message
@@ -23,9 +30,14 @@ import java.util.*;
  */
 public class Parser {
 
-    private Iterable<InterpretingResult<Token>> RPNTokenSequence;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private Iterable<InterpretingResult<Token>> infixTokenSequence;
     private LogicContext context;
     private LogicContext tempContext;
+    private final TreeBuilder builder = new TreeBuilder();
+    // The atomic of each identifier id, while parsing a TokenStream
+    private AtomicProposition[] atomicsById = new AtomicProposition[INITIAL_CAPACITY];
 
     /**
      * Instantiates a new Parser using a pre-existing context.
@@ -34,11 +46,21 @@ public class Parser {
      * @param context      the context to use (or create)
      */
     public Parser(Iterable<InterpretingResult<Token>> infixTokenSequence, LogicContext context) {
-        this.RPNTokenSequence = new TokenPreParser(infixTokenSequence);
+        this.infixTokenSequence = infixTokenSequence;
         this.context = context;
         this.tempContext = new LogicContext();
     }
 
+    /**
+     * Instantiates a new Parser without a sequence of tokens,
+     * to be used with {@link #buildPropositionTree(TokenStream)}.
+     *
+     * @param context the context to use (or create)
+     */
+    public Parser(LogicContext context) {
+        this(List.of(), context);
+    }
+
     /**
      * Attempts to build a propositional tree. If it succeeds, updates the context
      * <p>
@@ -50,6 +72,7 @@ public class Parser {
      */
     public InterpretingResult<PropositionEntry> buildPropositionTree() {
         InterpretingResult<PropositionEntry> result = attemptGeneration();
+        builder.reset(context);
         tempContext.clear();
         return result;
     }
@@ -61,59 +84,94 @@ public class Parser {
      */
     private InterpretingResult<PropositionEntry> attemptGeneration() {
         Set<AtomicProposition> newAtomics = new HashSet<>();
-        Stack<Proposition> propositionStack = new Stack<>();
+        builder.reset(context);
 
-        for (InterpretingResult<Token> inToken: RPNTokenSequence) {
+        for (InterpretingResult<Token> inToken: infixTokenSequence) {
             Token token = inToken.value();
 
             if (token == null)
-                return new InterpretingResult<>(null, "Token error: " + inToken.message());
-
-            if (token.isConstant())
-                propositionStack.add(switch(token.getType()) {
-                    case TRUE -> Proposition.getTrue();
-                    case FALSE -> Proposition.getFalse();
-                    default -> throw new IllegalStateException();
-                });
-            else if (token.isIdentifier()) {
+                return new InterpretingResult<>(null, "Token error: Tokenization error: " + inToken.message());
+
+            String error;
+            if (token.isIdentifier()) {
                 AtomicProposition atomic = getAtomic(token.getText());
-                propositionStack.add(atomic);
                 newAtomics.add(atomic);
+                error = builder.addProposition(atomic);
             }
-            else if (token.isBinaryOperation()) {
-                // Last two propositions are reversed to retain original order
-                if (propositionStack.size() < 2)
-                    return new InterpretingResult<>(null,  "Binary operator does not have two propositions");
-                Proposition p2 = propositionStack.pop();
-                Proposition p1 = propositionStack.pop();
-                Proposition binary = new BinaryProposition(p1, p2, switch (token.getType()) {
-                    case AND -> BinaryOperator.AND;
-                    case OR -> BinaryOperator.OR;
-                    case IMPLY -> BinaryOperator.IMPLY;
-                    case BICONDITIONAL -> BinaryOperator.BICONDITIONAL;
-                    default -> throw new IllegalStateException("Unexpected value: " + token.getType());
-                });
-                propositionStack.add(binary);
-            }
-            else if (token.isUnaryOperation()) {
-                if (propositionStack.isEmpty())
-                    return new InterpretingResult<>(null,  "Unary operator does not have a proposition");
-                Proposition p = propositionStack.pop();
-                Proposition unary = new UnaryProposition(p, switch (token.getType()) {
-                    case NOT -> UnaryOperator.NOT;
-                    default -> throw new IllegalStateException("Unexpected value: " + token.getType());
-                });
-                propositionStack.add(unary);
+            else if (token.isConstant())
+                error = builder.addProposition(constant(token.getType()));
+            else
+                error = builder.addOperator(token.getType());
+            if (error != null)
+                return new InterpretingResult<>(null, error);
+        }
+        return finish(newAtomics);
+    }
+
+    /**
+     * Attempts to build a propositional tree from a stream of tokens in an infix format.
+     * If it succeeds, updates the context.
+     * <p>
+     * The result, including any error message, is the same as that of {@link #buildPropositionTree()}
+     * for a {@link interpreting.tokenization.Lexer Lexer} over the same input.
+     *
+     * @param tokens the tokens, as read by {@link interpreting.tokenization.Lexer#tokenize}
+     * @return the result of the attempt
+     */
+    public InterpretingResult<PropositionEntry> buildPropositionTree(TokenStream tokens) {
+        if (atomicsById.length < tokens.identifierCount())
+            atomicsById = new AtomicProposition[Math.max(tokens.identifierCount(), atomicsById.length * 2)];
+        InterpretingResult<PropositionEntry> result = attemptGeneration(tokens);
+        builder.reset(context);
+        Arrays.fill(atomicsById, 0, tokens.identifierCount(), null);
+        tempContext.clear();
+        return result;
+    }
+
+    /**
+     * Actual code for buildPropositionTree(TokenStream).
+     */
+    private InterpretingResult<PropositionEntry> attemptGeneration(TokenStream tokens) {
+        Set<AtomicProposition> newAtomics = new HashSet<>();
+        builder.reset(context);
+
+        for (int k = 0; k < tokens.size(); k++) {
+            TokenType type = tokens.type(k);
+            String error;
+            if (type == TokenType.IDENTIFIER) {
+                int id = tokens.identifier(k);
+                if (atomicsById[id] == null) {
+                    atomicsById[id] = getAtomic(tokens.identifierName(id));
+                    newAtomics.add(atomicsById[id]);
+                }
+                error = builder.addProposition(atomicsById[id]);
             }
-            else return new InterpretingResult<>(null, "Unexpected token found");
+            else if (type == TokenType.TRUE || type == TokenType.FALSE)
+                error = builder.addProposition(constant(type));
+            else
+                error = builder.addOperator(type);
+            if (error != null)
+                return new InterpretingResult<>(null, error);
         }
-        if (propositionStack.empty())
-            return new InterpretingResult<>(null, "No propositions found");
-        if (propositionStack.size() > 1)
-            return new InterpretingResult<>(null, "More than 1 proposition found");
+        // Errors before the one that stopped the lexer are reported first
+        if (tokens.getError() != null)
+            return new InterpretingResult<>(null, "Token error: Tokenization error: " + tokens.getError());
+        return finish(newAtomics);
+    }
+
+    private InterpretingResult<PropositionEntry> finish(Set<AtomicProposition> newAtomics) {
+        String error = builder.finish();
+        if (error != null)
+            return new InterpretingResult<>(null, error);
+        return new InterpretingResult<>(new PropositionEntry(builder.result(), newAtomics), null);
+    }
 
-        return new InterpretingResult<>(
-                new PropositionEntry(propositionStack.pop(), newAtomics), null);
+    private static Proposition constant(TokenType type) {
+        return switch (type) {
+            case TRUE -> Proposition.getTrue();
+            case FALSE -> Proposition.getFalse();
+            default -> throw new IllegalStateException("Unexpected value: " + type);
+        };
     }
 
     private AtomicProposition getAtomic(String repr) {
@@ -9,7 +9,9 @@ import java.util.*;
  * A class that "intercepts" a sequence of {@link Token Tokens},
  * converting a sequence with infixed operators to one in Reverse Polish Notation.
  * <p>
- * This class is used in {@link Parser} to facilitate building {@link common.propositions.Proposition Propositions}.
+ * {@link Parser} no longer uses this class, since it builds {@link common.propositions.Proposition Propositions}
+ * directly from infix tokens; it remains for producing postfix sequences.
+ * Each operator and parenthesis is handled with a recursive call, so long runs of them can overflow the stack.
  * <p>
  * Input is assumed to follow the expected syntactic format.
  * If the input is invalid, this is handled as a normal part of control flow,
@@ -0,0 +1,175 @@
+package interpreting.parsing;
+
+import common.LogicContext;
+import common.operators.BinaryOperator;
+import common.operators.UnaryOperator;
+import common.propositions.Proposition;
+import interpreting.common.RepresentationTable;
+import interpreting.tokenization.TokenType;
+
+import java.util.Arrays;
+
+/**
+ * Builds a propositional tree from tokens in an infix format, one token at a time, in a single pass.
+ * <p>
+ * Each operator waits on an operator stack until a closing parenthesis, the end of the input,
+ * or an operator that binds less tightly (by the precedence and associativity of its {@link TokenType})
+ * shows that its operands are complete. It is then applied straight to the operand stack,
+ * so no postfix sequence is built. Both stacks are arrays kept between trees, and nothing recurses,
+ * so the depth of nesting is limited only by memory.
+ * <p>
+ * Each method returns an error message if the token cannot be accepted, in which case the tree is abandoned.
+ */
+final class TreeBuilder {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static RepresentationTable repTable = RepresentationTable.getInstance();
+
+    private LogicContext context;
+    private Proposition[] operands = new Proposition[INITIAL_CAPACITY];
+    private int operandCount;
+    private TokenType[] operators = new TokenType[INITIAL_CAPACITY];
+    private int operatorCount;
+    private boolean propositionExpected;
+
+    /**
+     * Starts a new tree, whose compound propositions are shared through <code>context</code>.
+     */
+    void reset(LogicContext context) {
+        this.context = context;
+        Arrays.fill(operands, 0, operandCount, null);
+        operandCount = 0;
+        operatorCount = 0;
+        propositionExpected = true;
+    }
+
+    /**
+     * Accepts an atomic or constant proposition.
+     *
+     * @return an error message, or <code>null</code> if the proposition was accepted
+     */
+    String addProposition(Proposition p) {
+        if (!propositionExpected)
+            return "Token error: Unexpected proposition";
+        if (operandCount == operands.length)
+            operands = Arrays.copyOf(operands, operandCount * 2);
+        operands[operandCount++] = p;
+        propositionExpected = false;
+        return null;
+    }
+
+    /**
+     * Accepts an operator or parenthesis.
+     *
+     * @return an error message, or <code>null</code> if the token was accepted
+     */
+    String addOperator(TokenType type) {
+        switch (type) {
+            case OPEN_PAREN -> {
+                if (!propositionExpected)
+                    return "Token error: Unexpected open parenthesis";
+                pushOperator(type);
+            }
+            case CLOSE_PAREN -> {
+                int open = operatorCount - 1;
+                while (open >= 0 && operators[open] != TokenType.OPEN_PAREN)
+                    open--;
+                if (open < 0)
+                    return "Token error: Incorrect use of closing parenthesis";
+                while (operatorCount - 1 > open) {
+                    String error = apply(operators[--operatorCount]);
+                    if (error != null)
+                        return error;
+                }
+                operatorCount--;
+                propositionExpected = false;
+            }
+            case AND, OR, IMPLY, BICONDITIONAL -> {
+                if (propositionExpected)
+                    return String.format("Token error: Binary operator '%s' found when proposition was expected",
+                            repTable.getRepresentation(type));
+                while (operatorCount > 0) {
+                    TokenType top = operators[operatorCount - 1];
+                    if (!(top != TokenType.OPEN_PAREN && (top.precedence() > type.precedence() || (
+                            top.precedence() == type.precedence() && type.leftAssociative()))))
+                        break;
+                    operatorCount--;
+                    String error = apply(top);
+                    if (error != null)
+                        return error;
+                }
+                propositionExpected = true;
+                pushOperator(type);
+            }
+            case NOT -> {
+                if (!propositionExpected)
+                    return "Token error: Unexpected unary operation";
+                pushOperator(type);
+            }
+            default -> throw new IllegalStateException("Unexpected token: " + type);
+        }
+        return null;
+    }
+
+    /**
+     * Applies every remaining operator, after the last token.
+     *
+     * @return an error message, or <code>null</code> if exactly one proposition remains
+     */
+    String finish() {
+        while (operatorCount > 0) {
+            TokenType top = operators[--operatorCount];
+            if (top == TokenType.OPEN_PAREN)
+                return "Token error: Open parenthesis was not closed";
+            String error = apply(top);
+            if (error != null)
+                return error;
+        }
+        if (operandCount == 0)
+            return "No propositions found";
+        if (operandCount > 1)
+            return "More than 1 proposition found";
+        return null;
+    }
+
+    /**
+     * Returns the tree, after {@link #finish()} succeeds.
+     */
+    Proposition result() {
+        return operands[0];
+    }
+
+    /**
+     * Replaces the operands of an operator on the operand stack with the result of the operator.
+     *
+     * @return an error message if there are too few operands, otherwise <code>null</code>
+     */
+    private String apply(TokenType operator) {
+        if (operator == TokenType.NOT) {
+            if (operandCount == 0)
+                return "Unary operator does not have a proposition";
+            operands[operandCount - 1] = context.getOrCreateUnary(operands[operandCount - 1], UnaryOperator.NOT);
+            return null;
+        }
+        // Last two propositions are reversed to retain original order
+        if (operandCount < 2)
+            return "Binary operator does not have two propositions";
+        Proposition p2 = operands[--operandCount];
+        Proposition p1 = operands[operandCount - 1];
+        operands[operandCount] = null;
+        operands[operandCount - 1] = context.getOrCreateBinary(p1, p2, switch (operator) {
+            case AND -> BinaryOperator.AND;
+            case OR -> BinaryOperator.OR;
+            case IMPLY -> BinaryOperator.IMPLY;
+            case BICONDITIONAL -> BinaryOperator.BICONDITIONAL;
+            default -> throw new IllegalStateException("Unexpected value: " + operator);
+        });
+        return null;
+    }
+
+    private void pushOperator(TokenType type) {
+        if (operatorCount == operators.length)
+            operators = Arrays.copyOf(operators, operatorCount * 2);
+        operators[operatorCount++] = type;
+    }
+}
@@ -0,0 +1,95 @@
+package interpreting.tokenization;
+
+import java.util.Arrays;
+
+/**
+ * Interns identifiers read from a range of characters, numbering each distinct name from <code>0</code>.
+ * <p>
+ * Names are hashed and compared in place, so a name is only copied into a {@link String}
+ * the first time it is seen. Ids are never reused, so they stay valid for as long as the table.
+ */
+class IdentifierTable {
+
+    private static final int INITIAL_SLOTS = 64;
+
+    // Open addressing: each slot holds an id + 1, or 0 if empty
+    private int[] slots = new int[INITIAL_SLOTS];
+    private int[] hashes = new int[INITIAL_SLOTS / 2];
+    private String[] names = new String[INITIAL_SLOTS / 2];
+    private int size = 0;
+
+    /**
+     * Returns the id of the name <code>input[start, end)</code>, adding it if it has not been seen before.
+     */
+    int intern(CharSequence input, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++)
+            hash = 31 * hash + input.charAt(i);
+
+        int mask = slots.length - 1;
+        for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (id < 0)
+                return add(input, start, end, hash, slot);
+            if (hashes[id] == hash && matches(names[id], input, start, end))
+                return id;
+        }
+    }
+
+    /**
+     * Returns the name with the given id.
+     */
+    String name(int id) {
+        return names[id];
+    }
+
+    /**
+     * Returns the number of distinct names seen.
+     */
+    int size() {
+        return size;
+    }
+
+    private int add(CharSequence input, int start, int end, int hash, int slot) {
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        int id = size++;
+        names[id] = input.subSequence(start, end).toString();
+        hashes[id] = hash;
+        slots[slot] = id + 1;
+        // Keep the load factor at most one half
+        if (size * 2 > slots.length)
+            rehash();
+        return id;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = mix(hashes[id]) & mask;
+            while (slots[slot] != 0)
+                slot = (slot + 1) & mask;
+            slots[slot] = id + 1;
+        }
+    }
+
+    private static boolean matches(String name, CharSequence input, int start, int end) {
+        if (name.length() != end - start)
+            return false;
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) != input.charAt(start + i))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Spreads the high bits of a hash into the low bits, which select the slot.
+     */
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -2,6 +2,7 @@ package interpreting.tokenization;
 
 import interpreting.common.InterpretingResult;
 import interpreting.common.RepresentationTable;
+import interpreting.common.TokenTrie;
 
 import java.util.*;
 
@@ -19,10 +20,14 @@ import java.util.*;
  * rather than throwing an exception.
  * <p>
  * Internal errors (e.g. null tokens, logic bugs) are the only cases that may cause exceptions.
+ * <p>
+ * Besides iterating over {@link Token Tokens}, an input can be read all at once into a reusable {@link TokenStream}
+ * with {@link #tokenize(CharSequence, TokenStream)}.
  */
 public class Lexer implements Iterable<InterpretingResult<Token>> {
 
     private static RepresentationTable repTable = RepresentationTable.getInstance();
+    private static TokenTrie trie = repTable.getTokenTrie();
     private String input;
 
     /**
@@ -49,11 +54,122 @@ public class Lexer implements Iterable<InterpretingResult<Token>> {
         this.input = input;
     }
 
+    /**
+     * Reads every token of an input into a {@link TokenStream}, replacing its previous tokens.
+     * <p>
+     * Tokens are read exactly as by iterating over a Lexer, but nothing is allocated per token,
+     * and identifier names are only copied the first time the stream sees them.
+     * If the input is invalid, the tokens before the error are kept, and the same message as the iterator's
+     * is available from {@link TokenStream#getError()}.
+     *
+     * @param input  the input
+     * @param tokens the stream to write the tokens to
+     * @return whether the whole input was read
+     */
+    public static boolean tokenize(CharSequence input, TokenStream tokens) {
+        tokens.reset(input);
+        int i = -1;
+        while (hasToken(input, i + 1)) {
+            i = scan(input, i + 1, tokens);
+            if (i < 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether any character other than whitespace remains from index <code>from</code>.
+     */
+    private static boolean hasToken(CharSequence input, int from) {
+        for (int j = from; j < input.length(); j++) {
+            if (!Character.isWhitespace(input.charAt(j)))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Reads the first token at or after index <code>i</code>, and adds it to <code>tokens</code>.
+     *
+     * @return the index of the last character of the token,
+     * or <code>-1</code> if the input is invalid, in which case the error is set on <code>tokens</code>
+     */
+    private static int scan(CharSequence input, int i, TokenStream tokens) {
+
+        char c = input.charAt(i);
+        while (Character.isWhitespace(c))
+            c = input.charAt(++i);
+
+        if (!repTable.isAllowed(c)) {
+            return inputError(input, i, "Invalid character: " + c, tokens);
+        }
+
+        // Handle parentheses
+        else if (c == '(') {
+            tokens.add(TokenType.OPEN_PAREN, i, i + 1);
+            return i;
+        }
+        else if (c == ')') {
+            tokens.add(TokenType.CLOSE_PAREN, i, i + 1);
+            return i;
+        }
+
+        // Add identifier
+        else if (repTable.validIdentifierChar(c)) {
+            int start = i;
+            while (i < input.length() && repTable.validIdentifierChar(input.charAt(i)))
+                i++;
+
+            // If already a token, add that instead of an identifier
+            // For example 'T' would become a TRUE token instead of an identifier
+            TokenType otherTokenType = trie.match(input, start, i);
+            tokens.add(otherTokenType != null ? otherTokenType : TokenType.IDENTIFIER, start, i);
+            return i - 1;
+        }
+        // Non-identifier characters must be a miscellaneous token
+        else  { // Character.isLetterOrDigit(c) is false
+            // Follow the trie for as long as some representation continues with the next character
+            int start = i;
+            int state = TokenTrie.ROOT;
+            while (i < input.length()) {
+                c = input.charAt(i);
+                int next = trie.step(state, c);
+
+                if (next == TokenTrie.NONE) {
+                    if (i == start)
+                        return inputError(input, i, "Invalid character: '" + c + '\'', tokens);
+
+                    i--;
+                    TokenType correspondingType = trie.typeOf(state);
+                    if (correspondingType == null)
+                        return inputError(input, i, "Invalid sequence: \"" + input.subSequence(start, i + 1) + c + '\"', tokens);
+                    tokens.add(correspondingType, start, i + 1);
+                    return i;
+                }
+                state = next;
+                i++;
+            }
+            // Don't forget final token
+            TokenType correspondingType = trie.typeOf(state);
+            if (correspondingType == null)
+                return inputError(input, i, "Invalid sequence: \"" + input.subSequence(start, i) + c + '\"', tokens);
+            tokens.add(correspondingType, start, i);
+            return i - 1;
+        }
+    }
+
+    private static int inputError(CharSequence input, int index, String message, TokenStream tokens) {
+        tokens.setError(String.format("\n%s\n%" + (index + 1) + "s\n%s", input, "^", message));
+        return -1;
+    }
+
     private class LexerIterator implements Iterator<InterpretingResult<Token>> {
 
         private String input;
         private int i;
         private boolean errorEncountered;
+        // Holds the token being read, and the names of the identifiers read so far
+        private final TokenStream tokens = new TokenStream();
 
         /**
          * Instantiates a new Lexer iterator.
@@ -68,96 +184,21 @@ public class Lexer implements Iterable<InterpretingResult<Token>> {
         public boolean hasNext() {
             if (errorEncountered)
                 return false;
-            for (int j = i + 1; j < input.length(); j++) {
-                if (!Character.isWhitespace(input.charAt(j)))
-                    return true;
-            }
-            return false;
+            return hasToken(input, i + 1);
         }
     
         @Override
         public InterpretingResult<Token> next() {
-            InterpretingResult<Token> result = nextOutput();
-            if (result.value() == null)
+            tokens.reset(input);
+            i = scan(input, i + 1, tokens);
+            if (i < 0) {
                 errorEncountered = true;
-            return result;
-        }
-
-        private InterpretingResult<Token> nextOutput() {
-
-            char c;
-            do {
-                i++;
-                c = input.charAt(i);
-            } while (Character.isWhitespace(c));
-
-            if (!repTable.isAllowed(c)) {
-                return inputErrorResult(i, "Invalid character: " + c);
-            }
-    
-            // Handle parentheses
-            else if (c == '(')
-                return new InterpretingResult<>(new Token(TokenType.OPEN_PAREN), null);
-            else if (c == ')')
-                return new InterpretingResult<>(new Token(TokenType.CLOSE_PAREN), null);
-    
-            // Add identifier
-            else if (repTable.validIdentifierChar(c)) {
-                StringBuilder ident = new StringBuilder();
-                while (i < input.length() && repTable.validIdentifierChar(c = input.charAt(i))) {
-                    ident.append(c);
-                    i++;
-                }
-                i--;
-                String name = ident.toString();
-    
-                // If already a token, add that instead of an identifier
-                // For example 'T' would become a TRUE token instead of an identifier
-                TokenType otherTokenType = repTable.getTokenType(name);
-                if (otherTokenType != null)
-                    return new InterpretingResult<>(new Token(otherTokenType), null);
-                else
-                    return new InterpretingResult<>(new Token(TokenType.IDENTIFIER, name), null);
-            }
-            // Non-identifier characters must be a miscellaneous token
-            else  { // Character.isLetterOrDigit(c) is false
-                String buffer = "";
-                Set<TokenType> possible = new HashSet<>();
-                while (i < input.length()) {
-                    c = input.charAt(i);
-
-                    possible = repTable.getPossibleTokenTypes(buffer + c);
-
-                    if (possible.isEmpty()) {
-                        if (buffer.isEmpty())
-                            return inputErrorResult(i, "Invalid character: '" + c + '\'');
-
-                        i--;
-                        TokenType correspondingType = repTable.getTokenType(buffer);
-                        if (correspondingType != null)
-                            return new InterpretingResult<>(new Token(correspondingType), null);
-                        else
-                            return inputErrorResult(i, "Invalid sequence: \"" + buffer + c + '\"');
-                    }
-                    buffer += c;
-                    i++;
-                }
-                // Don't forget final token
-                if (possible.isEmpty()) {
-                    return inputErrorResult(i, "Invalid sequence: \"" + buffer + '\"');
-                } else {
-                    TokenType correspondingType = repTable.getTokenType(buffer);
-                    if (correspondingType != null)
-                        return new InterpretingResult<>(new Token(correspondingType), null);
-                    else {
-                        return inputErrorResult(i, "Invalid sequence: \"" + buffer + c + '\"');
-                    }
-                }
+                return new InterpretingResult<>(null, tokens.getError());
             }
-        }
-        
-        private InterpretingResult<Token> inputErrorResult(int index, String message) {
-            return new InterpretingResult<>(null, String.format("\n%s\n%" + (index + 1) + "s\n%s", input, "^", message));
+            TokenType type = tokens.type(0);
+            if (type == TokenType.IDENTIFIER)
+                return new InterpretingResult<>(new Token(type, tokens.identifierName(tokens.identifier(0))), null);
+            return new InterpretingResult<>(new Token(type), null);
         }
     }
 }
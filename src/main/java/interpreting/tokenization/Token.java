@@ -46,7 +46,7 @@ public class Token {
 
     /**
      * Returns <code>true</code> if the operator is left-associative,
-     * <code>false</code> if right-associaive.
+     * <code>false</code> if right-associative.
      *
      * @throws NullPointerException if called on a token that isn't a binary operator
      */
@@ -0,0 +1,126 @@
+package interpreting.tokenization;
+
+import java.util.Arrays;
+
+/**
+ * A sequence of tokens held in reusable primitive arrays, as an alternative to a sequence of {@link Token Tokens}.
+ * <p>
+ * Each token is stored as its type, and the offset and length of its text within the input it was read from,
+ * so no text is copied. Identifiers are also interned: each distinct name is given an id, which is the same
+ * every time the name appears in any input written to this stream.
+ * <p>
+ * Streams are filled by {@link Lexer#tokenize(CharSequence, TokenStream)}, and are meant to be reused for many inputs,
+ * so that once the arrays are large enough, tokenizing an input allocates nothing.
+ * Instances are mutable and should not be shared between threads.
+ */
+public class TokenStream {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private final IdentifierTable identifiers = new IdentifierTable();
+    private CharSequence input = "";
+    private int size = 0;
+    private int[] types = new int[INITIAL_CAPACITY];
+    private int[] starts = new int[INITIAL_CAPACITY];
+    private int[] lengths = new int[INITIAL_CAPACITY];
+    // The interned id of each identifier, or -1 for other tokens
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private String error;
+
+    /**
+     * Returns the input the tokens were read from.
+     */
+    public CharSequence getInput() {
+        return input;
+    }
+
+    /**
+     * Returns the number of tokens read.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the type of token <code>index</code>.
+     */
+    public TokenType type(int index) {
+        return TYPES[types[index]];
+    }
+
+    /**
+     * Returns the offset within the input of token <code>index</code>.
+     */
+    public int start(int index) {
+        return starts[index];
+    }
+
+    /**
+     * Returns the length of the text of token <code>index</code>.
+     */
+    public int length(int index) {
+        return lengths[index];
+    }
+
+    /**
+     * Returns the id of identifier <code>index</code>, or <code>-1</code> if the token is not an identifier.
+     */
+    public int identifier(int index) {
+        return ids[index];
+    }
+
+    /**
+     * Returns the name of the identifier with the given id.
+     */
+    public String identifierName(int id) {
+        return identifiers.name(id);
+    }
+
+    /**
+     * Returns the number of distinct identifiers seen, which is one more than the largest id.
+     */
+    public int identifierCount() {
+        return identifiers.size();
+    }
+
+    /**
+     * Returns the message describing why the input could not be read past the last token,
+     * or <code>null</code> if the whole input was read.
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * Removes every token and any error, and sets the input for the tokens that follow.
+     * Identifier ids are kept.
+     */
+    void reset(CharSequence input) {
+        this.input = input;
+        size = 0;
+        error = null;
+    }
+
+    /**
+     * Adds a token whose text is <code>input[start, end)</code>, interning it if it is an identifier.
+     */
+    void add(TokenType type, int start, int end) {
+        if (size == types.length) {
+            int capacity = size * 2;
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+        }
+        types[size] = type.ordinal();
+        starts[size] = start;
+        lengths[size] = end - start;
+        ids[size] = type == TokenType.IDENTIFIER ? identifiers.intern(input, start, end) : -1;
+        size++;
+    }
+
+    void setError(String error) {
+        this.error = error;
+    }
+}
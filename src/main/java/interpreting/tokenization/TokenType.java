@@ -27,4 +27,19 @@ public enum TokenType {
     int getCategory() {
         return category;
     }
+
+    /**
+     * Returns a numerical representation of the operator's precedence.
+     *
+     * @throws NullPointerException if called on a type that isn't an operator
+     */
+    public int precedence() throws NullPointerException {return precedence;}
+
+    /**
+     * Returns <code>true</code> if the operator is left-associative,
+     * <code>false</code> if right-associative.
+     *
+     * @throws NullPointerException if called on a type that isn't a binary operator
+     */
+    public boolean leftAssociative() throws NullPointerException {return leftAssociative;}
 }
\ No newline at end of file
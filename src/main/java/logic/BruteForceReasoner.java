@@ -1,78 +1,491 @@
 package logic;
 
 import common.PropositionEntry;
-import common.operators.BinaryOperator;
 import common.propositions.AtomicProposition;
-import common.propositions.BinaryProposition;
-import common.propositions.Proposition;
+import logic.evaluation.EvaluationProgram;
+import logic.evaluation.IncrementalEvaluator;
+import logic.evaluation.PropositionCompiler;
 
 import java.util.*;
 
 /**
  * An implementation of the {@link Reasoner} interface that, to draw conclusions,
  * considers every combination of truth values for all atomic propositions.
+ * <p>
+ * Propositions are evaluated through their compiled {@link EvaluationProgram EvaluationPrograms}
+ * rather than by walking each tree, either one combination at a time,
+ * 64 combinations at a time, or incrementally in Gray-code order (see {@link EvaluationMode}).
  */
 public class BruteForceReasoner implements Reasoner {
 
+    /**
+     * The largest number of atomics whose combinations can be counted with a <code>long</code>.
+     */
+    static final int MAX_ATOMICS = Long.SIZE - 2;
+
+    /**
+     * One less than the number of blocks of 64 combinations between checks of the budget.
+     */
+    static final long CHECK_MASK = (1 << 10) - 1;
+    /**
+     * One less than the number of combinations between checks of the budget, when they are visited one at a time.
+     */
+    private static final long ROW_CHECK_MASK = (1 << 16) - 1;
+
+    /**
+     * The ways a {@link BruteForceReasoner} can step through combinations of truth values.
+     */
+    public enum EvaluationMode {
+        /**
+         * Evaluates one combination per pass.
+         */
+        SCALAR,
+        /**
+         * Evaluates 64 combinations per pass, with each atomic's values packed into the bits of a <code>long</code>.
+         */
+        BIT_SLICED,
+        /**
+         * Visits combinations in Gray-code order, so that exactly one atomic changes per step,
+         * and only re-evaluates the parts of each proposition that depend on that atomic.
+         * <p>
+         * This is most effective for wide propositions where each atomic only appears in a small part of the tree.
+         *
+         * @see IncrementalEvaluator
+         */
+        GRAY_CODE
+    }
+
+    private final EvaluationMode mode;
+
+    /**
+     * Instantiates a new BruteForceReasoner using {@link EvaluationMode#BIT_SLICED bit-sliced} evaluation.
+     */
+    public BruteForceReasoner() {
+        this(EvaluationMode.BIT_SLICED);
+    }
+
+    /**
+     * Instantiates a new BruteForceReasoner.
+     *
+     * @param mode how combinations are evaluated
+     */
+    public BruteForceReasoner(EvaluationMode mode) {
+        this.mode = mode;
+    }
+
     @Override
     public Boolean areEqual(PropositionEntry p1, PropositionEntry p2) {
+        return checkEquality(p1, p2).value();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * {@link #areEqual} always splits questions this way.
+     */
+    @Override
+    public ReasoningResult checkEquality(PropositionEntry p1, PropositionEntry p2) {
+        return checkEquality(p1, p2, ReasoningBudget.unlimited());
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The budget is checked, and progress reported in rows of the truth table, every 65536 combinations.
+     */
+    @Override
+    public ReasoningResult checkEquality(PropositionEntry p1, PropositionEntry p2, ReasoningBudget budget) {
+        try {
+            return ComponentReduction.checkEquality(p1, p2,
+                    (p, q) -> enumerateEqual(p, q, budget),
+                    (conclusion, premises) -> enumerateValid(conclusion, premises, budget));
+        } catch (BudgetExhaustedException e) {
+            return ReasoningResult.unknown(e.getReason());
+        }
+    }
+
+    private ReasoningResult enumerateEqual(PropositionEntry p1, PropositionEntry p2, ReasoningBudget budget) {
+        EvaluationProgram p = PropositionCompiler.compile(p1);
+        EvaluationProgram q = PropositionCompiler.compile(p2);
+
         // Get list of all atomics with no duplicates
-        Set<AtomicProposition> allAtomics = p1.atomics();
-        allAtomics.addAll(p2.atomics());
-        List<AtomicProposition> atomicsList = new ArrayList<>(allAtomics);
+        List<AtomicProposition> atomicsList = unionOfAtomics(List.of(p, q));
+        if (atomicsList.size() > MAX_ATOMICS)
+            return new ReasoningResult(null, null);
+        p = p.bind(atomicsList);
+        q = q.bind(atomicsList);
 
-        Proposition p = p1.proposition();
-        Proposition q = p2.proposition();
+        return switch (mode) {
+            case SCALAR -> scalarEqual(p, q, atomicsList, budget);
+            case BIT_SLICED -> bitSlicedEqual(p, q, atomicsList, budget);
+            case GRAY_CODE -> grayCodeEqual(p, q, atomicsList, budget);
+        };
+    }
+
+    private static ReasoningResult scalarEqual(EvaluationProgram p, EvaluationProgram q,
+                                               List<AtomicProposition> atomicsList, ReasoningBudget budget) {
+        boolean[] pRegisters = p.newRegisters();
+        boolean[] qRegisters = q.newRegisters();
 
         // Check every combination to see if they are equal
         long numCombinations = 1L << atomicsList.size();
-        if (numCombinations < atomicsList.size()) {
-            return null;
-        }
         for (long comb = numCombinations - 1; comb >= 0; comb--) {
-            for (int i = atomicsList.size() - 1; i >= 0; i--) {
-                boolean val = (comb >> i) % 2 == 1;
-                atomicsList.get(i).setValue(val);
-            }
-            if (p.evaluate() != q.evaluate())
-                return false;
+            if ((comb & ROW_CHECK_MASK) == 0)
+                budget.checkpoint(numCombinations - 1 - comb, numCombinations);
+            if (p.evaluate(comb, pRegisters) != q.evaluate(comb, qRegisters))
+                return counterexample(atomicsList, comb, numCombinations - comb);
+        }
+        return ReasoningResult.enumerated(null, numCombinations);
+    }
+
+    private static ReasoningResult bitSlicedEqual(EvaluationProgram p, EvaluationProgram q,
+                                                  List<AtomicProposition> atomicsList, ReasoningBudget budget) {
+        int numAtomics = atomicsList.size();
+        long[] pRegisters = p.newLaneRegisters();
+        long[] qRegisters = q.newLaneRegisters();
+        long[] lanes = new long[numAtomics];
+        long validLanes = EvaluationProgram.validLanes(numAtomics);
+
+        // Check every block of 64 combinations to see if they are equal
+        long blockCount = EvaluationProgram.blockCount(numAtomics);
+        for (long block = blockCount - 1; block >= 0; block--) {
+            if ((block & CHECK_MASK) == 0)
+                checkpoint(budget, blockCount - 1 - block, numAtomics);
+            EvaluationProgram.fillLanes(block, lanes);
+            long unequal = unequalLanes(p, q, lanes, pRegisters, qRegisters, validLanes);
+            if (unequal != 0)
+                return counterexample(atomicsList, block, unequal, blockCount);
+        }
+        return ReasoningResult.enumerated(null, 1L << numAtomics);
+    }
+
+    /**
+     * Returns the lanes of a block in which <code>p</code> and <code>q</code> have different truth values.
+     */
+    static long unequalLanes(EvaluationProgram p, EvaluationProgram q, long[] lanes,
+                             long[] pRegisters, long[] qRegisters, long validLanes) {
+        return (p.evaluateLanes(lanes, pRegisters) ^ q.evaluateLanes(lanes, qRegisters)) & validLanes;
+    }
+
+    private static ReasoningResult grayCodeEqual(EvaluationProgram p, EvaluationProgram q,
+                                                 List<AtomicProposition> atomicsList, ReasoningBudget budget) {
+        int numAtomics = atomicsList.size();
+        IncrementalEvaluator pEvaluator = new IncrementalEvaluator(p);
+        IncrementalEvaluator qEvaluator = new IncrementalEvaluator(q);
+        long allTrue = (1L << numAtomics) - 1;
+        pEvaluator.reset(allTrue);
+        qEvaluator.reset(allTrue);
+        if (pEvaluator.value() != qEvaluator.value())
+            return counterexample(atomicsList, allTrue, 1);
+
+        // Step k of a Gray code flips the lowest set bit of k
+        long numCombinations = 1L << numAtomics;
+        long row = allTrue;
+        for (long step = 1; step < numCombinations; step++) {
+            if ((step & ROW_CHECK_MASK) == 0)
+                budget.checkpoint(step, numCombinations);
+            int atomic = Long.numberOfTrailingZeros(step);
+            row ^= 1L << atomic;
+            pEvaluator.flip(atomic);
+            qEvaluator.flip(atomic);
+            if (pEvaluator.value() != qEvaluator.value())
+                return counterexample(atomicsList, row, step + 1);
         }
-        return true;
+        return ReasoningResult.enumerated(null, numCombinations);
     }
 
     @Override
     public Boolean isArgumentValid(PropositionEntry conclusion, Collection<PropositionEntry> premises) {
+        return checkValidity(conclusion, premises).value();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * {@link #isArgumentValid} always splits questions this way.
+     */
+    @Override
+    public ReasoningResult checkValidity(PropositionEntry conclusion, Collection<PropositionEntry> premises) {
+        return checkValidity(conclusion, premises, ReasoningBudget.unlimited());
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The budget is checked, and progress reported in rows of the truth table, every 65536 combinations.
+     */
+    @Override
+    public ReasoningResult checkValidity(PropositionEntry conclusion, Collection<PropositionEntry> premises,
+                                         ReasoningBudget budget) {
+        try {
+            return ComponentReduction.checkValidity(conclusion, premises, (c, p) -> enumerateValid(c, p, budget));
+        } catch (BudgetExhaustedException e) {
+            return ReasoningResult.unknown(e.getReason());
+        }
+    }
+
+    private ReasoningResult enumerateValid(PropositionEntry conclusion, Collection<PropositionEntry> premises,
+                                           ReasoningBudget budget) {
         if (premises.isEmpty())
-            return null;
+            return new ReasoningResult(null, null);
+
+        List<EvaluationProgram> programs = argumentPrograms(conclusion, premises);
 
         // Get list of all relevant atomics with no duplicates
-        Set<AtomicProposition> allAtomics = conclusion.atomics();
-        for (PropositionEntry entry: premises)
-            allAtomics.addAll(entry.atomics());
-        List<AtomicProposition> atomicsList = new ArrayList<>(allAtomics);
+        List<AtomicProposition> atomicsList = unionOfAtomics(programs);
+        if (atomicsList.size() > MAX_ATOMICS)
+            return new ReasoningResult(null, null);
+        EvaluationProgram[] bound = bindAll(programs, atomicsList);
 
-        // Get conjunction of all premises
-        Iterator<PropositionEntry> premiseIterator = premises.iterator();
-        Proposition conjunction = premiseIterator.next().proposition();
-        while (premiseIterator.hasNext())
-            conjunction = new BinaryProposition(conjunction, premiseIterator.next().proposition(), BinaryOperator.AND);
+        return switch (mode) {
+            case SCALAR -> scalarValid(bound, atomicsList, budget);
+            case BIT_SLICED -> bitSlicedValid(bound, atomicsList, budget);
+            case GRAY_CODE -> grayCodeValid(bound, atomicsList, budget);
+        };
+    }
 
-        Proposition conclusionProp = conclusion.proposition();
+    /**
+     * {@inheritDoc}
+     * <p>
+     * With {@link EvaluationMode#BIT_SLICED bit-sliced} evaluation, every conclusion is checked in one shared sweep:
+     * the premises are evaluated once per block of 64 combinations, and each conclusion only in the rows where
+     * every premise is true. A conclusion is dropped from the sweep as soon as a counterexample refutes it,
+     * and the sweep ends early once every conclusion has been refuted.
+     */
+    @Override
+    public List<Boolean> areArgumentsValid(List<PropositionEntry> conclusions, Collection<PropositionEntry> premises) {
+        if (mode != EvaluationMode.BIT_SLICED || premises.isEmpty())
+            return Reasoner.super.areArgumentsValid(conclusions, premises);
 
-        // Check every combination to see if they are equal
-        long numCombinations = 1L << atomicsList.size();
-        if (numCombinations < atomicsList.size()) {
-            return null;
+        List<EvaluationProgram> programs = new ArrayList<>(premises.size() + conclusions.size());
+        for (PropositionEntry premise: premises)
+            programs.add(PropositionCompiler.compile(premise));
+        for (PropositionEntry conclusion: conclusions)
+            programs.add(PropositionCompiler.compile(conclusion));
+
+        List<AtomicProposition> atomicsList = unionOfAtomics(programs);
+        if (atomicsList.size() > MAX_ATOMICS)
+            return Reasoner.super.areArgumentsValid(conclusions, premises);
+        EvaluationProgram[] bound = bindAll(programs, atomicsList);
+        EvaluationProgram[] premisePrograms = Arrays.copyOfRange(bound, 0, premises.size());
+        EvaluationProgram[] conclusionPrograms = Arrays.copyOfRange(bound, premises.size(), bound.length);
+
+        boolean[] valid = sweepArguments(premisePrograms, conclusionPrograms, atomicsList.size());
+        List<Boolean> results = new ArrayList<>(valid.length);
+        for (boolean v: valid)
+            results.add(v);
+        return results;
+    }
+
+    /**
+     * Checks every conclusion against the same premises in one pass over all combinations.
+     *
+     * @return whether each conclusion follows from the premises
+     */
+    private static boolean[] sweepArguments(EvaluationProgram[] premises, EvaluationProgram[] conclusions, int numAtomics) {
+        long[][] premiseRegisters = new long[premises.length][];
+        for (int i = 0; i < premises.length; i++)
+            premiseRegisters[i] = premises[i].newLaneRegisters();
+        long[][] conclusionRegisters = new long[conclusions.length][];
+        for (int i = 0; i < conclusions.length; i++)
+            conclusionRegisters[i] = conclusions[i].newLaneRegisters();
+        long[] lanes = new long[numAtomics];
+        long validLanes = EvaluationProgram.validLanes(numAtomics);
+
+        boolean[] valid = new boolean[conclusions.length];
+        Arrays.fill(valid, true);
+        // Indices of the conclusions not yet refuted, of which the first liveCount are live
+        int[] live = new int[conclusions.length];
+        for (int i = 0; i < live.length; i++)
+            live[i] = i;
+        int liveCount = live.length;
+
+        for (long block = EvaluationProgram.blockCount(numAtomics) - 1; block >= 0 && liveCount > 0; block--) {
+            EvaluationProgram.fillLanes(block, lanes);
+            long models = validLanes;
+            for (int i = 0; i < premises.length && models != 0; i++)
+                models &= premises[i].evaluateLanes(lanes, premiseRegisters[i]);
+            if (models == 0)
+                continue;
+
+            for (int j = 0; j < liveCount; ) {
+                int c = live[j];
+                if ((models & ~conclusions[c].evaluateLanes(lanes, conclusionRegisters[c])) != 0) {
+                    valid[c] = false;
+                    live[j] = live[--liveCount];
+                }
+                else
+                    j++;
+            }
         }
+        return valid;
+    }
+
+    /**
+     * @param programs the conclusion followed by each premise
+     */
+    private static ReasoningResult scalarValid(EvaluationProgram[] programs, List<AtomicProposition> atomicsList,
+                                               ReasoningBudget budget) {
+        boolean[][] registers = new boolean[programs.length][];
+        for (int i = 0; i < programs.length; i++)
+            registers[i] = programs[i].newRegisters();
+
+        long numCombinations = 1L << atomicsList.size();
+        combinations:
         for (long comb = numCombinations - 1; comb >= 0; comb--) {
-            for (int i = atomicsList.size() - 1; i >= 0; i--) {
-                boolean val = (comb >> i) % 2 == 1;
-                atomicsList.get(i).setValue(val);
+            if ((comb & ROW_CHECK_MASK) == 0)
+                budget.checkpoint(numCombinations - 1 - comb, numCombinations);
+            if (programs[0].evaluate(comb, registers[0]))
+                continue;
+            // The conclusion is false, so any false premise means (conjunction -> conclusion) still holds
+            for (int i = 1; i < programs.length; i++) {
+                if (!programs[i].evaluate(comb, registers[i]))
+                    continue combinations;
             }
-            // If (conjunction -> conclusion) evaluates to false
-            if (!conclusionProp.evaluate() && conjunction.evaluate())
-                return false;
+            return counterexample(atomicsList, comb, numCombinations - comb);
         }
-        return true;
+        return ReasoningResult.enumerated(null, numCombinations);
+    }
+
+    /**
+     * @param programs the conclusion followed by each premise
+     */
+    private static ReasoningResult bitSlicedValid(EvaluationProgram[] programs, List<AtomicProposition> atomicsList,
+                                                  ReasoningBudget budget) {
+        int numAtomics = atomicsList.size();
+        long[][] registers = new long[programs.length][];
+        for (int i = 0; i < programs.length; i++)
+            registers[i] = programs[i].newLaneRegisters();
+        long[] lanes = new long[numAtomics];
+        long validLanes = EvaluationProgram.validLanes(numAtomics);
+
+        long blockCount = EvaluationProgram.blockCount(numAtomics);
+        for (long block = blockCount - 1; block >= 0; block--) {
+            if ((block & CHECK_MASK) == 0)
+                checkpoint(budget, blockCount - 1 - block, numAtomics);
+            EvaluationProgram.fillLanes(block, lanes);
+            long counterexamples = counterexampleLanes(programs, lanes, registers, validLanes);
+            if (counterexamples != 0)
+                return counterexample(atomicsList, block, counterexamples, blockCount);
+        }
+        return ReasoningResult.enumerated(null, 1L << numAtomics);
+    }
+
+    /**
+     * @param programs the conclusion followed by each premise
+     */
+    private static ReasoningResult grayCodeValid(EvaluationProgram[] programs, List<AtomicProposition> atomicsList,
+                                                 ReasoningBudget budget) {
+        int numAtomics = atomicsList.size();
+        IncrementalEvaluator[] evaluators = new IncrementalEvaluator[programs.length];
+        long allTrue = (1L << numAtomics) - 1;
+        int falsePremises = 0;
+        for (int i = 0; i < programs.length; i++) {
+            evaluators[i] = new IncrementalEvaluator(programs[i]);
+            evaluators[i].reset(allTrue);
+            if (i > 0 && !evaluators[i].value())
+                falsePremises++;
+        }
+        IncrementalEvaluator conclusion = evaluators[0];
+        if (!conclusion.value() && falsePremises == 0)
+            return counterexample(atomicsList, allTrue, 1);
+
+        long numCombinations = 1L << numAtomics;
+        long row = allTrue;
+        for (long step = 1; step < numCombinations; step++) {
+            if ((step & ROW_CHECK_MASK) == 0)
+                budget.checkpoint(step, numCombinations);
+            int atomic = Long.numberOfTrailingZeros(step);
+            row ^= 1L << atomic;
+            conclusion.flip(atomic);
+            // Only premises whose value changed affect the count of false premises
+            for (int i = 1; i < evaluators.length; i++) {
+                if (evaluators[i].flip(atomic))
+                    falsePremises += evaluators[i].value() ? -1 : 1;
+            }
+            if (!conclusion.value() && falsePremises == 0)
+                return counterexample(atomicsList, row, step + 1);
+        }
+        return ReasoningResult.enumerated(null, numCombinations);
+    }
+
+    /**
+     * Returns the result of finding a counterexample in a row of the truth table,
+     * after checking <code>rowsChecked</code> rows.
+     */
+    static ReasoningResult counterexample(List<AtomicProposition> atomicsList, long row, long rowsChecked) {
+        Map<AtomicProposition, Boolean> assignment = new LinkedHashMap<>();
+        for (int i = 0; i < atomicsList.size(); i++)
+            assignment.put(atomicsList.get(i), (row >>> i & 1) != 0);
+        return ReasoningResult.enumerated(assignment, rowsChecked);
+    }
+
+    /**
+     * Returns the result of finding counterexamples in some lanes of a block, while blocks are visited downwards,
+     * choosing the highest row among them, since it would have been found first one row at a time.
+     */
+    static ReasoningResult counterexample(List<AtomicProposition> atomicsList, long block, long lanes, long blockCount) {
+        long row = block * EvaluationProgram.LANES + (Long.SIZE - 1 - Long.numberOfLeadingZeros(lanes));
+        long rows = 1L << atomicsList.size();
+        return counterexample(atomicsList, row, Math.min(rows, (blockCount - block) * EvaluationProgram.LANES));
+    }
+
+    /**
+     * Checks the budget and reports progress in rows, after <code>blocks</code> blocks of 64 combinations.
+     */
+    static void checkpoint(ReasoningBudget budget, long blocks, int numAtomics) {
+        long rows = 1L << numAtomics;
+        budget.checkpoint(Math.min(rows, blocks * EvaluationProgram.LANES), rows);
+    }
+
+    /**
+     * Returns the lanes of a block in which every premise is true and the conclusion is false.
+     *
+     * @param programs the conclusion followed by each premise
+     */
+    static long counterexampleLanes(EvaluationProgram[] programs, long[] lanes, long[][] registers, long validLanes) {
+        // Lanes where the conclusion is false; premises are only evaluated while any remain
+        long counterexamples = ~programs[0].evaluateLanes(lanes, registers[0]) & validLanes;
+        for (int i = 1; i < programs.length && counterexamples != 0; i++)
+            counterexamples &= programs[i].evaluateLanes(lanes, registers[i]);
+        return counterexamples;
+    }
+
+    /**
+     * Returns every atomic read by any of the programs, without duplicates, in order of first appearance.
+     */
+    static List<AtomicProposition> unionOfAtomics(Collection<EvaluationProgram> programs) {
+        Set<AtomicProposition> allAtomics = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<AtomicProposition> atomicsList = new ArrayList<>();
+        for (EvaluationProgram program: programs) {
+            for (AtomicProposition a: program.atomics()) {
+                if (allAtomics.add(a))
+                    atomicsList.add(a);
+            }
+        }
+        return atomicsList;
+    }
+
+    /**
+     * Returns the compiled conclusion followed by each compiled premise.
+     */
+    static List<EvaluationProgram> argumentPrograms(PropositionEntry conclusion, Collection<PropositionEntry> premises) {
+        List<EvaluationProgram> programs = new ArrayList<>(premises.size() + 1);
+        programs.add(PropositionCompiler.compile(conclusion));
+        for (PropositionEntry entry: premises)
+            programs.add(PropositionCompiler.compile(entry));
+        return programs;
+    }
+
+    /**
+     * Binds every program to one shared order of atomics.
+     *
+     * @see EvaluationProgram#bind(List)
+     */
+    static EvaluationProgram[] bindAll(List<EvaluationProgram> programs, List<AtomicProposition> atomicsList) {
+        EvaluationProgram[] bound = new EvaluationProgram[programs.size()];
+        for (int i = 0; i < bound.length; i++)
+            bound[i] = programs.get(i).bind(atomicsList);
+        return bound;
     }
 }
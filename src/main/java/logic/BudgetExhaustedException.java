@@ -0,0 +1,31 @@
+package logic;
+
+/**
+ * Thrown from deep within a reasoner when its {@link ReasoningBudget} is cancelled or past its deadline.
+ * <p>
+ * Reasoners catch this exception themselves and return an {@link Verdict#UNKNOWN unknown} result,
+ * so it only needs to be handled when using engines such as {@link logic.sat.SatSolver} directly.
+ */
+public class BudgetExhaustedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final UnknownReason reason;
+
+    /**
+     * Instantiates a new exception.
+     *
+     * @param reason why the budget is exhausted
+     */
+    public BudgetExhaustedException(UnknownReason reason) {
+        super("Reasoning budget exhausted: " + reason);
+        this.reason = reason;
+    }
+
+    /**
+     * Returns why the budget is exhausted.
+     */
+    public UnknownReason getReason() {
+        return reason;
+    }
+}
@@ -0,0 +1,417 @@
+package logic;
+
+import common.PropositionEntry;
+import common.propositions.AtomicProposition;
+import common.propositions.BinaryProposition;
+import common.propositions.Proposition;
+import common.propositions.UnaryProposition;
+
+import java.util.*;
+
+/**
+ * A {@link Reasoner} that remembers the answers of another reasoner.
+ * <p>
+ * Questions are keyed on a canonical fingerprint of their propositions rather than on the instances themselves:
+ * every structurally distinct proposition is given an id, with the operands of commutative operators
+ * (AND, OR and BICONDITIONAL) taken in a fixed order, and the premises of an argument are treated as a set.
+ * Equality questions are also symmetric, so <code>areEqual(p, q)</code> answers a later <code>areEqual(q, p)</code>.
+ * <p>
+ * Answers are evicted in least-recently-used order once the total weight of the cache passes its limit,
+ * where the weight of an answer is the number of nodes in the propositions of its question,
+ * counting a shared subformula again everywhere it appears. An answer heavier than the limit is not cached.
+ * The fingerprint tables are bounded separately: once {@value #MAX_FINGERPRINTS} distinct structures have been
+ * fingerprinted, every id and answer is forgotten.
+ * <code>null</code> answers are never cached.
+ * <p>
+ * Methods may be called by several threads at once, as long as the wrapped reasoner allows it.
+ */
+public class CachingReasoner implements Reasoner {
+
+    /**
+     * The default limit on the total weight of cached answers, in nodes.
+     */
+    public static final long DEFAULT_MAX_WEIGHT = 1 << 20;
+
+    /**
+     * The number of distinct structures fingerprinted before every id is forgotten, to bound memory.
+     */
+    static final int MAX_FINGERPRINTS = 1 << 20;
+
+    private static final int TRUE_ID = 0;
+    private static final int FALSE_ID = 1;
+
+    private static final int EQUALITY = 0;
+    private static final int VALIDITY = 1;
+
+    private final Reasoner delegate;
+    private final long maxWeight;
+
+    // Answers, in access order so that the eldest entry is the least recently used
+    private final LinkedHashMap<Question, Boolean> answers = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight = 0;
+
+    // Fingerprints: ids of atomics, of structures, and of proposition instances already fingerprinted
+    private final Map<AtomicProposition, Integer> atomicIds = new WeakHashMap<>();
+    private final Map<Structure, Integer> structureIds = new HashMap<>();
+    private final Map<Proposition, Integer> propositionIds = new WeakHashMap<>();
+    private int nextId = FALSE_ID + 1;
+    // The number of nodes in the proposition with each id
+    private long[] nodeCounts = initialNodeCounts();
+    // Incremented whenever ids are forgotten, so that answers computed under older ids are not stored
+    private int generation = 0;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * Instantiates a new CachingReasoner with a total weight limit of {@link #DEFAULT_MAX_WEIGHT}.
+     *
+     * @param delegate the reasoner whose answers are cached
+     */
+    public CachingReasoner(Reasoner delegate) {
+        this(delegate, DEFAULT_MAX_WEIGHT);
+    }
+
+    /**
+     * Instantiates a new CachingReasoner.
+     *
+     * @param delegate the reasoner whose answers are cached
+     * @param maxWeight the largest total weight of cached answers, counting every node of every proposition
+     *                  in each question
+     */
+    public CachingReasoner(Reasoner delegate, long maxWeight) {
+        this.delegate = delegate;
+        this.maxWeight = maxWeight;
+    }
+
+    @Override
+    public Boolean areEqual(PropositionEntry p1, PropositionEntry p2) {
+        Question question = equalityQuestion(p1, p2);
+        Boolean cached = lookup(question);
+        if (cached != null)
+            return cached;
+        Boolean result = delegate.areEqual(p1, p2);
+        store(question, result);
+        return result;
+    }
+
+    @Override
+    public Boolean isArgumentValid(PropositionEntry conclusion, Collection<PropositionEntry> premises) {
+        Question question = validityQuestion(conclusion, premises);
+        Boolean cached = lookup(question);
+        if (cached != null)
+            return cached;
+        Boolean result = delegate.isArgumentValid(conclusion, premises);
+        store(question, result);
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The question is decided as a whole instead, so that on a cache miss
+     * the counterexample of the wrapped reasoner is returned.
+     */
+    @Override
+    public ReasoningResult checkEquality(PropositionEntry p1, PropositionEntry p2) {
+        return checkEquality(p1, p2, ReasoningBudget.unlimited());
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The question is decided as a whole instead, so that on a cache miss
+     * the counterexample of the wrapped reasoner is returned.
+     */
+    @Override
+    public ReasoningResult checkValidity(PropositionEntry conclusion, Collection<PropositionEntry> premises) {
+        return checkValidity(conclusion, premises, ReasoningBudget.unlimited());
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Cached answers are returned without a {@link ReasoningResult#reduction() reduction} or counterexample;
+     * otherwise the question and budget are passed on to the wrapped reasoner.
+     */
+    @Override
+    public ReasoningResult checkEquality(PropositionEntry p1, PropositionEntry p2, ReasoningBudget budget) {
+        Question question = equalityQuestion(p1, p2);
+        Boolean cached = lookup(question);
+        if (cached != null)
+            return new ReasoningResult(cached, null);
+        ReasoningResult result = delegate.checkEquality(p1, p2, budget);
+        store(question, result.value());
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Cached answers are returned without a {@link ReasoningResult#reduction() reduction} or counterexample;
+     * otherwise the question and budget are passed on to the wrapped reasoner.
+     */
+    @Override
+    public ReasoningResult checkValidity(PropositionEntry conclusion, Collection<PropositionEntry> premises,
+                                         ReasoningBudget budget) {
+        Question question = validityQuestion(conclusion, premises);
+        Boolean cached = lookup(question);
+        if (cached != null)
+            return new ReasoningResult(cached, null);
+        ReasoningResult result = delegate.checkValidity(conclusion, premises, budget);
+        store(question, result.value());
+        return result;
+    }
+
+    /**
+     * Returns the number of questions answered from the cache.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of questions passed on to the wrapped reasoner.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of answers evicted to stay within the weight limit.
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Returns the number of cached answers.
+     */
+    public synchronized int size() {
+        return answers.size();
+    }
+
+    /**
+     * Returns the total weight of cached answers.
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    /**
+     * Forgets every cached answer and fingerprint, without resetting the statistics.
+     */
+    public synchronized void clear() {
+        generation++;
+        answers.clear();
+        weight = 0;
+        atomicIds.clear();
+        structureIds.clear();
+        propositionIds.clear();
+        nextId = FALSE_ID + 1;
+        nodeCounts = initialNodeCounts();
+    }
+
+    private synchronized Question equalityQuestion(PropositionEntry p1, PropositionEntry p2) {
+        int start = generation;
+        int a = fingerprint(p1.proposition());
+        int b = fingerprint(p2.proposition());
+        int[] ids = {Math.min(a, b), Math.max(a, b)};
+        return new Question(EQUALITY, ids, weightOf(ids, start), start);
+    }
+
+    private synchronized Question validityQuestion(PropositionEntry conclusion, Collection<PropositionEntry> premises) {
+        int start = generation;
+        // The conclusion comes first, followed by the distinct premises in ascending order
+        int[] ids = new int[premises.size() + 1];
+        ids[0] = fingerprint(conclusion.proposition());
+        int size = 1;
+        for (PropositionEntry premise: premises)
+            ids[size++] = fingerprint(premise.proposition());
+        Arrays.sort(ids, 1, size);
+        int distinct = Math.min(size, 2);
+        for (int i = 2; i < size; i++) {
+            if (ids[i] != ids[distinct - 1])
+                ids[distinct++] = ids[i];
+        }
+        ids = Arrays.copyOf(ids, distinct);
+        return new Question(VALIDITY, ids, weightOf(ids, start), start);
+    }
+
+    /**
+     * Returns the cached answer to a question, or <code>null</code> if there is none
+     * or its ids have been forgotten since it was fingerprinted.
+     */
+    private synchronized Boolean lookup(Question question) {
+        if (question.generation != generation)
+            return null;
+        Boolean cached = answers.get(question);
+        if (cached != null)
+            hits++;
+        else
+            misses++;
+        return cached;
+    }
+
+    private synchronized void store(Question question, Boolean result) {
+        // Ids may have been forgotten and reassigned while the wrapped reasoner was working
+        if (result == null || question.generation != generation || question.weight > maxWeight)
+            return;
+        if (answers.put(question, result) == null)
+            weight += question.weight;
+
+        Iterator<Map.Entry<Question, Boolean>> eldest = answers.entrySet().iterator();
+        while (weight > maxWeight && eldest.hasNext()) {
+            Question evicted = eldest.next().getKey();
+            eldest.remove();
+            weight -= evicted.weight;
+            evictions++;
+        }
+    }
+
+    /**
+     * Returns the id of the structure of a proposition, assigning ids to it and to its subformulas as needed.
+     * <p>
+     * Subformulas are visited with an explicit stack, so arbitrarily deep propositions are supported.
+     */
+    private int fingerprint(Proposition root) {
+        Integer known = propositionIds.get(root);
+        if (known != null)
+            return known;
+        if (structureIds.size() >= MAX_FINGERPRINTS) {
+            evictions += answers.size();
+            clear();
+        }
+
+        Deque<Proposition> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Proposition proposition = stack.peek();
+            if (propositionIds.containsKey(proposition)) {
+                stack.pop();
+                continue;
+            }
+
+            if (proposition instanceof AtomicProposition atomic) {
+                stack.pop();
+                propositionIds.put(atomic, atomicId(atomic));
+            }
+            else if (proposition instanceof UnaryProposition unary) {
+                Integer operand = propositionIds.get(unary.getProposition());
+                if (operand == null) {
+                    stack.push(unary.getProposition());
+                    continue;
+                }
+                stack.pop();
+                propositionIds.put(unary, structureId(new Structure(unary.getOperator(), operand, -1),
+                        1 + nodeCounts[operand]));
+            }
+            else if (proposition instanceof BinaryProposition binary) {
+                Integer left = propositionIds.get(binary.getLeftProposition());
+                Integer right = propositionIds.get(binary.getRightProposition());
+                if (left == null || right == null) {
+                    if (left == null)
+                        stack.push(binary.getLeftProposition());
+                    if (right == null)
+                        stack.push(binary.getRightProposition());
+                    continue;
+                }
+                stack.pop();
+                Structure structure = switch (binary.getOperator()) {
+                    // Commutative operators take their operands in ascending order of id
+                    case AND, OR, BICONDITIONAL -> new Structure(binary.getOperator(),
+                            Math.min(left, right), Math.max(left, right));
+                    case IMPLY -> new Structure(binary.getOperator(), left, right);
+                };
+                propositionIds.put(binary, structureId(structure,
+                        saturatedSum(1 + nodeCounts[left], nodeCounts[right])));
+            }
+            else
+                throw new IllegalArgumentException("Unknown proposition type: " + proposition.getClass());
+        }
+        return propositionIds.get(root);
+    }
+
+    private int atomicId(AtomicProposition atomic) {
+        if (atomic == Proposition.getTrue())
+            return TRUE_ID;
+        if (atomic == Proposition.getFalse())
+            return FALSE_ID;
+        return atomicIds.computeIfAbsent(atomic, a -> newId(1));
+    }
+
+    private int structureId(Structure structure, long nodes) {
+        return structureIds.computeIfAbsent(structure, s -> newId(nodes));
+    }
+
+    private int newId(long nodes) {
+        if (nextId == nodeCounts.length)
+            nodeCounts = Arrays.copyOf(nodeCounts, nextId * 2);
+        nodeCounts[nextId] = nodes;
+        return nextId++;
+    }
+
+    /**
+     * Returns the total number of nodes of the propositions with the given ids,
+     * or <code>0</code> if the ids were forgotten since generation <code>start</code>, since they no longer count.
+     */
+    private long weightOf(int[] ids, int start) {
+        if (start != generation)
+            return 0;
+        long total = 0;
+        for (int id: ids)
+            total = saturatedSum(total, nodeCounts[id]);
+        return total;
+    }
+
+    private static long[] initialNodeCounts() {
+        long[] counts = new long[16];
+        counts[TRUE_ID] = 1;
+        counts[FALSE_ID] = 1;
+        return counts;
+    }
+
+    /**
+     * Adds two node counts, which may overflow when a proposition shares subformulas many times over.
+     */
+    private static long saturatedSum(long a, long b) {
+        long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    /**
+     * A compound proposition, identified by its operator and the ids of its operands.
+     */
+    private record Structure(Enum<?> operator, int left, int right) {}
+
+    /**
+     * A question asked of the reasoner, identified by its kind and the ids of its propositions.
+     */
+    private static final class Question {
+        private final int kind;
+        private final int[] ids;
+        // The number of nodes in the propositions of the question
+        private final long weight;
+        private final int generation;
+        private final int hash;
+
+        Question(int kind, int[] ids, long weight, int generation) {
+            this.kind = kind;
+            this.ids = ids;
+            this.weight = weight;
+            this.generation = generation;
+            this.hash = 31 * kind + Arrays.hashCode(ids);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Question other && kind == other.kind && Arrays.equals(ids, other.ids);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
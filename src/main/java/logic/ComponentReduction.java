@@ -0,0 +1,380 @@
+package logic;
+
+import common.Assignment;
+import common.PropositionEntry;
+import common.operators.BinaryOperator;
+import common.propositions.AtomicProposition;
+import common.propositions.BinaryProposition;
+import common.propositions.Proposition;
+import logic.evaluation.EvaluationProgram;
+import logic.evaluation.PropositionCompiler;
+
+import java.util.*;
+import java.util.function.BiFunction;
+
+/**
+ * Splits questions into independent parts that share no atomics, so that each part can be decided on its own.
+ * <p>
+ * Propositions are first flattened into their top-level conjuncts, which are then grouped into components:
+ * two conjuncts are in the same component when they are linked by a chain of conjuncts sharing an atomic.
+ * Since components share no atomics, a conjunction of them is satisfiable exactly when each one is.
+ * <ul>
+ *     <li>Two propositions are equal if they are equal within every component,
+ *     or, failing that, if both are unsatisfiable.</li>
+ *     <li>Premises outside the conclusion's component cannot affect it: the argument is valid
+ *     if any of their components is unsatisfiable, and otherwise exactly when it is valid without them.</li>
+ * </ul>
+ * Questions that do not split are passed on whole.
+ */
+final class ComponentReduction {
+
+    private static final PropositionEntry TRUE = new PropositionEntry(Proposition.getTrue(), Set.of());
+    private static final PropositionEntry FALSE = new PropositionEntry(Proposition.getFalse(), Set.of());
+
+    private ComponentReduction() {}
+
+    /**
+     * Decides whether two propositions are equal, one component at a time.
+     * <p>
+     * When they are not, a counterexample is assembled from the counterexamples and models found for the parts,
+     * as long as every part provided one.
+     *
+     * @param equal decides whether two propositions are equal
+     * @param valid decides whether an argument is valid, used to check satisfiability
+     */
+    static ReasoningResult checkEquality(PropositionEntry p1, PropositionEntry p2,
+                                         BiFunction<PropositionEntry, PropositionEntry, ReasoningResult> equal,
+                                         BiFunction<PropositionEntry, Collection<PropositionEntry>, ReasoningResult> valid) {
+        if (p1.proposition() == p2.proposition()) {
+            int atomics = PropositionCompiler.compile(p1).atomics().size();
+            return new ReasoningResult(true, new Reduction(atomics, List.of(), 0), null, null, 0);
+        }
+
+        List<Proposition> conjuncts = new ArrayList<>();
+        int firstOfSecond = flatten(p1.proposition(), conjuncts);
+        flatten(p2.proposition(), conjuncts);
+        Components components = new Components(conjuncts);
+        if (components.count() <= 1)
+            return equal.apply(p1, p2).withReduction(Reduction.none(components.atomicCount()));
+
+        // Split each proposition into one conjunction per component, TRUE where it has no conjuncts
+        PropositionEntry[][] parts = new PropositionEntry[2][components.count()];
+        for (int c = 0; c < components.count(); c++) {
+            List<Proposition> first = new ArrayList<>();
+            List<Proposition> second = new ArrayList<>();
+            for (int i: components.members(c))
+                (i < firstOfSecond ? first : second).add(conjuncts.get(i));
+            parts[0][c] = conjunction(first);
+            parts[1][c] = conjunction(second);
+        }
+        Reduction reduction = new Reduction(components.atomicCount(), components.atomicCounts(), 0);
+        Rows rows = new Rows();
+
+        int differing = -1;
+        Map<AtomicProposition, Boolean> witness = null;
+        for (int c = 0; c < components.count() && differing < 0; c++) {
+            ReasoningResult part = rows.add(equal.apply(parts[0][c], parts[1][c]));
+            if (part.value() == null)
+                return undecided(part, reduction, rows);
+            if (!part.value()) {
+                differing = c;
+                witness = part.counterexample();
+            }
+        }
+        if (differing < 0)
+            return new ReasoningResult(true, reduction, null, null, rows.total());
+
+        // Some component differs, so the propositions are only equal if neither is ever true
+        Satisfiability first = satisfiability(parts[0], valid, rows);
+        if (first.satisfiable() == null)
+            return undecided(first.result(), reduction, rows);
+        if (first.satisfiable()) {
+            Map<AtomicProposition, Boolean> counterexample = null;
+            if (witness != null && evaluate(parts[0][differing], witness)) {
+                // The first proposition can be made true everywhere else, where the second is already false
+                counterexample = merge(first.model(), witness);
+            }
+            else if (witness != null) {
+                Satisfiability second = satisfiability(parts[1], valid, rows);
+                if (Boolean.FALSE.equals(second.satisfiable()))
+                    counterexample = first.model();
+                else if (second.satisfiable() != null)
+                    counterexample = merge(second.model(), witness);
+            }
+            return new ReasoningResult(false, reduction, null, components.complete(counterexample), rows.total());
+        }
+        Satisfiability second = satisfiability(parts[1], valid, rows);
+        if (second.satisfiable() == null)
+            return undecided(second.result(), reduction, rows);
+        return new ReasoningResult(!second.satisfiable(), reduction, null,
+                components.complete(second.model()), rows.total());
+    }
+
+    /**
+     * Decides whether an argument is valid, ignoring premises that share no atomics with the conclusion.
+     * <p>
+     * When it is not, the counterexample found for the remaining argument is combined
+     * with a model of every ignored premise.
+     *
+     * @param valid decides whether an argument is valid
+     */
+    static ReasoningResult checkValidity(PropositionEntry conclusion, Collection<PropositionEntry> premises,
+                                         BiFunction<PropositionEntry, Collection<PropositionEntry>, ReasoningResult> valid) {
+        // The conclusion is kept whole as the first item, followed by the conjuncts of every premise
+        List<Proposition> items = new ArrayList<>();
+        items.add(conclusion.proposition());
+        for (PropositionEntry premise: premises)
+            flatten(premise.proposition(), items);
+        Components components = new Components(items);
+
+        if (premises.isEmpty())
+            return new ReasoningResult(null, Reduction.none(components.atomicCount()));
+        if (components.count() <= 1)
+            return valid.apply(conclusion, premises).withReduction(Reduction.none(components.atomicCount()));
+
+        int conclusionComponent = components.componentOf(0);
+        List<Proposition> kept = new ArrayList<>();
+        for (int i: components.members(conclusionComponent)) {
+            if (i > 0)
+                kept.add(items.get(i));
+        }
+        Reduction reduction = new Reduction(components.atomicCount(), components.atomicCounts(),
+                items.size() - 1 - kept.size());
+        Rows rows = new Rows();
+
+        // An unsatisfiable set of premises makes any argument valid, wherever it is
+        Map<AtomicProposition, Boolean> droppedModel = new HashMap<>();
+        for (int c = 0; c < components.count(); c++) {
+            if (c == conclusionComponent)
+                continue;
+            List<Proposition> dropped = new ArrayList<>();
+            for (int i: components.members(c))
+                dropped.add(items.get(i));
+            ReasoningResult unsatisfiable = rows.add(valid.apply(FALSE, List.of(conjunction(dropped))));
+            if (unsatisfiable.value() == null)
+                return undecided(unsatisfiable, reduction, rows);
+            if (unsatisfiable.value())
+                return new ReasoningResult(true, reduction, null, null, rows.total());
+            droppedModel = merge(droppedModel, unsatisfiable.counterexample());
+        }
+
+        List<PropositionEntry> keptPremises = new ArrayList<>(kept.size());
+        for (Proposition premise: kept)
+            keptPremises.add(entryOf(premise));
+        // An argument needs at least one premise, and TRUE leaves its validity unchanged
+        if (keptPremises.isEmpty())
+            keptPremises.add(TRUE);
+        ReasoningResult result = rows.add(valid.apply(conclusion, keptPremises));
+        if (result.value() == null)
+            return undecided(result, reduction, rows);
+        Map<AtomicProposition, Boolean> counterexample = result.value() ? null : merge(droppedModel, result.counterexample());
+        return new ReasoningResult(result.value(), reduction, null, components.complete(counterexample), rows.total());
+    }
+
+    /**
+     * Whether a conjunction of parts sharing no atomics is satisfiable, and if so a model of every part.
+     *
+     * @param satisfiable whether the conjunction is satisfiable, or <code>null</code> if unknown
+     * @param model       a model, or <code>null</code> if there is none or some part did not provide one
+     * @param result      the result that left satisfiability unknown, if any
+     */
+    private record Satisfiability(Boolean satisfiable, Map<AtomicProposition, Boolean> model, ReasoningResult result) {}
+
+    private static Satisfiability satisfiability(PropositionEntry[] parts,
+                                                 BiFunction<PropositionEntry, Collection<PropositionEntry>, ReasoningResult> valid,
+                                                 Rows rows) {
+        Map<AtomicProposition, Boolean> model = new HashMap<>();
+        for (PropositionEntry part: parts) {
+            // A counterexample to "part, therefore FALSE" is a model of the part
+            ReasoningResult unsatisfiable = rows.add(valid.apply(FALSE, List.of(part)));
+            if (unsatisfiable.value() == null)
+                return new Satisfiability(null, null, unsatisfiable);
+            if (unsatisfiable.value())
+                return new Satisfiability(false, null, unsatisfiable);
+            model = merge(model, unsatisfiable.counterexample());
+        }
+        return new Satisfiability(true, model, null);
+    }
+
+    private static ReasoningResult undecided(ReasoningResult part, Reduction reduction, Rows rows) {
+        return new ReasoningResult(null, reduction, part.reason(), null, rows.total());
+    }
+
+    /**
+     * Returns an assignment with the values of both assignments, preferring <code>overrides</code>,
+     * or <code>null</code> if either is <code>null</code>.
+     */
+    private static Map<AtomicProposition, Boolean> merge(Map<AtomicProposition, Boolean> base,
+                                                         Map<AtomicProposition, Boolean> overrides) {
+        if (base == null || overrides == null)
+            return null;
+        Map<AtomicProposition, Boolean> merged = new HashMap<>(base);
+        merged.putAll(overrides);
+        return merged;
+    }
+
+    /**
+     * Evaluates an entry under an assignment of at least its atomics.
+     */
+    private static boolean evaluate(PropositionEntry entry, Map<AtomicProposition, Boolean> assignment) {
+        Assignment values = new Assignment(new ArrayList<>(assignment.keySet()));
+        for (Map.Entry<AtomicProposition, Boolean> value: assignment.entrySet())
+            values.set(value.getKey(), value.getValue());
+        EvaluationProgram program = PropositionCompiler.compile(entry);
+        return program.evaluate(values, program.newRegisters());
+    }
+
+    /**
+     * Sums the rows checked by every part of a question, unless some part did not count them.
+     */
+    private static final class Rows {
+        private long total = 0;
+
+        ReasoningResult add(ReasoningResult result) {
+            if (total >= 0)
+                total = result.rowsChecked() < 0 ? -1 : total + result.rowsChecked();
+            return result;
+        }
+
+        long total() {
+            return total;
+        }
+    }
+
+    /**
+     * Appends the top-level conjuncts of a proposition, in order.
+     *
+     * @return the number of conjuncts appended
+     */
+    private static int flatten(Proposition proposition, List<Proposition> conjuncts) {
+        int before = conjuncts.size();
+        Deque<Proposition> stack = new ArrayDeque<>();
+        stack.push(proposition);
+        while (!stack.isEmpty()) {
+            Proposition p = stack.pop();
+            if (p instanceof BinaryProposition binary && binary.getOperator() == BinaryOperator.AND) {
+                stack.push(binary.getRightProposition());
+                stack.push(binary.getLeftProposition());
+            }
+            else
+                conjuncts.add(p);
+        }
+        return conjuncts.size() - before;
+    }
+
+    private static PropositionEntry conjunction(List<Proposition> conjuncts) {
+        if (conjuncts.isEmpty())
+            return TRUE;
+        Proposition result = conjuncts.get(0);
+        for (int i = 1; i < conjuncts.size(); i++)
+            result = new BinaryProposition(result, conjuncts.get(i), BinaryOperator.AND);
+        return entryOf(result);
+    }
+
+    private static PropositionEntry entryOf(Proposition proposition) {
+        Set<AtomicProposition> atomics = Collections.newSetFromMap(new IdentityHashMap<>());
+        atomics.addAll(PropositionCompiler.compile(proposition).atomics());
+        return new PropositionEntry(proposition, atomics);
+    }
+
+    /**
+     * Groups propositions into the connected components of the graph linking propositions that share an atomic.
+     */
+    private static final class Components {
+        private final int[] componentOf;
+        private final List<List<Integer>> members = new ArrayList<>();
+        private final List<Integer> atomicCounts = new ArrayList<>();
+        private final int atomicCount;
+        private final List<AtomicProposition> allAtomics = new ArrayList<>();
+
+        Components(List<Proposition> propositions) {
+            // Union-find over atomics, numbered in order of first appearance
+            Map<AtomicProposition, Integer> ids = new IdentityHashMap<>();
+            List<List<AtomicProposition>> atomicsOf = new ArrayList<>(propositions.size());
+            for (Proposition p: propositions) {
+                List<AtomicProposition> atomics = PropositionCompiler.compile(p).atomics();
+                atomicsOf.add(atomics);
+                for (AtomicProposition a: atomics) {
+                    if (ids.putIfAbsent(a, ids.size()) == null)
+                        allAtomics.add(a);
+                }
+            }
+            atomicCount = ids.size();
+            int[] parents = new int[atomicCount];
+            for (int i = 0; i < parents.length; i++)
+                parents[i] = i;
+            for (List<AtomicProposition> atomics: atomicsOf) {
+                for (int j = 1; j < atomics.size(); j++)
+                    union(parents, ids.get(atomics.get(0)), ids.get(atomics.get(j)));
+            }
+
+            // Number components in order of their first proposition; propositions without atomics stand alone
+            componentOf = new int[propositions.size()];
+            int[] componentOfRoot = new int[atomicCount];
+            Arrays.fill(componentOfRoot, -1);
+            for (int i = 0; i < propositions.size(); i++) {
+                List<AtomicProposition> atomics = atomicsOf.get(i);
+                int root = atomics.isEmpty() ? -1 : find(parents, ids.get(atomics.get(0)));
+                int component = root < 0 ? -1 : componentOfRoot[root];
+                if (component < 0) {
+                    component = members.size();
+                    members.add(new ArrayList<>());
+                    atomicCounts.add(0);
+                    if (root >= 0)
+                        componentOfRoot[root] = component;
+                }
+                componentOf[i] = component;
+                members.get(component).add(i);
+            }
+            for (int atomic = 0; atomic < atomicCount; atomic++) {
+                int component = componentOfRoot[find(parents, atomic)];
+                atomicCounts.set(component, atomicCounts.get(component) + 1);
+            }
+        }
+
+        int count() {
+            return members.size();
+        }
+
+        int atomicCount() {
+            return atomicCount;
+        }
+
+        List<Integer> atomicCounts() {
+            return List.copyOf(atomicCounts);
+        }
+
+        int componentOf(int proposition) {
+            return componentOf[proposition];
+        }
+
+        List<Integer> members(int component) {
+            return members.get(component);
+        }
+
+        /**
+         * Returns a counterexample assigning every atomic in order of first appearance,
+         * with atomics it leaves unconstrained set to true, or <code>null</code> if <code>partial</code> is.
+         */
+        Map<AtomicProposition, Boolean> complete(Map<AtomicProposition, Boolean> partial) {
+            if (partial == null)
+                return null;
+            Map<AtomicProposition, Boolean> complete = new LinkedHashMap<>();
+            for (AtomicProposition a: allAtomics)
+                complete.put(a, partial.getOrDefault(a, true));
+            return complete;
+        }
+
+        private static int find(int[] parents, int x) {
+            while (parents[x] != x) {
+                parents[x] = parents[parents[x]];
+                x = parents[x];
+            }
+            return x;
+        }
+
+        private static void union(int[] parents, int x, int y) {
+            parents[find(parents, x)] = find(parents, y);
+        }
+    }
+}
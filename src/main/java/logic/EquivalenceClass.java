@@ -0,0 +1,21 @@
+package logic;
+
+import common.PropositionEntry;
+
+import java.util.List;
+
+/**
+ * A set of logically equivalent entries found by an {@link EquivalencePartitioner}.
+ *
+ * @param representative the member chosen to stand for the whole class
+ * @param members        every entry of the class, in the order they were given, including the representative
+ */
+public record EquivalenceClass(PropositionEntry representative, List<PropositionEntry> members) {
+
+    /**
+     * Returns the number of members.
+     */
+    public int size() {
+        return members.size();
+    }
+}
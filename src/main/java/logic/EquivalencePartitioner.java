@@ -0,0 +1,294 @@
+package logic;
+
+import common.PropositionEntry;
+import common.propositions.AtomicProposition;
+import common.propositions.BinaryProposition;
+import common.propositions.Proposition;
+import common.propositions.UnaryProposition;
+import logic.evaluation.EvaluationProgram;
+import logic.evaluation.PropositionCompiler;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A class that groups entries, such as every entry of a {@link common.LogicContext}, into classes of
+ * logically equivalent propositions.
+ * <p>
+ * Rather than comparing every pair of entries, each entry is first given a signature: its truth values
+ * under one shared batch of random assignments, evaluated 64 at a time. Equivalent entries always have
+ * the same signature, so only entries within the same bucket of signatures need to be compared exactly,
+ * and buckets are compared in parallel using the threads of a {@link ForkJoinPool}.
+ * With enough random assignments, inequivalent entries rarely share a bucket,
+ * so usually only one exact check is made per entry.
+ * <p>
+ * Entries that the {@link Reasoner} cannot compare (an answer of <code>null</code>)
+ * are never placed in the same class.
+ * Each class is represented by its member with the fewest nodes, with ties broken by the order of the input.
+ * <p>
+ * A partitioner that creates its own pool owns its threads, and should be {@link #close() closed}
+ * once it is no longer used. A pool passed in by the caller is left for the caller to shut down.
+ */
+public class EquivalencePartitioner implements AutoCloseable {
+
+    /**
+     * The number of blocks of 64 random assignments used for signatures by default.
+     */
+    public static final int DEFAULT_SIMULATION_BLOCKS = 4;
+
+    private static final long SEED = 0x5DEECE66DL;
+
+    private final Reasoner reasoner;
+    private final int simulationBlocks;
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+
+    /**
+     * Instantiates a new EquivalencePartitioner that checks candidates with a {@link BruteForceReasoner},
+     * using one worker per available processor.
+     */
+    public EquivalencePartitioner() {
+        this(new BruteForceReasoner());
+    }
+
+    /**
+     * Instantiates a new EquivalencePartitioner using one worker per available processor.
+     *
+     * @param reasoner the reasoner deciding whether two candidates are equal,
+     *                 which must allow being used by several threads at once
+     */
+    public EquivalencePartitioner(Reasoner reasoner) {
+        this(reasoner, DEFAULT_SIMULATION_BLOCKS, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Instantiates a new EquivalencePartitioner.
+     *
+     * @param reasoner         the reasoner deciding whether two candidates are equal,
+     *                         which must allow being used by several threads at once
+     * @param simulationBlocks the number of blocks of 64 random assignments each signature covers
+     * @param parallelism      the number of worker threads
+     * @throws IllegalArgumentException if <code>simulationBlocks</code> or <code>parallelism</code> is not positive
+     */
+    public EquivalencePartitioner(Reasoner reasoner, int simulationBlocks, int parallelism) {
+        this(reasoner, simulationBlocks, new ForkJoinPool(parallelism), true);
+    }
+
+    /**
+     * Instantiates a new EquivalencePartitioner that compares buckets in a pool owned by the caller,
+     * which {@link #close()} does not shut down.
+     *
+     * @param reasoner         the reasoner deciding whether two candidates are equal,
+     *                         which must allow being used by several threads at once
+     * @param simulationBlocks the number of blocks of 64 random assignments each signature covers
+     * @param pool             the pool to compare buckets in
+     * @throws IllegalArgumentException if <code>simulationBlocks</code> is not positive
+     */
+    public EquivalencePartitioner(Reasoner reasoner, int simulationBlocks, ForkJoinPool pool) {
+        this(reasoner, simulationBlocks, pool, false);
+    }
+
+    private EquivalencePartitioner(Reasoner reasoner, int simulationBlocks, ForkJoinPool pool, boolean ownsPool) {
+        if (simulationBlocks <= 0) {
+            if (ownsPool)
+                pool.shutdown();
+            throw new IllegalArgumentException("Simulation blocks must be positive: " + simulationBlocks);
+        }
+        this.reasoner = reasoner;
+        this.simulationBlocks = simulationBlocks;
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+    }
+
+    /**
+     * Groups entries into classes of logically equivalent propositions.
+     * <p>
+     * The same input always produces the same classes, with the same representatives.
+     *
+     * @param entries the entries to group, for example a whole {@link common.LogicContext}
+     * @return every class, ordered by the position of its first member in <code>entries</code>
+     */
+    public List<EquivalenceClass> partition(Collection<? extends PropositionEntry> entries) {
+        List<PropositionEntry> list = new ArrayList<>(entries);
+
+        // Bucket the entries by signature, keeping the input order within each bucket
+        Map<Signature, List<Integer>> bucketsBySignature = new LinkedHashMap<>();
+        Map<AtomicProposition, long[]> randomLanes = new IdentityHashMap<>();
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (int i = 0; i < list.size(); i++) {
+            Signature signature = signature(PropositionCompiler.compile(list.get(i)), randomLanes, random);
+            bucketsBySignature.computeIfAbsent(signature, s -> new ArrayList<>()).add(i);
+        }
+
+        List<List<Integer>> buckets = new ArrayList<>(bucketsBySignature.values());
+        List<List<List<Integer>>> split = new ArrayList<>(Collections.nCopies(buckets.size(), null));
+        pool.invoke(new SplitTask(list, buckets, split, 0, buckets.size()));
+
+        List<List<Integer>> classes = new ArrayList<>();
+        for (List<List<Integer>> bucketClasses: split)
+            classes.addAll(bucketClasses);
+        classes.sort(Comparator.comparingInt(c -> c.get(0)));
+
+        List<EquivalenceClass> result = new ArrayList<>(classes.size());
+        for (List<Integer> indices: classes) {
+            List<PropositionEntry> members = new ArrayList<>(indices.size());
+            PropositionEntry representative = null;
+            int smallest = Integer.MAX_VALUE;
+            for (int index: indices) {
+                PropositionEntry member = list.get(index);
+                members.add(member);
+                int size = nodeCount(member.proposition());
+                if (size < smallest) {
+                    smallest = size;
+                    representative = member;
+                }
+            }
+            result.add(new EquivalenceClass(representative, Collections.unmodifiableList(members)));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of worker threads.
+     */
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Shuts down the pool, if this partitioner created it. A partition already running is allowed to finish,
+     * but the partitioner cannot be used afterwards.
+     */
+    @Override
+    public void close() {
+        if (ownsPool)
+            pool.shutdown();
+    }
+
+    /**
+     * Evaluates a program under the shared random assignments.
+     * <p>
+     * Each atomic is given its random truth values the first time it is seen, so the assignments are the same
+     * for every entry sharing that atomic.
+     */
+    private Signature signature(EvaluationProgram program, Map<AtomicProposition, long[]> randomLanes,
+                                SplittableRandom random) {
+        List<AtomicProposition> atomics = program.atomics();
+        long[][] atomicLanes = new long[atomics.size()][];
+        for (int i = 0; i < atomicLanes.length; i++) {
+            atomicLanes[i] = randomLanes.computeIfAbsent(atomics.get(i), a -> {
+                long[] values = new long[simulationBlocks];
+                for (int block = 0; block < values.length; block++)
+                    values[block] = random.nextLong();
+                return values;
+            });
+        }
+
+        long[] registers = program.newLaneRegisters();
+        long[] lanes = new long[atomicLanes.length];
+        long[] values = new long[simulationBlocks];
+        for (int block = 0; block < simulationBlocks; block++) {
+            for (int i = 0; i < lanes.length; i++)
+                lanes[i] = atomicLanes[i][block];
+            values[block] = program.evaluateLanes(lanes, registers);
+        }
+        return new Signature(values);
+    }
+
+    /**
+     * Splits one bucket into classes, comparing each entry only with the first member of each class so far.
+     *
+     * @return the indices of each class's members, in input order
+     */
+    private List<List<Integer>> split(List<PropositionEntry> entries, List<Integer> bucket) {
+        List<List<Integer>> classes = new ArrayList<>();
+        for (int index: bucket) {
+            PropositionEntry entry = entries.get(index);
+            List<Integer> match = null;
+            for (List<Integer> candidate: classes) {
+                if (Boolean.TRUE.equals(reasoner.areEqual(entries.get(candidate.get(0)), entry))) {
+                    match = candidate;
+                    break;
+                }
+            }
+            if (match == null) {
+                match = new ArrayList<>();
+                classes.add(match);
+            }
+            match.add(index);
+        }
+        return classes;
+    }
+
+    /**
+     * Returns the number of nodes in the tree of a proposition, counting shared subformulas once per use.
+     */
+    private static int nodeCount(Proposition root) {
+        int count = 0;
+        Deque<Proposition> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Proposition p = stack.pop();
+            count++;
+            if (p instanceof UnaryProposition unary)
+                stack.push(unary.getProposition());
+            else if (p instanceof BinaryProposition binary) {
+                stack.push(binary.getLeftProposition());
+                stack.push(binary.getRightProposition());
+            }
+        }
+        return count;
+    }
+
+    /**
+     * The truth values of an entry under every random assignment, one bit per assignment.
+     */
+    private record Signature(long[] values) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Signature other && Arrays.equals(values, other.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(values);
+        }
+    }
+
+    /**
+     * A task splitting a range of buckets into classes.
+     * Ranges of several buckets are split in half and handled in parallel.
+     */
+    private class SplitTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<PropositionEntry> entries;
+        private final List<List<Integer>> buckets;
+        private final List<List<List<Integer>>> split;
+        private final int from;
+        private final int to;
+
+        SplitTask(List<PropositionEntry> entries, List<List<Integer>> buckets,
+                  List<List<List<Integer>>> split, int from, int to) {
+            this.entries = entries;
+            this.buckets = buckets;
+            this.split = split;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new SplitTask(entries, buckets, split, from, middle),
+                        new SplitTask(entries, buckets, split, middle, to));
+                return;
+            }
+            for (int i = from; i < to; i++)
+                split.set(i, EquivalencePartitioner.this.split(entries, buckets.get(i)));
+        }
+    }
+}
@@ -0,0 +1,499 @@
+package logic;
+
+import common.PropositionEntry;
+import common.propositions.AtomicProposition;
+import common.propositions.Proposition;
+import logic.evaluation.EvaluationProgram;
+import logic.evaluation.PropositionCompiler;
+import logic.evaluation.TruthTable;
+import logic.sat.ClauseStore;
+import logic.sat.TseitinEncoder;
+
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * A class that counts the combinations of truth values for which the proposition of an entry is true,
+ * that is, the rows of its truth table that read <code>T</code>.
+ * <p>
+ * Counts cover every atomic of the entry, including any that {@link common.Simplifier simplification}
+ * shows the proposition does not depend on, and may be taken with some atomics fixed to a truth value
+ * (see {@link #count(Map)}). Two methods are used, depending on how many atomics are left free:
+ * <ul>
+ *     <li>up to the enumeration limit, every combination is evaluated, 64 at a time
+ *     (see {@link BruteForceReasoner.EvaluationMode#BIT_SLICED}). When the entry has no more atomics than the limit,
+ *     this is done once, into a {@link TruthTable} that is shared by every user of the entry if it fits on the heap,
+ *     and each count restricts that table to the conditions and counts its true rows;</li>
+ *     <li>above it, a DPLL search counts the models of a full Tseitin encoding of the proposition,
+ *     in which every auxiliary variable is determined by the atomics, so models correspond to rows.
+ *     Whenever the remaining clauses fall apart into independent components, each is counted separately
+ *     and the counts are multiplied, and the count of every component is cached,
+ *     so identical subproblems met again (in the same count or in a later one) are not searched twice.</li>
+ * </ul>
+ * The proposition is compiled and encoded only once per counter, however many counts are taken.
+ * <p>
+ * Instances hold mutable state and should not be shared between threads.
+ */
+public class ModelCounter {
+
+    /**
+     * The default largest number of free atomics for which every combination is evaluated.
+     */
+    public static final int DEFAULT_ENUMERATION_LIMIT = 20;
+
+    /**
+     * The number of cached component counts above which the cache is cleared, to bound memory.
+     */
+    static final int MAX_CACHED_COMPONENTS = 1 << 20;
+
+    private final PropositionEntry entry;
+    private final int enumerationLimit;
+    private final EvaluationProgram program;
+    // Every atomic counted, the program's atomics first
+    private final List<AtomicProposition> atomics;
+
+    // Created the first time a count over every atomic is enumerated
+    private TruthTable table;
+    // Created the first time the search is needed
+    private TseitinEncoder encoder;
+    private int root;
+    private final Map<Component, BigInteger> cache = new HashMap<>();
+    // Scratch space indexed by variable, always reset after use
+    private byte[] values;
+    private int[] parents;
+    private int[] occurrences;
+
+    /**
+     * Instantiates a new ModelCounter with an enumeration limit of {@link #DEFAULT_ENUMERATION_LIMIT}.
+     *
+     * @param entry the entry whose models are counted
+     */
+    public ModelCounter(PropositionEntry entry) {
+        this(entry, DEFAULT_ENUMERATION_LIMIT);
+    }
+
+    /**
+     * Instantiates a new ModelCounter.
+     *
+     * @param entry            the entry whose models are counted
+     * @param enumerationLimit the largest number of free atomics for which every combination is evaluated
+     *                         rather than searched
+     * @throws IllegalArgumentException if <code>enumerationLimit</code> is greater than 62
+     */
+    public ModelCounter(PropositionEntry entry, int enumerationLimit) {
+        if (enumerationLimit > BruteForceReasoner.MAX_ATOMICS)
+            throw new IllegalArgumentException("Enumeration limit is too large: " + enumerationLimit);
+        this.entry = entry;
+        this.enumerationLimit = enumerationLimit;
+        this.program = PropositionCompiler.compile(entry);
+
+        Set<AtomicProposition> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        atomics = new ArrayList<>();
+        for (AtomicProposition a: program.atomics()) {
+            if (seen.add(a))
+                atomics.add(a);
+        }
+        for (AtomicProposition a: entry.atomics()) {
+            if (a != Proposition.getTrue() && a != Proposition.getFalse() && seen.add(a))
+                atomics.add(a);
+        }
+    }
+
+    /**
+     * Returns the entry whose models are counted.
+     */
+    public PropositionEntry getEntry() {
+        return entry;
+    }
+
+    /**
+     * Returns the atomics whose combinations are counted.
+     */
+    public List<AtomicProposition> getAtomics() {
+        return Collections.unmodifiableList(atomics);
+    }
+
+    /**
+     * Returns the number of combinations of truth values of every atomic for which the proposition is true.
+     */
+    public BigInteger count() {
+        return count(Map.of());
+    }
+
+    /**
+     * Returns the number of combinations of truth values of the atomics not in <code>conditions</code>
+     * for which the proposition is true, when every atomic in <code>conditions</code> has the given value.
+     *
+     * @param conditions the truth value of each fixed atomic
+     * @throws IllegalArgumentException if an atomic in <code>conditions</code> is not one of {@link #getAtomics()}
+     */
+    public BigInteger count(Map<AtomicProposition, Boolean> conditions) {
+        for (AtomicProposition a: conditions.keySet()) {
+            if (!atomics.contains(a))
+                throw new IllegalArgumentException("Atomic '" + a + "' is not in the entry");
+        }
+
+        if (atomics.size() <= Math.min(enumerationLimit, TruthTable.MAX_ATOMICS))
+            return BigInteger.valueOf(table().restrict(conditions).popCount());
+
+        // Atomics the program does not read double the count whenever they are free
+        int unread = 0;
+        for (int i = program.atomics().size(); i < atomics.size(); i++) {
+            if (!conditions.containsKey(atomics.get(i)))
+                unread++;
+        }
+        int free = 0;
+        for (AtomicProposition a: program.atomics()) {
+            if (!conditions.containsKey(a))
+                free++;
+        }
+
+        BigInteger models = free <= enumerationLimit
+                ? BigInteger.valueOf(enumerate(conditions, free))
+                : search(conditions);
+        return models.shiftLeft(unread);
+    }
+
+    /**
+     * Returns the number of component counts currently cached.
+     */
+    public int getCachedComponents() {
+        return cache.size();
+    }
+
+    /**
+     * Returns the truth table over every counted atomic, which is the entry's own unless it lists constants.
+     */
+    private TruthTable table() {
+        if (table == null)
+            table = atomics.size() == entry.atomics().size() ? TruthTable.of(entry) : TruthTable.of(entry, atomics);
+        return table;
+    }
+
+    /**
+     * Counts models by evaluating every combination of the free atomics the program reads.
+     */
+    private long enumerate(Map<AtomicProposition, Boolean> conditions, int free) {
+        List<AtomicProposition> programAtomics = program.atomics();
+        // The slot of each atomic, or -1 when it is fixed
+        int[] freeSlots = new int[programAtomics.size()];
+        long[] lanes = new long[programAtomics.size()];
+        int next = 0;
+        for (int i = 0; i < freeSlots.length; i++) {
+            Boolean value = conditions.get(programAtomics.get(i));
+            if (value == null)
+                freeSlots[i] = next++;
+            else {
+                freeSlots[i] = -1;
+                lanes[i] = value ? -1L : 0L;
+            }
+        }
+
+        long[] freeLanes = new long[free];
+        long[] registers = program.newLaneRegisters();
+        long validLanes = EvaluationProgram.validLanes(free);
+        long models = 0;
+        for (long block = EvaluationProgram.blockCount(free) - 1; block >= 0; block--) {
+            EvaluationProgram.fillLanes(block, freeLanes);
+            for (int i = 0; i < lanes.length; i++) {
+                if (freeSlots[i] >= 0)
+                    lanes[i] = freeLanes[freeSlots[i]];
+            }
+            models += Long.bitCount(program.evaluateLanes(lanes, registers) & validLanes);
+        }
+        return models;
+    }
+
+    /**
+     * Counts models by searching the encoding of the proposition, with conditions as unit clauses.
+     */
+    private BigInteger search(Map<AtomicProposition, Boolean> conditions) {
+        if (encoder == null) {
+            encoder = new TseitinEncoder(false);
+            root = encoder.encode(program, TseitinEncoder.Polarity.BOTH);
+            values = new byte[encoder.variableCount() + 1];
+            parents = new int[encoder.variableCount() + 1];
+            occurrences = new int[encoder.variableCount() + 1];
+        }
+        if (cache.size() > MAX_CACHED_COMPONENTS)
+            cache.clear();
+
+        ClauseStore store = encoder.clauses();
+        List<int[]> clauses = new ArrayList<>(store.size());
+        for (int c = 0; c < store.size(); c++)
+            clauses.add(store.clause(c));
+
+        int[] units = new int[conditions.size() + 1];
+        int size = 0;
+        units[size++] = root;
+        for (Map.Entry<AtomicProposition, Boolean> condition: conditions.entrySet()) {
+            int variable = encoder.existingVariableOf(condition.getKey());
+            // A fixed atomic the program does not read has no variable, and no effect on the count
+            if (variable != 0)
+                units[size++] = condition.getValue() ? variable : -variable;
+        }
+
+        int[] assigned = new int[1];
+        List<int[]> remaining = propagate(clauses, Arrays.copyOf(units, size), assigned);
+        if (remaining == null)
+            return BigInteger.ZERO;
+        int unconstrained = encoder.variableCount() - assigned[0] - variableCount(remaining);
+        return countClauses(remaining).shiftLeft(unconstrained);
+    }
+
+    /**
+     * Returns the number of models of a set of clauses, counting only the variables that appear in them.
+     */
+    private BigInteger countClauses(List<int[]> clauses) {
+        BigInteger product = BigInteger.ONE;
+        for (List<int[]> component: components(clauses)) {
+            product = product.multiply(countComponent(component));
+            if (product.signum() == 0)
+                break;
+        }
+        return product;
+    }
+
+    /**
+     * Returns the number of models of a connected set of clauses, from the cache if it has been counted before.
+     */
+    private BigInteger countComponent(List<int[]> clauses) {
+        Component key = Component.of(clauses);
+        BigInteger cached = cache.get(key);
+        if (cached != null)
+            return cached;
+
+        int variables = variableCount(clauses);
+        int branch = mostFrequentVariable(clauses);
+        BigInteger models = BigInteger.ZERO;
+        for (int literal: new int[] {branch, -branch}) {
+            int[] assigned = new int[1];
+            List<int[]> remaining = propagate(clauses, new int[] {literal}, assigned);
+            if (remaining == null)
+                continue;
+            int unconstrained = variables - assigned[0] - variableCount(remaining);
+            models = models.add(countClauses(remaining).shiftLeft(unconstrained));
+        }
+        cache.put(key, models);
+        return models;
+    }
+
+    /**
+     * Assigns literals and propagates unit clauses until none remain.
+     *
+     * @param assigned receives the number of distinct variables assigned
+     * @return the clauses left unsatisfied, without their false literals,
+     * or <code>null</code> if a clause became empty
+     */
+    private List<int[]> propagate(List<int[]> clauses, int[] literals, int[] assigned) {
+        List<Integer> trail = new ArrayList<>();
+        boolean conflict = false;
+        for (int literal: literals) {
+            if (!assign(literal, trail)) {
+                conflict = true;
+                break;
+            }
+        }
+
+        List<int[]> remaining = null;
+        boolean changed = !conflict;
+        while (changed) {
+            changed = false;
+            for (int[] clause: clauses) {
+                int unassigned = 0;
+                int last = 0;
+                boolean satisfied = false;
+                for (int literal: clause) {
+                    int value = valueOf(literal);
+                    if (value > 0) {
+                        satisfied = true;
+                        break;
+                    }
+                    if (value == 0) {
+                        unassigned++;
+                        last = literal;
+                    }
+                }
+                if (satisfied)
+                    continue;
+                if (unassigned == 0) {
+                    conflict = true;
+                    break;
+                }
+                if (unassigned == 1) {
+                    assign(last, trail);
+                    changed = true;
+                }
+            }
+            if (conflict)
+                break;
+        }
+
+        if (!conflict) {
+            remaining = new ArrayList<>();
+            for (int[] clause: clauses) {
+                int kept = 0;
+                boolean satisfied = false;
+                for (int literal: clause) {
+                    int value = valueOf(literal);
+                    if (value > 0) {
+                        satisfied = true;
+                        break;
+                    }
+                    if (value == 0)
+                        kept++;
+                }
+                if (satisfied)
+                    continue;
+                int[] reduced = new int[kept];
+                int size = 0;
+                for (int literal: clause) {
+                    if (valueOf(literal) == 0)
+                        reduced[size++] = literal;
+                }
+                remaining.add(reduced);
+            }
+        }
+
+        assigned[0] = trail.size();
+        for (int variable: trail)
+            values[variable] = 0;
+        return remaining;
+    }
+
+    /**
+     * Makes a literal true, unless its variable is already assigned.
+     *
+     * @return whether the literal is true afterwards
+     */
+    private boolean assign(int literal, List<Integer> trail) {
+        int value = valueOf(literal);
+        if (value != 0)
+            return value > 0;
+        values[Math.abs(literal)] = (byte) (literal > 0 ? 1 : -1);
+        trail.add(Math.abs(literal));
+        return true;
+    }
+
+    /**
+     * Returns <code>1</code> if a literal is true, <code>-1</code> if it is false, and <code>0</code> if unassigned.
+     */
+    private int valueOf(int literal) {
+        int value = values[Math.abs(literal)];
+        return literal > 0 ? value : -value;
+    }
+
+    /**
+     * Splits clauses into groups that share no variables.
+     */
+    private Collection<List<int[]>> components(List<int[]> clauses) {
+        List<Integer> touched = new ArrayList<>();
+        for (int[] clause: clauses) {
+            for (int literal: clause) {
+                int variable = Math.abs(literal);
+                if (parents[variable] == 0) {
+                    parents[variable] = variable;
+                    touched.add(variable);
+                }
+                union(Math.abs(clause[0]), variable);
+            }
+        }
+
+        Map<Integer, List<int[]>> groups = new LinkedHashMap<>();
+        for (int[] clause: clauses)
+            groups.computeIfAbsent(find(Math.abs(clause[0])), r -> new ArrayList<>()).add(clause);
+        for (int variable: touched)
+            parents[variable] = 0;
+        return groups.values();
+    }
+
+    private int find(int variable) {
+        while (parents[variable] != variable) {
+            parents[variable] = parents[parents[variable]];
+            variable = parents[variable];
+        }
+        return variable;
+    }
+
+    private void union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA != rootB)
+            parents[rootB] = rootA;
+    }
+
+    /**
+     * Returns the variable appearing in the most clauses, preferring the smallest on ties.
+     */
+    private int mostFrequentVariable(List<int[]> clauses) {
+        int best = 0;
+        for (int[] clause: clauses) {
+            for (int literal: clause) {
+                int variable = Math.abs(literal);
+                occurrences[variable]++;
+                if (best == 0 || occurrences[variable] > occurrences[best]
+                        || (occurrences[variable] == occurrences[best] && variable < best))
+                    best = variable;
+            }
+        }
+        for (int[] clause: clauses) {
+            for (int literal: clause)
+                occurrences[Math.abs(literal)] = 0;
+        }
+        return best;
+    }
+
+    /**
+     * Returns the number of distinct variables appearing in clauses.
+     */
+    private int variableCount(List<int[]> clauses) {
+        int count = 0;
+        for (int[] clause: clauses) {
+            for (int literal: clause) {
+                if (occurrences[Math.abs(literal)]++ == 0)
+                    count++;
+            }
+        }
+        for (int[] clause: clauses) {
+            for (int literal: clause)
+                occurrences[Math.abs(literal)] = 0;
+        }
+        return count;
+    }
+
+    /**
+     * A canonical form of a set of clauses: each clause sorted, the clauses in lexicographic order,
+     * and each clause followed by a <code>0</code>.
+     */
+    private record Component(int[] literals) {
+
+        static Component of(List<int[]> clauses) {
+            int[][] sorted = new int[clauses.size()][];
+            int length = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                sorted[i] = clauses.get(i).clone();
+                Arrays.sort(sorted[i]);
+                length += sorted[i].length + 1;
+            }
+            Arrays.sort(sorted, Arrays::compare);
+
+            int[] literals = new int[length];
+            int size = 0;
+            for (int[] clause: sorted) {
+                System.arraycopy(clause, 0, literals, size, clause.length);
+                size += clause.length + 1;
+            }
+            return new Component(literals);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Component other && Arrays.equals(literals, other.literals);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(literals);
+        }
+    }
+}
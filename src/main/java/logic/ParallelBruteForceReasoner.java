@@ -0,0 +1,290 @@
+package logic;
+
+import common.PropositionEntry;
+import common.propositions.AtomicProposition;
+import logic.evaluation.EvaluationProgram;
+import logic.evaluation.PropositionCompiler;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * An implementation of the {@link Reasoner} interface that, like {@link BruteForceReasoner},
+ * considers every combination of truth values for all atomic propositions,
+ * but splits the combinations between the threads of a {@link ForkJoinPool}.
+ * <p>
+ * Combinations are evaluated 64 at a time (see {@link BruteForceReasoner.EvaluationMode#BIT_SLICED}).
+ * Each worker keeps its own register files, and no {@link AtomicProposition} is modified,
+ * so instances may be used by several threads at once.
+ * <p>
+ * As soon as any worker finds a combination that settles the question
+ * (two unequal truth values, or a counterexample to an argument), every other worker stops.
+ * <p>
+ * A reasoner that creates its own pool owns its threads, and should be {@link #close() closed} once it is no longer used.
+ * A pool passed in by the caller is left for the caller to shut down.
+ */
+public class ParallelBruteForceReasoner implements Reasoner, AutoCloseable {
+
+    /**
+     * The number of blocks of 64 combinations below which a range is no longer split between workers.
+     */
+    private static final long CHUNK_BLOCKS = 1 << 10;
+
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+
+    /**
+     * Instantiates a new ParallelBruteForceReasoner using one worker per available processor.
+     */
+    public ParallelBruteForceReasoner() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Instantiates a new ParallelBruteForceReasoner.
+     *
+     * @param parallelism the number of worker threads
+     * @throws IllegalArgumentException if <code>parallelism</code> is not positive
+     */
+    public ParallelBruteForceReasoner(int parallelism) {
+        this.pool = new ForkJoinPool(parallelism);
+        this.ownsPool = true;
+    }
+
+    /**
+     * Instantiates a new ParallelBruteForceReasoner that searches in a pool owned by the caller,
+     * which {@link #close()} does not shut down.
+     *
+     * @param pool the pool to run searches in
+     */
+    public ParallelBruteForceReasoner(ForkJoinPool pool) {
+        this.pool = pool;
+        this.ownsPool = false;
+    }
+
+    /**
+     * Returns the number of worker threads.
+     */
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Shuts down the pool, if this reasoner created it. Searches already running are allowed to finish,
+     * but the reasoner cannot be used afterwards.
+     */
+    @Override
+    public void close() {
+        if (ownsPool)
+            pool.shutdown();
+    }
+
+    @Override
+    public Boolean areEqual(PropositionEntry p1, PropositionEntry p2) {
+        return checkEquality(p1, p2).value();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * {@link #areEqual} always splits questions this way.
+     */
+    @Override
+    public ReasoningResult checkEquality(PropositionEntry p1, PropositionEntry p2) {
+        return checkEquality(p1, p2, ReasoningBudget.unlimited());
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Every worker checks the budget, and reports the rows of the truth table checked by all workers,
+     * before each range of up to 65536 combinations.
+     */
+    @Override
+    public ReasoningResult checkEquality(PropositionEntry p1, PropositionEntry p2, ReasoningBudget budget) {
+        try {
+            return ComponentReduction.checkEquality(p1, p2,
+                    (p, q) -> enumerateEqual(p, q, budget),
+                    (conclusion, premises) -> enumerateValid(conclusion, premises, budget));
+        } catch (BudgetExhaustedException e) {
+            return ReasoningResult.unknown(e.getReason());
+        }
+    }
+
+    private ReasoningResult enumerateEqual(PropositionEntry p1, PropositionEntry p2, ReasoningBudget budget) {
+        List<EvaluationProgram> programs = List.of(PropositionCompiler.compile(p1), PropositionCompiler.compile(p2));
+        List<AtomicProposition> atomicsList = BruteForceReasoner.unionOfAtomics(programs);
+        if (atomicsList.size() > BruteForceReasoner.MAX_ATOMICS)
+            return new ReasoningResult(null, null);
+
+        EvaluationProgram[] bound = BruteForceReasoner.bindAll(programs, atomicsList);
+        return search(new SearchTask(bound, atomicsList.size(), true, budget), atomicsList);
+    }
+
+    @Override
+    public Boolean isArgumentValid(PropositionEntry conclusion, Collection<PropositionEntry> premises) {
+        return checkValidity(conclusion, premises).value();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * {@link #isArgumentValid} always splits questions this way.
+     */
+    @Override
+    public ReasoningResult checkValidity(PropositionEntry conclusion, Collection<PropositionEntry> premises) {
+        return checkValidity(conclusion, premises, ReasoningBudget.unlimited());
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Every worker checks the budget, and reports the rows of the truth table checked by all workers,
+     * before each range of up to 65536 combinations.
+     */
+    @Override
+    public ReasoningResult checkValidity(PropositionEntry conclusion, Collection<PropositionEntry> premises,
+                                         ReasoningBudget budget) {
+        try {
+            return ComponentReduction.checkValidity(conclusion, premises, (c, p) -> enumerateValid(c, p, budget));
+        } catch (BudgetExhaustedException e) {
+            return ReasoningResult.unknown(e.getReason());
+        }
+    }
+
+    private ReasoningResult enumerateValid(PropositionEntry conclusion, Collection<PropositionEntry> premises,
+                                           ReasoningBudget budget) {
+        if (premises.isEmpty())
+            return new ReasoningResult(null, null);
+
+        List<EvaluationProgram> programs = BruteForceReasoner.argumentPrograms(conclusion, premises);
+        List<AtomicProposition> atomicsList = BruteForceReasoner.unionOfAtomics(programs);
+        if (atomicsList.size() > BruteForceReasoner.MAX_ATOMICS)
+            return new ReasoningResult(null, null);
+
+        EvaluationProgram[] bound = BruteForceReasoner.bindAll(programs, atomicsList);
+        return search(new SearchTask(bound, atomicsList.size(), false, budget), atomicsList);
+    }
+
+    /**
+     * Runs a search in the pool.
+     *
+     * @return the result, with the counterexample found if any
+     * @throws BudgetExhaustedException if a worker found the budget exhausted
+     */
+    private ReasoningResult search(SearchTask task, List<AtomicProposition> atomicsList) {
+        boolean found = pool.invoke(task);
+        // A combination found before the budget ran out still settles the question
+        UnknownReason reason = task.exhausted.get();
+        if (!found && reason != null)
+            throw new BudgetExhaustedException(reason);
+        // Rows are counted by whole ranges, since workers checking other ranges may stop at any point
+        long rows = 1L << atomicsList.size();
+        if (!found)
+            return ReasoningResult.enumerated(null, rows);
+        long rowsChecked = Math.min(rows, task.processedBlocks.get() * EvaluationProgram.LANES);
+        return BruteForceReasoner.counterexample(atomicsList, task.foundRow.get(), rowsChecked);
+    }
+
+    /**
+     * A task searching a range of blocks of 64 combinations for a counterexample.
+     * Ranges larger than {@link #CHUNK_BLOCKS} are split in half and searched in parallel.
+     */
+    private static class SearchTask extends RecursiveTask<Boolean> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final EvaluationProgram[] programs;
+        private final int numAtomics;
+        private final boolean equality;
+        private final AtomicBoolean found;
+        private final AtomicLong foundRow;
+        private final ReasoningBudget budget;
+        private final AtomicLong processedBlocks;
+        private final AtomicReference<UnknownReason> exhausted;
+        private final long fromBlock;
+        private final long toBlock;
+
+        /**
+         * Instantiates a task covering every block.
+         *
+         * @param programs either the two propositions being compared,
+         *                 or the conclusion followed by each premise
+         * @param equality whether to search for unequal truth values rather than argument counterexamples
+         */
+        SearchTask(EvaluationProgram[] programs, int numAtomics, boolean equality, ReasoningBudget budget) {
+            this(programs, numAtomics, equality, new AtomicBoolean(), new AtomicLong(-1), budget, new AtomicLong(),
+                    new AtomicReference<>(), 0, EvaluationProgram.blockCount(numAtomics));
+        }
+
+        private SearchTask(EvaluationProgram[] programs, int numAtomics, boolean equality,
+                           AtomicBoolean found, AtomicLong foundRow, ReasoningBudget budget, AtomicLong processedBlocks,
+                           AtomicReference<UnknownReason> exhausted, long fromBlock, long toBlock) {
+            this.programs = programs;
+            this.numAtomics = numAtomics;
+            this.equality = equality;
+            this.found = found;
+            this.foundRow = foundRow;
+            this.budget = budget;
+            this.processedBlocks = processedBlocks;
+            this.exhausted = exhausted;
+            this.fromBlock = fromBlock;
+            this.toBlock = toBlock;
+        }
+
+        @Override
+        protected Boolean compute() {
+            if (found.get())
+                return false;
+
+            if (toBlock - fromBlock > CHUNK_BLOCKS) {
+                long middle = fromBlock + (toBlock - fromBlock) / 2;
+                SearchTask upper = new SearchTask(programs, numAtomics, equality, found, foundRow, budget, processedBlocks,
+                        exhausted, middle, toBlock);
+                upper.fork();
+                boolean lowerFound = new SearchTask(programs, numAtomics, equality, found, foundRow, budget, processedBlocks,
+                        exhausted, fromBlock, middle).compute();
+                return upper.join() || lowerFound;
+            }
+
+            try {
+                BruteForceReasoner.checkpoint(budget, processedBlocks.get(), numAtomics);
+            } catch (BudgetExhaustedException e) {
+                // Stop every other worker too; the reason is rethrown once the pool has finished
+                exhausted.compareAndSet(null, e.getReason());
+                found.set(true);
+                return false;
+            }
+
+            long[][] registers = new long[programs.length][];
+            for (int i = 0; i < programs.length; i++)
+                registers[i] = programs[i].newLaneRegisters();
+            long[] lanes = new long[numAtomics];
+            long validLanes = EvaluationProgram.validLanes(numAtomics);
+
+            for (long block = toBlock - 1; block >= fromBlock; block--) {
+                if (found.get())
+                    return false;
+                EvaluationProgram.fillLanes(block, lanes);
+                long counterexamples = equality
+                        ? BruteForceReasoner.unequalLanes(programs[0], programs[1], lanes, registers[0], registers[1], validLanes)
+                        : BruteForceReasoner.counterexampleLanes(programs, lanes, registers, validLanes);
+                if (counterexamples != 0) {
+                    // Only the first worker to find a counterexample records it
+                    long row = block * EvaluationProgram.LANES + (Long.SIZE - 1 - Long.numberOfLeadingZeros(counterexamples));
+                    foundRow.compareAndSet(-1, row);
+                    processedBlocks.addAndGet(toBlock - block);
+                    found.set(true);
+                    return true;
+                }
+            }
+            processedBlocks.addAndGet(toBlock - fromBlock);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package logic;
+
+import java.time.Duration;
+
+/**
+ * Receives reports on how far a {@link Reasoner} has progressed through a question.
+ * <p>
+ * What is counted depends on the reasoner: rows of a truth table for {@link BruteForceReasoner},
+ * decisions for {@link logic.sat.SatReasoner}, and nodes for {@link logic.bdd.BddReasoner}.
+ * A question split into several parts (see {@link ReasoningResult#reduction()}) is reported one part at a time.
+ * Reports may come from any thread that works on the question.
+ *
+ * @see ReasoningBudget
+ */
+@FunctionalInterface
+public interface ProgressListener {
+
+    /**
+     * Called periodically while a question is being decided.
+     *
+     * @param processed          the amount of work done so far
+     * @param total              the total amount of work, or <code>-1</code> if it is not known in advance
+     * @param estimatedRemaining the time the rest of the work should take at the rate so far,
+     *                           or <code>null</code> if it cannot be estimated
+     */
+    void onProgress(long processed, long total, Duration estimatedRemaining);
+}
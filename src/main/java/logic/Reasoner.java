@@ -2,7 +2,9 @@ package logic;
 
 import common.PropositionEntry;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 /**
  * An interface allowing for different implementations of two key operations:
@@ -14,8 +16,9 @@ import java.util.Collection;
  * of the values of each {@link common.propositions.AtomicProposition AtomicProposition}
  * associated with each {@link PropositionEntry}.
  * <p>
- * After calling these methods, the value of each <code>AtomicProposition</code> may be different
- * from what they originally were.
+ * Implementations should not modify the value of any <code>AtomicProposition</code>,
+ * evaluating propositions with a {@link common.Assignment} or a compiled program instead,
+ * so that several threads may reason about propositions of one shared context at once.
  */
 public interface Reasoner {
     /**
@@ -51,4 +54,99 @@ public interface Reasoner {
      * @see <a href="https://en.wikipedia.org/wiki/Validity_(logic)">Wikipedia's definition of validity</a>
      */
     Boolean isArgumentValid(PropositionEntry conclusion, Collection<PropositionEntry> premises);
-}
\ No newline at end of file
+
+    /**
+     * Determines, for each of several conclusions, whether the same premises form a valid argument with it.
+     * <p>
+     * The default implementation asks {@link #isArgumentValid} once per conclusion;
+     * implementations may instead share the work spent on the premises between every conclusion.
+     *
+     * @param conclusions the conclusions to be proved
+     * @param premises    the premises used to prove every conclusion
+     * @return whether each conclusion follows from the premises, in the order of <code>conclusions</code>,
+     * with <code>null</code> where something went wrong
+     */
+    default List<Boolean> areArgumentsValid(List<PropositionEntry> conclusions, Collection<PropositionEntry> premises) {
+        List<Boolean> results = new ArrayList<>(conclusions.size());
+        for (PropositionEntry conclusion: conclusions)
+            results.add(isArgumentValid(conclusion, premises));
+        return results;
+    }
+
+    /**
+     * Determines whether two propositions are equivalent, as {@link #areEqual} does,
+     * after splitting them into independent parts that share no atomics.
+     * <p>
+     * Each part is decided with {@link #areEqual}, so the cost of enumerating truth values
+     * is the sum of the costs of each part rather than the cost of the whole.
+     * If the parts decide them unequal, the result carries an assignment of every atomic
+     * under which they differ when the implementation provides one for each part.
+     *
+     * @param p1 the first proposition
+     * @param p2 the second proposition
+     * @return whether the two propositions are equivalent, and how the question was split
+     */
+    default ReasoningResult checkEquality(PropositionEntry p1, PropositionEntry p2) {
+        return ComponentReduction.checkEquality(p1, p2,
+                (p, q) -> new ReasoningResult(areEqual(p, q), null),
+                (conclusion, premises) -> new ReasoningResult(isArgumentValid(conclusion, premises), null));
+    }
+
+    /**
+     * Determines whether an argument is valid, as {@link #isArgumentValid} does,
+     * after dropping the premises that share no atomics (even indirectly) with the conclusion.
+     * <p>
+     * Dropped premises are only checked for satisfiability, since unsatisfiable premises make any argument valid.
+     * If the argument is invalid, the result carries an assignment of every atomic refuting it,
+     * when the implementation provides one for each part.
+     *
+     * @param conclusion the conclusion to be proved
+     * @param premises   the premises used to prove the conclusion
+     * @return whether the argument is valid, and how the question was split
+     */
+    default ReasoningResult checkValidity(PropositionEntry conclusion, Collection<PropositionEntry> premises) {
+        return ComponentReduction.checkValidity(conclusion, premises,
+                (c, p) -> new ReasoningResult(isArgumentValid(c, p), null));
+    }
+
+    /**
+     * Determines whether two propositions are equivalent, as {@link #checkEquality(PropositionEntry, PropositionEntry)}
+     * does, giving up once the budget is exhausted.
+     * <p>
+     * The default implementation only checks the budget before starting, so a question already underway
+     * always runs to completion; implementations should check it regularly while working.
+     *
+     * @param p1     the first proposition
+     * @param p2     the second proposition
+     * @param budget the limits on the time spent, and where to report progress
+     * @return whether the two propositions are equivalent, or an {@link Verdict#UNKNOWN unknown} result
+     * with the reason the question was not decided
+     */
+    default ReasoningResult checkEquality(PropositionEntry p1, PropositionEntry p2, ReasoningBudget budget) {
+        UnknownReason reason = budget.exhaustedReason();
+        if (reason != null)
+            return ReasoningResult.unknown(reason);
+        return checkEquality(p1, p2);
+    }
+
+    /**
+     * Determines whether an argument is valid, as {@link #checkValidity(PropositionEntry, Collection)} does,
+     * giving up once the budget is exhausted.
+     * <p>
+     * The default implementation only checks the budget before starting, so a question already underway
+     * always runs to completion; implementations should check it regularly while working.
+     *
+     * @param conclusion the conclusion to be proved
+     * @param premises   the premises used to prove the conclusion
+     * @param budget     the limits on the time spent, and where to report progress
+     * @return whether the argument is valid, or an {@link Verdict#UNKNOWN unknown} result
+     * with the reason the question was not decided
+     */
+    default ReasoningResult checkValidity(PropositionEntry conclusion, Collection<PropositionEntry> premises,
+                                          ReasoningBudget budget) {
+        UnknownReason reason = budget.exhaustedReason();
+        if (reason != null)
+            return ReasoningResult.unknown(reason);
+        return checkValidity(conclusion, premises);
+    }
+}
@@ -0,0 +1,152 @@
+package logic;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits how long a {@link Reasoner} may spend on a question, and reports its progress.
+ * <p>
+ * A budget has an optional deadline, measured from its creation, and can be {@link #cancel() cancelled}
+ * from any thread. Reasoners call {@link #checkpoint(long, long)} at regular intervals while working,
+ * which throws a {@link BudgetExhaustedException} once the budget is exhausted, and passes progress on to
+ * the {@link ProgressListener} at most once every {@value #REPORT_INTERVAL_MILLIS} milliseconds.
+ * <p>
+ * One budget may be shared by several questions, in which case its deadline covers all of them.
+ * Methods may be called by several threads at once.
+ */
+public final class ReasoningBudget {
+
+    /**
+     * The shortest time between two reports to the progress listener.
+     */
+    public static final long REPORT_INTERVAL_MILLIS = 100;
+
+    private final long start = System.nanoTime();
+    private final long deadline;
+    private final boolean hasDeadline;
+    private final ProgressListener listener;
+    private volatile boolean cancelled = false;
+    private final AtomicLong nextReport;
+
+    /**
+     * Instantiates a new budget with no deadline and no progress listener, which only ends when cancelled.
+     */
+    public ReasoningBudget() {
+        this(null, null);
+    }
+
+    /**
+     * Instantiates a new budget with no progress listener.
+     *
+     * @param timeout how long questions may take from now, or <code>null</code> for no deadline
+     */
+    public ReasoningBudget(Duration timeout) {
+        this(timeout, null);
+    }
+
+    /**
+     * Instantiates a new budget.
+     *
+     * @param timeout  how long questions may take from now, or <code>null</code> for no deadline
+     * @param listener the listener to receive progress reports, or <code>null</code> for none
+     */
+    public ReasoningBudget(Duration timeout, ProgressListener listener) {
+        this.hasDeadline = timeout != null;
+        long nanos = timeout == null ? 0 : saturatedNanos(timeout);
+        // Saturate rather than overflow for very long timeouts
+        this.deadline = start + nanos < start ? Long.MAX_VALUE : start + nanos;
+        this.listener = listener;
+        this.nextReport = new AtomicLong(start);
+    }
+
+    /**
+     * Returns a new budget with no deadline and no progress listener.
+     */
+    public static ReasoningBudget unlimited() {
+        return new ReasoningBudget();
+    }
+
+    /**
+     * Cancels every question using this budget; they end at their next checkpoint.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Returns whether this budget has been cancelled.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Returns the time since this budget was created.
+     */
+    public Duration getElapsed() {
+        return Duration.ofNanos(System.nanoTime() - start);
+    }
+
+    /**
+     * Returns the time left before the deadline, or <code>null</code> if there is no deadline.
+     */
+    public Duration getRemaining() {
+        if (!hasDeadline)
+            return null;
+        return Duration.ofNanos(Math.max(0, deadline - System.nanoTime()));
+    }
+
+    /**
+     * Returns why this budget is exhausted, or <code>null</code> if it is not.
+     */
+    public UnknownReason exhaustedReason() {
+        if (cancelled)
+            return UnknownReason.CANCELLED;
+        if (hasDeadline && System.nanoTime() - deadline >= 0)
+            return UnknownReason.DEADLINE_EXCEEDED;
+        return null;
+    }
+
+    /**
+     * Throws if this budget is exhausted.
+     *
+     * @throws BudgetExhaustedException if this budget is cancelled or past its deadline
+     */
+    public void checkpoint() {
+        UnknownReason reason = exhaustedReason();
+        if (reason != null)
+            throw new BudgetExhaustedException(reason);
+    }
+
+    /**
+     * Throws if this budget is exhausted, and otherwise reports progress if a report is due.
+     *
+     * @param processed the amount of work done so far
+     * @param total     the total amount of work, or <code>-1</code> if it is not known in advance
+     * @throws BudgetExhaustedException if this budget is cancelled or past its deadline
+     */
+    public void checkpoint(long processed, long total) {
+        checkpoint();
+        if (listener == null)
+            return;
+
+        long now = System.nanoTime();
+        long due = nextReport.get();
+        if (now - due < 0 || !nextReport.compareAndSet(due, now + REPORT_INTERVAL_MILLIS * 1_000_000))
+            return;
+        Duration remaining = null;
+        if (total >= 0 && processed > 0) {
+            double nanosPerUnit = (double) (now - start) / processed;
+            remaining = Duration.ofNanos((long) (nanosPerUnit * Math.max(0, total - processed)));
+        }
+        listener.onProgress(processed, total, remaining);
+    }
+
+    private static long saturatedNanos(Duration timeout) {
+        try {
+            return Math.max(0, timeout.toNanos());
+        } catch (ArithmeticException e) {
+            return timeout.isNegative() ? 0 : Long.MAX_VALUE;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package logic;
+
+import common.propositions.AtomicProposition;
+
+import java.util.Map;
+
+/**
+ * The answer to a question asked of a {@link Reasoner}, together with how it was obtained.
+ * <p>
+ * When two propositions are found unequal, or an argument invalid, the result may carry the assignment
+ * that shows it: one where the propositions have different truth values, or one where every premise is true
+ * and the conclusion is false. It assigns at least every atomic the question depends on once simplified,
+ * so it can be explained without evaluating the truth table again.
+ *
+ * @param value          the answer, or <code>null</code> if the question was left undecided
+ * @param reduction      how the question was split before being decided, or <code>null</code> if that is not known,
+ *                       for example because the question was abandoned or answered from a cache
+ * @param reason         why the question was left undecided, or <code>null</code> if it was decided
+ * @param counterexample the truth value of each atomic in an assignment disproving equality or validity,
+ *                       or <code>null</code> if there is none or the reasoner does not provide one
+ * @param rowsChecked    the number of rows of the truth table evaluated,
+ *                       or <code>-1</code> if the reasoner does not enumerate rows
+ */
+public record ReasoningResult(Boolean value, Reduction reduction, UnknownReason reason,
+                              Map<AtomicProposition, Boolean> counterexample, long rowsChecked) {
+
+    /**
+     * Instantiates a result without a counterexample or a count of rows,
+     * with {@link UnknownReason#UNDECIDED} as the reason if <code>value</code> is <code>null</code>.
+     */
+    public ReasoningResult(Boolean value, Reduction reduction) {
+        this(value, reduction, value == null ? UnknownReason.UNDECIDED : null, null, -1);
+    }
+
+    /**
+     * Returns the result of a question abandoned for the given reason.
+     */
+    public static ReasoningResult unknown(UnknownReason reason) {
+        return new ReasoningResult(null, null, reason, null, -1);
+    }
+
+    /**
+     * Returns the result of a question decided by enumerating rows.
+     *
+     * @param counterexample the disproving assignment, or <code>null</code> if none was found
+     */
+    static ReasoningResult enumerated(Map<AtomicProposition, Boolean> counterexample, long rowsChecked) {
+        return new ReasoningResult(counterexample == null, null, null, counterexample, rowsChecked);
+    }
+
+    /**
+     * Returns the answer as a {@link Verdict}.
+     */
+    public Verdict verdict() {
+        return Verdict.of(value);
+    }
+
+    /**
+     * Returns a copy of this result with a different reduction.
+     */
+    public ReasoningResult withReduction(Reduction reduction) {
+        return new ReasoningResult(value, reduction, reason, counterexample, rowsChecked);
+    }
+}
@@ -0,0 +1,49 @@
+package logic;
+
+import common.PropositionEntry;
+import common.propositions.AtomicProposition;
+import logic.evaluation.PropositionCompiler;
+
+import java.util.*;
+
+/**
+ * Describes how a question was split before being decided.
+ * <p>
+ * The cost of enumerating truth values grows with the sum of <code>2^k</code>
+ * over the atomic counts <code>k</code> in {@link #componentAtomics()}, rather than with <code>2^atomics</code>.
+ *
+ * @param atomics          the number of distinct atomics in the original question
+ * @param componentAtomics the number of atomics in each independent part that was decided separately
+ * @param droppedPremises  the number of premises (or top-level conjuncts of premises) found to share no atomics
+ *                         with the conclusion, which were only checked for satisfiability
+ * @see ComponentReduction
+ */
+public record Reduction(int atomics, List<Integer> componentAtomics, int droppedPremises) {
+
+    /**
+     * Returns a reduction describing a question that was decided as a whole.
+     */
+    public static Reduction none(int atomics) {
+        return new Reduction(atomics, List.of(atomics), 0);
+    }
+
+    /**
+     * Returns a reduction describing a question about some entries that was decided as a whole.
+     */
+    public static Reduction none(Collection<PropositionEntry> entries) {
+        Set<AtomicProposition> atomics = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (PropositionEntry entry: entries)
+            atomics.addAll(PropositionCompiler.compile(entry).atomics());
+        return none(atomics.size());
+    }
+
+    /**
+     * Returns the number of atomics in the largest part that was decided separately.
+     */
+    public int largestComponent() {
+        int largest = 0;
+        for (int size: componentAtomics)
+            largest = Math.max(largest, size);
+        return largest;
+    }
+}
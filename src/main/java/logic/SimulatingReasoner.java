@@ -0,0 +1,242 @@
+package logic;
+
+import common.PropositionEntry;
+import common.propositions.AtomicProposition;
+import logic.evaluation.EvaluationProgram;
+import logic.evaluation.PropositionCompiler;
+
+import java.util.*;
+
+/**
+ * A {@link Reasoner} that tries to refute equality cheaply before asking another reasoner.
+ * <p>
+ * Both propositions are first evaluated on a fixed number of sample assignments, 64 at a time:
+ * a few corner cases (every atomic true, every atomic false, and every assignment where exactly one atomic
+ * differs from the rest), followed by pseudo-random assignments drawn from a fixed seed.
+ * Any sample where the propositions disagree proves them unequal, so <code>false</code> is returned at once;
+ * only when every sample agrees is the question passed on to the wrapped reasoner.
+ * Samples do not depend on the number of atomics, so even propositions too wide to enumerate can be refuted.
+ * <p>
+ * Questions about arguments are always passed on.
+ * <p>
+ * Methods may be called by several threads at once, as long as the wrapped reasoner allows it.
+ */
+public class SimulatingReasoner implements Reasoner {
+
+    /**
+     * The default number of sample assignments.
+     */
+    public static final int DEFAULT_SAMPLES = 4096;
+
+    /**
+     * The default seed of the pseudo-random samples.
+     */
+    public static final long DEFAULT_SEED = 0x5DEECE66DL;
+
+    private final Reasoner delegate;
+    private final int samples;
+    private final long seed;
+
+    private long rejections = 0;
+    private long fallbacks = 0;
+
+    /**
+     * Instantiates a new SimulatingReasoner with {@link #DEFAULT_SAMPLES} samples and seed {@link #DEFAULT_SEED}.
+     *
+     * @param delegate the reasoner asked whenever every sample agrees
+     */
+    public SimulatingReasoner(Reasoner delegate) {
+        this(delegate, DEFAULT_SAMPLES, DEFAULT_SEED);
+    }
+
+    /**
+     * Instantiates a new SimulatingReasoner.
+     *
+     * @param delegate the reasoner asked whenever every sample agrees
+     * @param samples  the number of sample assignments, corner cases included
+     * @param seed     the seed of the pseudo-random samples, which are the same for every question
+     * @throws IllegalArgumentException if <code>samples</code> is not positive
+     */
+    public SimulatingReasoner(Reasoner delegate, int samples, long seed) {
+        if (samples <= 0)
+            throw new IllegalArgumentException("Samples must be positive: " + samples);
+        this.delegate = delegate;
+        this.samples = samples;
+        this.seed = seed;
+    }
+
+    @Override
+    public Boolean areEqual(PropositionEntry p1, PropositionEntry p2) {
+        if (p1.proposition() != p2.proposition() && witness(p1, p2) != null)
+            return false;
+        return delegate.areEqual(p1, p2);
+    }
+
+    @Override
+    public Boolean isArgumentValid(PropositionEntry conclusion, Collection<PropositionEntry> premises) {
+        return delegate.isArgumentValid(conclusion, premises);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The question is decided as a whole instead, so that a refuting sample,
+     * or the counterexample of the wrapped reasoner, is returned.
+     */
+    @Override
+    public ReasoningResult checkEquality(PropositionEntry p1, PropositionEntry p2) {
+        return checkEquality(p1, p2, ReasoningBudget.unlimited());
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The question is decided as a whole instead, so that the counterexample of the wrapped reasoner is returned.
+     */
+    @Override
+    public ReasoningResult checkValidity(PropositionEntry conclusion, Collection<PropositionEntry> premises) {
+        return checkValidity(conclusion, premises, ReasoningBudget.unlimited());
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The samples are always tried in full; a question they do not settle is passed on with the budget.
+     * A refuting sample is returned as the counterexample, with <code>true</code> for every atomic
+     * that neither proposition depends on once simplified.
+     */
+    @Override
+    public ReasoningResult checkEquality(PropositionEntry p1, PropositionEntry p2, ReasoningBudget budget) {
+        Map<AtomicProposition, Boolean> witness = p1.proposition() == p2.proposition() ? null : witness(p1, p2);
+        if (witness == null)
+            return delegate.checkEquality(p1, p2, budget);
+        for (PropositionEntry entry: List.of(p1, p2)) {
+            for (AtomicProposition atomic: entry.atomics())
+                witness.putIfAbsent(atomic, true);
+        }
+        return new ReasoningResult(false, Reduction.none(List.of(p1, p2)), null, witness, -1);
+    }
+
+    @Override
+    public ReasoningResult checkValidity(PropositionEntry conclusion, Collection<PropositionEntry> premises,
+                                         ReasoningBudget budget) {
+        return delegate.checkValidity(conclusion, premises, budget);
+    }
+
+    /**
+     * Searches the sample assignments for one where two propositions have different truth values.
+     * <p>
+     * This does not affect the statistics.
+     *
+     * @return the truth value, in the first such sample, of every atomic that either proposition depends on
+     * once {@link common.Simplifier simplified}, or <code>null</code> if the propositions agree on every sample
+     */
+    public Map<AtomicProposition, Boolean> findWitness(PropositionEntry p1, PropositionEntry p2) {
+        List<EvaluationProgram> programs = List.of(PropositionCompiler.compile(p1), PropositionCompiler.compile(p2));
+        List<AtomicProposition> atomicsList = BruteForceReasoner.unionOfAtomics(programs);
+        EvaluationProgram[] bound = BruteForceReasoner.bindAll(programs, atomicsList);
+        EvaluationProgram p = bound[0];
+        EvaluationProgram q = bound[1];
+
+        long[] pRegisters = p.newLaneRegisters();
+        long[] qRegisters = q.newLaneRegisters();
+        long[] lanes = new long[atomicsList.size()];
+        SplittableRandom random = new SplittableRandom(seed);
+
+        int blocks = (samples + EvaluationProgram.LANES - 1) / EvaluationProgram.LANES;
+        for (int block = 0; block < blocks; block++) {
+            fillSamples(block, lanes, random);
+            int remaining = samples - block * EvaluationProgram.LANES;
+            long validLanes = remaining >= EvaluationProgram.LANES ? -1L : (1L << remaining) - 1;
+            long unequal = BruteForceReasoner.unequalLanes(p, q, lanes, pRegisters, qRegisters, validLanes);
+            if (unequal != 0) {
+                int lane = Long.numberOfTrailingZeros(unequal);
+                Map<AtomicProposition, Boolean> witness = new LinkedHashMap<>();
+                for (int i = 0; i < lanes.length; i++)
+                    witness.put(atomicsList.get(i), (lanes[i] >>> lane & 1) != 0);
+                return witness;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Searches the samples for one refuting the equality of two propositions, counting the outcome.
+     *
+     * @see #findWitness
+     */
+    private Map<AtomicProposition, Boolean> witness(PropositionEntry p1, PropositionEntry p2) {
+        Map<AtomicProposition, Boolean> witness = findWitness(p1, p2);
+        synchronized (this) {
+            if (witness != null)
+                rejections++;
+            else
+                fallbacks++;
+        }
+        return witness;
+    }
+
+    /**
+     * Fills <code>lanes</code> with the values of each atomic in the samples of one block.
+     * <p>
+     * Sample <code>0</code> sets every atomic, and sample <code>1</code> none of them;
+     * samples <code>2 + 2i</code> and <code>3 + 2i</code> clear or set only atomic <code>i</code>.
+     * Every later sample is pseudo-random.
+     */
+    private static void fillSamples(int block, long[] lanes, SplittableRandom random) {
+        for (int i = 0; i < lanes.length; i++)
+            lanes[i] = random.nextLong();
+
+        long corners = 2 + 2L * lanes.length;
+        long first = (long) block * EvaluationProgram.LANES;
+        for (int lane = 0; lane < EvaluationProgram.LANES && first + lane < corners; lane++) {
+            long sample = first + lane;
+            long bit = 1L << lane;
+            int odd = sample >= 2 ? (int) ((sample - 2) / 2) : -1;
+            boolean value = sample == 0 || (sample >= 2 && sample % 2 == 0);
+            for (int i = 0; i < lanes.length; i++) {
+                if (value != (i == odd))
+                    lanes[i] |= bit;
+                else
+                    lanes[i] &= ~bit;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of sample assignments tried per question.
+     */
+    public int getSamples() {
+        return samples;
+    }
+
+    /**
+     * Returns the seed of the pseudo-random samples.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns the number of equality questions answered by a disagreeing sample.
+     */
+    public synchronized long getRejections() {
+        return rejections;
+    }
+
+    /**
+     * Returns the number of equality questions passed on to the wrapped reasoner because every sample agreed.
+     */
+    public synchronized long getFallbacks() {
+        return fallbacks;
+    }
+
+    /**
+     * Returns the fraction of equality questions answered by a disagreeing sample,
+     * or <code>0</code> if none have been asked.
+     */
+    public synchronized double getHitRate() {
+        long total = rejections + fallbacks;
+        return total == 0 ? 0 : (double) rejections / total;
+    }
+}
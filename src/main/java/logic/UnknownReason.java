@@ -0,0 +1,20 @@
+package logic;
+
+/**
+ * The reasons a {@link Reasoner} may leave a question undecided.
+ */
+public enum UnknownReason {
+    /**
+     * The {@link ReasoningBudget} was cancelled.
+     */
+    CANCELLED,
+    /**
+     * The deadline of the {@link ReasoningBudget} passed.
+     */
+    DEADLINE_EXCEEDED,
+    /**
+     * The reasoner cannot decide the question, for example because it has too many atomics,
+     * or because an argument has no premises.
+     */
+    UNDECIDED
+}
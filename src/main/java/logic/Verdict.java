@@ -0,0 +1,24 @@
+package logic;
+
+/**
+ * The answer to a question asked of a {@link Reasoner}, where the question may have been left undecided.
+ *
+ * @see ReasoningResult#verdict()
+ */
+public enum Verdict {
+    TRUE,
+    FALSE,
+    /**
+     * The question was not decided; {@link ReasoningResult#reason()} tells why.
+     */
+    UNKNOWN;
+
+    /**
+     * Returns the verdict corresponding to an answer, where <code>null</code> means {@link #UNKNOWN}.
+     */
+    public static Verdict of(Boolean value) {
+        if (value == null)
+            return UNKNOWN;
+        return value ? TRUE : FALSE;
+    }
+}
@@ -0,0 +1,304 @@
+package logic.bdd;
+
+import logic.BudgetExhaustedException;
+import logic.ReasoningBudget;
+import logic.evaluation.EvaluationProgram;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A store of reduced ordered binary decision diagrams (BDDs) over a fixed variable order.
+ * <p>
+ * Nodes are identified by <code>int</code> ids and stored in parallel primitive arrays,
+ * with {@link #FALSE} and {@link #TRUE} as the two terminals. A hash-consed unique table guarantees
+ * that no two nodes have the same variable and children, so every function has exactly one node:
+ * two BDDs from the same manager are equivalent if and only if their ids are equal.
+ * <p>
+ * Operations are implemented with a memoised if-then-else, whose results are kept in a lossy cache.
+ * Nodes are never freed, so a manager should be discarded once its node count is no longer acceptable;
+ * exceeding the node limit given at construction throws a {@link NodeLimitExceededException}.
+ * <p>
+ * Variables are identified by their level: variable 0 is tested first, at the root.
+ * Instances hold mutable state and should not be shared between threads.
+ */
+public class BddManager {
+
+    /**
+     * The terminal node representing the constant <code>false</code>.
+     */
+    public static final int FALSE = 0;
+
+    /**
+     * The terminal node representing the constant <code>true</code>.
+     */
+    public static final int TRUE = 1;
+
+    private static final int TERMINAL_LEVEL = Integer.MAX_VALUE;
+    private static final int CACHE_SIZE = 1 << 16;
+    private static final int BUDGET_CHECK_MASK = (1 << 12) - 1;
+
+    private final int nodeLimit;
+    private ReasoningBudget budget;
+
+    // Node storage
+    private int[] levels = new int[1024];
+    private int[] lows = new int[1024];
+    private int[] highs = new int[1024];
+    private int size = 2;
+
+    // Unique table: open addressing over node ids, 0 marks an empty slot (FALSE is never stored)
+    private int[] unique = new int[2048];
+
+    // If-then-else cache, indexed by a hash of (f, g, h)
+    private final int[] cacheF = new int[CACHE_SIZE];
+    private final int[] cacheG = new int[CACHE_SIZE];
+    private final int[] cacheH = new int[CACHE_SIZE];
+    private final int[] cacheResult = new int[CACHE_SIZE];
+
+    /**
+     * Instantiates a new manager.
+     *
+     * @param nodeLimit the largest number of nodes this manager may hold
+     */
+    public BddManager(int nodeLimit) {
+        this.nodeLimit = nodeLimit;
+        levels[FALSE] = TERMINAL_LEVEL;
+        levels[TRUE] = TERMINAL_LEVEL;
+        Arrays.fill(cacheF, -1);
+    }
+
+    /**
+     * Sets the budget checked every 4096 new nodes, reporting progress as the number of nodes.
+     * <p>
+     * When the budget is exhausted, the operation underway throws a {@link BudgetExhaustedException};
+     * every node and id returned before then remains valid.
+     *
+     * @param budget the budget, or <code>null</code> for none
+     */
+    public void setBudget(ReasoningBudget budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Returns the number of nodes, including both terminals.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the node testing a single variable.
+     *
+     * @param level the variable, identified by its position in the order
+     */
+    public int variable(int level) {
+        return node(level, FALSE, TRUE);
+    }
+
+    /**
+     * Returns the negation of <code>f</code>.
+     */
+    public int not(int f) {
+        return ite(f, FALSE, TRUE);
+    }
+
+    /**
+     * Returns the conjunction of <code>f</code> and <code>g</code>.
+     */
+    public int and(int f, int g) {
+        return ite(f, g, FALSE);
+    }
+
+    /**
+     * Returns the disjunction of <code>f</code> and <code>g</code>.
+     */
+    public int or(int f, int g) {
+        return ite(f, TRUE, g);
+    }
+
+    /**
+     * Returns the implication from <code>f</code> to <code>g</code>.
+     */
+    public int imply(int f, int g) {
+        return ite(f, g, TRUE);
+    }
+
+    /**
+     * Returns the biconditional of <code>f</code> and <code>g</code>.
+     */
+    public int biconditional(int f, int g) {
+        return ite(f, g, not(g));
+    }
+
+    /**
+     * Returns the node for "if <code>f</code> then <code>g</code> else <code>h</code>".
+     *
+     * @throws NodeLimitExceededException if the result would need more nodes than allowed
+     */
+    public int ite(int f, int g, int h) {
+        if (f == TRUE)
+            return g;
+        if (f == FALSE)
+            return h;
+        if (g == h)
+            return g;
+        if (g == TRUE && h == FALSE)
+            return f;
+
+        int slot = cacheSlot(f, g, h);
+        if (cacheF[slot] == f && cacheG[slot] == g && cacheH[slot] == h)
+            return cacheResult[slot];
+
+        int top = Math.min(levels[f], Math.min(levels[g], levels[h]));
+        int high = ite(cofactor(f, top, true), cofactor(g, top, true), cofactor(h, top, true));
+        int low = ite(cofactor(f, top, false), cofactor(g, top, false), cofactor(h, top, false));
+        int result = node(top, low, high);
+
+        cacheF[slot] = f;
+        cacheG[slot] = g;
+        cacheH[slot] = h;
+        cacheResult[slot] = result;
+        return result;
+    }
+
+    /**
+     * Builds the BDD of the first output of a program.
+     *
+     * @param program a program whose atomic at index <code>i</code> is variable <code>variables[i]</code>
+     * @param variables the variable of each atomic of the program
+     */
+    public int build(EvaluationProgram program, int[] variables) {
+        int[] nodes = new int[program.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            int p = program.leftOperand(i);
+            int q = program.rightOperand(i);
+            nodes[i] = switch (program.operation(i)) {
+                case LOAD -> variable(variables[p]);
+                case TRUE -> TRUE;
+                case FALSE -> FALSE;
+                case NOT -> not(nodes[p]);
+                case AND -> and(nodes[p], nodes[q]);
+                case OR -> or(nodes[p], nodes[q]);
+                case IMPLY -> imply(nodes[p], nodes[q]);
+                case BICONDITIONAL -> biconditional(nodes[p], nodes[q]);
+            };
+        }
+        return nodes[program.outputRegister(0)];
+    }
+
+    /**
+     * Returns one assignment satisfying <code>f</code>, found by following a single path to {@link #TRUE}.
+     * <p>
+     * Every node other than {@link #FALSE} has such a path, so no search is needed.
+     *
+     * @return the value of each variable tested along the path, keyed by level, where any variable not included
+     * may take either value, or <code>null</code> if <code>f</code> is unsatisfiable
+     */
+    public Map<Integer, Boolean> satisfyingPath(int f) {
+        if (f == FALSE)
+            return null;
+        Map<Integer, Boolean> path = new HashMap<>();
+        while (f != TRUE) {
+            boolean value = highs[f] != FALSE;
+            path.put(levels[f], value);
+            f = value ? highs[f] : lows[f];
+        }
+        return path;
+    }
+
+    /**
+     * Returns the number of distinct nodes reachable from any of <code>roots</code>, including terminals.
+     */
+    public int nodeCount(int... roots) {
+        boolean[] marked = new boolean[size];
+        int[] stack = new int[size];
+        int top = 0;
+        int count = 0;
+        for (int root: roots) {
+            if (!marked[root]) {
+                marked[root] = true;
+                stack[top++] = root;
+            }
+        }
+        while (top > 0) {
+            int node = stack[--top];
+            count++;
+            if (node <= TRUE)
+                continue;
+            if (!marked[lows[node]]) {
+                marked[lows[node]] = true;
+                stack[top++] = lows[node];
+            }
+            if (!marked[highs[node]]) {
+                marked[highs[node]] = true;
+                stack[top++] = highs[node];
+            }
+        }
+        return count;
+    }
+
+    private int cofactor(int f, int level, boolean value) {
+        if (levels[f] != level)
+            return f;
+        return value ? highs[f] : lows[f];
+    }
+
+    /**
+     * Returns the unique node with the given variable and children, creating it if needed.
+     */
+    private int node(int level, int low, int high) {
+        if (low == high)
+            return low;
+
+        int mask = unique.length - 1;
+        int slot = hash(level, low, high) & mask;
+        while (unique[slot] != 0) {
+            int existing = unique[slot];
+            if (levels[existing] == level && lows[existing] == low && highs[existing] == high)
+                return existing;
+            slot = (slot + 1) & mask;
+        }
+
+        if (size >= nodeLimit)
+            throw new NodeLimitExceededException(nodeLimit);
+        if (budget != null && (size & BUDGET_CHECK_MASK) == 0)
+            budget.checkpoint(size, -1);
+        if (size == levels.length) {
+            int capacity = size * 2;
+            levels = Arrays.copyOf(levels, capacity);
+            lows = Arrays.copyOf(lows, capacity);
+            highs = Arrays.copyOf(highs, capacity);
+        }
+        int node = size++;
+        levels[node] = level;
+        lows[node] = low;
+        highs[node] = high;
+        unique[slot] = node;
+
+        if (2 * size > unique.length)
+            rehash();
+        return node;
+    }
+
+    private void rehash() {
+        unique = new int[unique.length * 2];
+        int mask = unique.length - 1;
+        for (int node = TRUE + 1; node < size; node++) {
+            int slot = hash(levels[node], lows[node], highs[node]) & mask;
+            while (unique[slot] != 0)
+                slot = (slot + 1) & mask;
+            unique[slot] = node;
+        }
+    }
+
+    private static int hash(int level, int low, int high) {
+        int h = level * 0x9E3779B1 + low * 0x85EBCA6B + high * 0xC2B2AE35;
+        return h ^ (h >>> 16);
+    }
+
+    private static int cacheSlot(int f, int g, int h) {
+        return hash(f, g, h) & (CACHE_SIZE - 1);
+    }
+}
@@ -0,0 +1,283 @@
+package logic.bdd;
+
+import common.PropositionEntry;
+import common.propositions.AtomicProposition;
+import common.propositions.Proposition;
+import logic.*;
+import logic.evaluation.EvaluationProgram;
+import logic.evaluation.PropositionCompiler;
+import logic.sat.SatReasoner;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * An implementation of the {@link Reasoner} interface that represents each proposition
+ * as a reduced ordered binary decision diagram (BDD).
+ * <p>
+ * BDDs are canonical, so once two propositions have been built, checking them for equality
+ * is a single comparison of node ids, and checking validity is one conjunction and one implication.
+ * Built BDDs are kept for as long as their propositions are reachable, so repeated questions about
+ * the entries of one {@link common.LogicContext LogicContext} are answered almost immediately.
+ * <p>
+ * Atomics are ordered by first occurrence, and {@link #reorder()} can improve the order by sifting.
+ * If a question needs more nodes than the node limit allows, every BDD is discarded and the question
+ * is retried once; if it still does not fit, it is passed to a fallback reasoner instead.
+ * <p>
+ * Results from {@link #checkEquality} and {@link #checkValidity} carry a counterexample read off a single path
+ * of the BDD disproving the question, with <code>true</code> for every atomic that path leaves free.
+ * <p>
+ * Methods are synchronized, so one instance may be shared between threads.
+ *
+ * @see BddManager
+ * @see VariableOrdering
+ */
+public class BddReasoner implements Reasoner {
+
+    /**
+     * The node limit used by {@link #BddReasoner()}.
+     */
+    public static final int DEFAULT_NODE_LIMIT = 1 << 22;
+
+    private final int nodeLimit;
+    private final Reasoner fallback;
+
+    private BddManager manager;
+    private final Map<AtomicProposition, Integer> levels = new WeakHashMap<>();
+    private final Map<Proposition, Integer> roots = new WeakHashMap<>();
+    private int nextLevel = 0;
+    private long fallbacks = 0;
+    // The budget of the question underway, if any
+    private ReasoningBudget budget;
+
+    /**
+     * Instantiates a new BddReasoner with the default node limit, falling back to a {@link SatReasoner}.
+     */
+    public BddReasoner() {
+        this(DEFAULT_NODE_LIMIT, new SatReasoner());
+    }
+
+    /**
+     * Instantiates a new BddReasoner.
+     *
+     * @param nodeLimit the largest number of nodes to keep at once
+     * @param fallback the reasoner used for questions whose BDDs would exceed <code>nodeLimit</code>
+     */
+    public BddReasoner(int nodeLimit, Reasoner fallback) {
+        this.nodeLimit = nodeLimit;
+        this.fallback = fallback;
+        this.manager = new BddManager(nodeLimit);
+    }
+
+    @Override
+    public synchronized Boolean areEqual(PropositionEntry p1, PropositionEntry p2) {
+        if (p1.proposition() == p2.proposition())
+            return true;
+        return attempt(
+                () -> root(p1) == root(p2),
+                () -> fallback.areEqual(p1, p2));
+    }
+
+    @Override
+    public synchronized Boolean isArgumentValid(PropositionEntry conclusion, Collection<PropositionEntry> premises) {
+        if (premises.isEmpty())
+            return null;
+        return attempt(
+                () -> implies(premises, conclusion),
+                () -> fallback.isArgumentValid(conclusion, premises));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The question is decided as a whole instead, so that a counterexample can be read from a path through the BDD.
+     */
+    @Override
+    public ReasoningResult checkEquality(PropositionEntry p1, PropositionEntry p2) {
+        return checkEquality(p1, p2, ReasoningBudget.unlimited());
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The question is decided as a whole instead, so that a counterexample can be read from a path through the BDD.
+     */
+    @Override
+    public ReasoningResult checkValidity(PropositionEntry conclusion, Collection<PropositionEntry> premises) {
+        return checkValidity(conclusion, premises, ReasoningBudget.unlimited());
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The question is decided as a whole, and the budget is checked, with progress reported as the number of nodes,
+     * every 4096 new nodes; questions passed to the fallback reasoner are given the same budget.
+     */
+    @Override
+    public synchronized ReasoningResult checkEquality(PropositionEntry p1, PropositionEntry p2, ReasoningBudget budget) {
+        List<PropositionEntry> entries = List.of(p1, p2);
+        if (p1.proposition() == p2.proposition())
+            return new ReasoningResult(true, Reduction.none(entries));
+        return withBudget(budget, () -> attempt(
+                () -> refute(manager.not(manager.biconditional(root(p1), root(p2))), entries),
+                () -> fallback.checkEquality(p1, p2, budget)));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The question is decided as a whole, and the budget is checked, with progress reported as the number of nodes,
+     * every 4096 new nodes; questions passed to the fallback reasoner are given the same budget.
+     */
+    @Override
+    public synchronized ReasoningResult checkValidity(PropositionEntry conclusion, Collection<PropositionEntry> premises,
+                                                      ReasoningBudget budget) {
+        List<PropositionEntry> entries = new ArrayList<>(premises);
+        entries.add(conclusion);
+        if (premises.isEmpty())
+            return new ReasoningResult(null, Reduction.none(entries));
+        return withBudget(budget, () -> attempt(
+                () -> refute(manager.not(implication(premises, conclusion)), entries),
+                () -> fallback.checkValidity(conclusion, premises, budget)));
+    }
+
+    /**
+     * Improves the variable order by {@link VariableOrdering#sift sifting}, then rebuilds every kept BDD.
+     *
+     * @return the number of nodes after reordering
+     */
+    public synchronized int reorder() {
+        List<Proposition> propositions = new ArrayList<>(roots.keySet());
+        List<EvaluationProgram> programs = new ArrayList<>(propositions.size());
+        for (Proposition p: propositions)
+            programs.add(PropositionCompiler.compile(p));
+
+        List<AtomicProposition> order = new ArrayList<>(levels.keySet());
+        order.sort(Comparator.comparingInt(levels::get));
+        order = VariableOrdering.sift(programs, order, nodeLimit);
+
+        reset();
+        for (AtomicProposition a: order)
+            levels.put(a, nextLevel++);
+        try {
+            for (Proposition p: propositions)
+                root(p);
+        } catch (NodeLimitExceededException e) {
+            reset();
+        }
+        return manager.size();
+    }
+
+    /**
+     * Returns the number of nodes currently kept.
+     */
+    public synchronized int getNodeCount() {
+        return manager.size();
+    }
+
+    /**
+     * Returns the number of questions passed to the fallback reasoner.
+     */
+    public synchronized long getFallbackCount() {
+        return fallbacks;
+    }
+
+    /**
+     * Runs a query with the budget checked by the manager, including any manager created by a reset.
+     *
+     * @return the result of the query, or an unknown result once the budget is exhausted
+     */
+    private ReasoningResult withBudget(ReasoningBudget budget, Supplier<ReasoningResult> query) {
+        this.budget = budget;
+        manager.setBudget(budget);
+        try {
+            return query.get();
+        } catch (BudgetExhaustedException e) {
+            return ReasoningResult.unknown(e.getReason());
+        } finally {
+            this.budget = null;
+            manager.setBudget(null);
+        }
+    }
+
+    private <T> T attempt(Supplier<T> query, Supplier<T> fallbackQuery) {
+        try {
+            return query.get();
+        } catch (NodeLimitExceededException e) {
+            reset();
+        }
+        try {
+            return query.get();
+        } catch (NodeLimitExceededException e) {
+            reset();
+        }
+        fallbacks++;
+        return fallbackQuery.get();
+    }
+
+    /**
+     * Returns whether the conjunction of the premises implies the conclusion.
+     */
+    private boolean implies(Collection<PropositionEntry> premises, PropositionEntry conclusion) {
+        return implication(premises, conclusion) == BddManager.TRUE;
+    }
+
+    /**
+     * Returns the BDD of the implication from the conjunction of the premises to the conclusion.
+     */
+    private int implication(Collection<PropositionEntry> premises, PropositionEntry conclusion) {
+        int conjunction = BddManager.TRUE;
+        for (PropositionEntry premise: premises)
+            conjunction = manager.and(conjunction, root(premise));
+        return manager.imply(conjunction, root(conclusion));
+    }
+
+    /**
+     * Returns the result of a question that holds exactly when <code>counterexamples</code> is unsatisfiable.
+     *
+     * @param counterexamples the BDD of every assignment disproving the question
+     * @param entries every entry in the question, whose atomics the counterexample assigns
+     */
+    private ReasoningResult refute(int counterexamples, List<PropositionEntry> entries) {
+        Reduction reduction = Reduction.none(entries);
+        Map<Integer, Boolean> path = manager.satisfyingPath(counterexamples);
+        if (path == null)
+            return new ReasoningResult(true, reduction);
+
+        Map<AtomicProposition, Boolean> counterexample = new LinkedHashMap<>();
+        for (PropositionEntry entry: entries) {
+            for (AtomicProposition atomic: entry.atomics()) {
+                Integer level = levels.get(atomic);
+                counterexample.putIfAbsent(atomic, level == null || path.getOrDefault(level, true));
+            }
+        }
+        return new ReasoningResult(false, reduction, null, counterexample, -1);
+    }
+
+    private int root(PropositionEntry entry) {
+        return root(entry.proposition());
+    }
+
+    private int root(Proposition proposition) {
+        Integer root = roots.get(proposition);
+        if (root != null)
+            return root;
+
+        EvaluationProgram program = PropositionCompiler.compile(proposition);
+        for (AtomicProposition a: program.atomics()) {
+            if (!levels.containsKey(a))
+                levels.put(a, nextLevel++);
+        }
+        root = manager.build(program, VariableOrdering.variablesOf(program, levels));
+        roots.put(proposition, root);
+        return root;
+    }
+
+    private void reset() {
+        manager = new BddManager(nodeLimit);
+        manager.setBudget(budget);
+        roots.clear();
+        levels.clear();
+        nextLevel = 0;
+    }
+}
@@ -0,0 +1,16 @@
+package logic.bdd;
+
+/**
+ * Thrown when a {@link BddManager} would need more nodes than its limit allows.
+ */
+public class NodeLimitExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Instantiates a new exception for a manager with the given limit.
+     */
+    public NodeLimitExceededException(int nodeLimit) {
+        super("BDD node limit exceeded (" + nodeLimit + " nodes)");
+    }
+}
@@ -0,0 +1,102 @@
+package logic.bdd;
+
+import common.propositions.AtomicProposition;
+import logic.evaluation.EvaluationProgram;
+
+import java.util.*;
+
+/**
+ * Heuristics for choosing the variable order of a {@link BddManager}.
+ * <p>
+ * The size of a BDD can differ exponentially between orders, so a good order
+ * matters far more than any other tuning.
+ */
+public final class VariableOrdering {
+
+    private VariableOrdering() {}
+
+    /**
+     * Orders atomics by their first occurrence, reading each program from left to right.
+     * <p>
+     * Atomics that appear close together in a proposition tend to interact,
+     * and this order keeps them on neighbouring levels.
+     */
+    public static List<AtomicProposition> firstOccurrence(Collection<EvaluationProgram> programs) {
+        Set<AtomicProposition> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<AtomicProposition> order = new ArrayList<>();
+        for (EvaluationProgram program: programs) {
+            for (AtomicProposition a: program.atomics()) {
+                if (seen.add(a))
+                    order.add(a);
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Improves an order by sifting: each atomic in turn is tried at every position,
+     * with the others kept in place, and left wherever the BDDs of all programs share the fewest nodes.
+     * <p>
+     * Each candidate order is measured by rebuilding every BDD, which costs a number of builds
+     * quadratic in the number of atomics. Candidates that would need more nodes than the best order so far
+     * are abandoned early.
+     *
+     * @param programs the programs whose BDDs should be small
+     * @param order an order containing every atomic of the programs
+     * @param nodeLimit the largest number of nodes a single build may use
+     * @return an order at least as good as <code>order</code>
+     */
+    public static List<AtomicProposition> sift(List<EvaluationProgram> programs, List<AtomicProposition> order, int nodeLimit) {
+        List<AtomicProposition> best = new ArrayList<>(order);
+        int bestSize = measure(programs, best, nodeLimit);
+
+        for (AtomicProposition atomic: order) {
+            List<AtomicProposition> others = new ArrayList<>(best);
+            int current = others.indexOf(atomic);
+            others.remove(current);
+
+            for (int position = 0; position <= others.size(); position++) {
+                if (position == current)
+                    continue;
+                List<AtomicProposition> candidate = new ArrayList<>(others);
+                candidate.add(position, atomic);
+                int size = measure(programs, candidate, bestSize == Integer.MAX_VALUE ? nodeLimit : Math.min(nodeLimit, 2 * bestSize));
+                if (size < bestSize) {
+                    best = candidate;
+                    bestSize = size;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the number of nodes shared by the BDDs of every program under <code>order</code>,
+     * or {@link Integer#MAX_VALUE} if building them would need more than <code>nodeLimit</code> nodes.
+     */
+    private static int measure(List<EvaluationProgram> programs, List<AtomicProposition> order, int nodeLimit) {
+        Map<AtomicProposition, Integer> levels = new IdentityHashMap<>();
+        for (int i = 0; i < order.size(); i++)
+            levels.put(order.get(i), i);
+
+        BddManager manager = new BddManager(nodeLimit);
+        int[] roots = new int[programs.size()];
+        try {
+            for (int i = 0; i < roots.length; i++)
+                roots[i] = manager.build(programs.get(i), variablesOf(programs.get(i), levels));
+        } catch (NodeLimitExceededException e) {
+            return Integer.MAX_VALUE;
+        }
+        return manager.nodeCount(roots);
+    }
+
+    /**
+     * Returns the variable of each atomic of <code>program</code>, as given by <code>levels</code>.
+     */
+    static int[] variablesOf(EvaluationProgram program, Map<AtomicProposition, Integer> levels) {
+        int[] variables = new int[program.atomics().size()];
+        for (int i = 0; i < variables.length; i++)
+            variables[i] = levels.get(program.atomics().get(i));
+        return variables;
+    }
+}
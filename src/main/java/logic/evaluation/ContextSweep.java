@@ -0,0 +1,250 @@
+package logic.evaluation;
+
+import common.PropositionEntry;
+import common.propositions.AtomicProposition;
+import common.propositions.BinaryProposition;
+import common.propositions.Proposition;
+import common.propositions.UnaryProposition;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import java.util.*;
+
+/**
+ * The truth tables of many entries, such as every entry of a {@link common.LogicContext LogicContext},
+ * computed together in a single pass over the union of their atomics.
+ * <p>
+ * Every entry is compiled into one {@link EvaluationProgram} with an output per column, so subformulas shared
+ * between entries are evaluated once per block of 64 rows, however many entries contain them.
+ * Optionally, every distinct subformula gets a column of its own as well.
+ * <p>
+ * Nothing is kept between blocks: {@link #sweep} hands each block of every column to a consumer as it is computed,
+ * and {@link #writeTo} streams the packed columns to a channel, so memory does not grow with the number of rows.
+ * Columns use the layout of {@link TruthTable}: bit <code>c</code> of block <code>c / 64</code> holds row
+ * <code>c</code>, where bit <code>i</code> of <code>c</code> holds the value of atomic <code>i</code>.
+ * <p>
+ * Unlike {@link PropositionCompiler#compile(PropositionEntry)}, propositions are not simplified first,
+ * so that every subformula keeps its column. Instances may be swept by several threads at once.
+ */
+public class ContextSweep {
+
+    /**
+     * The largest number of atomics whose rows can be numbered with a <code>long</code>.
+     */
+    public static final int MAX_ATOMICS = Long.SIZE - 2;
+
+    /**
+     * The number of bytes written to a channel at once, unless a single block needs more.
+     */
+    public static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Receives each block of every column during a {@link #sweep}.
+     */
+    @FunctionalInterface
+    public interface BlockConsumer {
+        /**
+         * Accepts one block of 64 rows.
+         *
+         * @param block the index of the block
+         * @param words word <code>block</code> of each column, in the order of {@link #getColumns()};
+         *              the array is reused for the next block
+         */
+        void accept(long block, long[] words) throws IOException;
+    }
+
+    private final EvaluationProgram program;
+    private final List<Proposition> columns = new ArrayList<>();
+    private final int entryCount;
+
+    /**
+     * Instantiates a sweep with one column per entry.
+     *
+     * @throws IllegalArgumentException if the entries have more than {@value #MAX_ATOMICS} atomics between them
+     */
+    public ContextSweep(Collection<? extends PropositionEntry> entries) {
+        this(entries, false);
+    }
+
+    /**
+     * Instantiates a sweep with one column per entry, followed by a column for every distinct subformula
+     * that is neither an atomic nor the proposition of an entry, if <code>subformulas</code> is set.
+     * Subformulas are ordered so that each comes after its own subformulas.
+     *
+     * @throws IllegalArgumentException if the entries have more than {@value #MAX_ATOMICS} atomics between them
+     */
+    public ContextSweep(Collection<? extends PropositionEntry> entries, boolean subformulas) {
+        PropositionCompiler compiler = new PropositionCompiler();
+        for (PropositionEntry entry: entries) {
+            compiler.add(entry.proposition());
+            columns.add(entry.proposition());
+        }
+        entryCount = columns.size();
+        if (subformulas) {
+            Set<Proposition> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+            seen.addAll(columns);
+            for (Proposition p: subformulasOf(columns)) {
+                if (seen.add(p)) {
+                    compiler.add(p);
+                    columns.add(p);
+                }
+            }
+        }
+        if (columns.isEmpty())
+            compiler.add(Proposition.getTrue());
+        program = compiler.build();
+        if (program.atomics().size() > MAX_ATOMICS)
+            throw new IllegalArgumentException("Too many atomic propositions! (" + program.atomics().size() + ")");
+    }
+
+    /**
+     * Returns the union of the atomics of every entry, in order of first appearance,
+     * where atomic <code>i</code> is read from bit <code>i</code> of a row.
+     */
+    public List<AtomicProposition> getAtomics() {
+        return program.atomics();
+    }
+
+    /**
+     * Returns the proposition of each column: those of the entries, in order, followed by any subformulas.
+     */
+    public List<Proposition> getColumns() {
+        return Collections.unmodifiableList(columns);
+    }
+
+    /**
+     * Returns the number of columns belonging to entries rather than subformulas.
+     */
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * Returns the number of rows of each column, <code>2<sup>n</sup></code> for <code>n</code> atomics.
+     */
+    public long rowCount() {
+        return 1L << program.atomics().size();
+    }
+
+    /**
+     * Returns the number of blocks of 64 rows in each column.
+     */
+    public long blockCount() {
+        return EvaluationProgram.blockCount(program.atomics().size());
+    }
+
+    /**
+     * Evaluates every block of rows once, in increasing order, and passes the words of every column to a consumer.
+     */
+    public void sweep(BlockConsumer consumer) throws IOException {
+        int numAtomics = program.atomics().size();
+        long[] lanes = new long[numAtomics];
+        long[] registers = program.newLaneRegisters();
+        long validLanes = EvaluationProgram.validLanes(numAtomics);
+        long[] words = new long[columns.size()];
+
+        for (long block = 0; block < blockCount(); block++) {
+            EvaluationProgram.fillLanes(block, lanes);
+            program.evaluateLanes(lanes, registers);
+            for (int i = 0; i < words.length; i++)
+                words[i] = program.outputLanes(i, registers) & validLanes;
+            consumer.accept(block, words);
+        }
+    }
+
+    /**
+     * Streams every column to a channel, block by block: for each block in increasing order,
+     * one little-endian <code>long</code> per column, in the order of {@link #getColumns()}.
+     *
+     * @return the number of bytes written
+     */
+    public long writeTo(WritableByteChannel channel) throws IOException {
+        int blockBytes = columns.size() * Long.BYTES;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(Math.max(BUFFER_SIZE, blockBytes))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        long[] written = {0};
+        sweep((block, words) -> {
+            if (buffer.remaining() < blockBytes)
+                written[0] += flush(buffer, channel);
+            for (long word: words)
+                buffer.putLong(word);
+        });
+        written[0] += flush(buffer, channel);
+        return written[0];
+    }
+
+    /**
+     * Returns the table of every column over {@link #getAtomics()}, keeping every column in memory at once.
+     *
+     * @throws IllegalArgumentException if there are more than {@value TruthTable#MAX_ATOMICS} atomics
+     */
+    public List<TruthTable> toTables() {
+        List<TruthTable> tables = new ArrayList<>(columns.size());
+        for (int i = 0; i < columns.size(); i++)
+            tables.add(new TruthTable(program.atomics()));
+        try {
+            sweep((block, words) -> {
+                for (int i = 0; i < words.length; i++)
+                    tables.get(i).setWord(block, words[i]);
+            });
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return tables;
+    }
+
+    private static int flush(ByteBuffer buffer, WritableByteChannel channel) throws IOException {
+        buffer.flip();
+        int bytes = buffer.remaining();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+        return bytes;
+    }
+
+    /**
+     * Returns every distinct subformula of the given propositions that is not an atomic, in post-order,
+     * walking each shared node only once.
+     */
+    private static List<Proposition> subformulasOf(List<Proposition> roots) {
+        List<Proposition> order = new ArrayList<>();
+        Set<Proposition> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Proposition> stack = new ArrayDeque<>();
+        for (Proposition root: roots) {
+            stack.push(root);
+            while (!stack.isEmpty()) {
+                Proposition node = stack.peek();
+                if (visited.contains(node) || node instanceof AtomicProposition) {
+                    stack.pop();
+                    continue;
+                }
+                boolean ready = true;
+                // Right is pushed first so that the left operand is visited first
+                List<Proposition> children = childrenOf(node);
+                for (int i = children.size() - 1; i >= 0; i--) {
+                    Proposition child = children.get(i);
+                    if (!visited.contains(child) && !(child instanceof AtomicProposition)) {
+                        stack.push(child);
+                        ready = false;
+                    }
+                }
+                if (ready) {
+                    stack.pop();
+                    visited.add(node);
+                    order.add(node);
+                }
+            }
+        }
+        return order;
+    }
+
+    private static List<Proposition> childrenOf(Proposition node) {
+        if (node instanceof UnaryProposition unary)
+            return List.of(unary.getProposition());
+        if (node instanceof BinaryProposition binary)
+            return List.of(binary.getLeftProposition(), binary.getRightProposition());
+        throw new IllegalStateException("Unexpected proposition type: " + node.getClass());
+    }
+}
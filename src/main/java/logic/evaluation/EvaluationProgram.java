@@ -0,0 +1,339 @@
+package logic.evaluation;
+
+import common.Assignment;
+import common.propositions.AtomicProposition;
+
+import java.util.*;
+
+/**
+ * A flat, post-order instruction sequence equivalent to one or more {@link common.propositions.Proposition} trees.
+ * <p>
+ * Instruction <code>i</code> always writes register <code>i</code>, and its operands are either
+ * registers of earlier instructions or, for <code>LOAD</code>, a slot in {@link #atomics()}.
+ * Evaluating a program is therefore a single forward loop over primitive arrays,
+ * with no virtual dispatch and no allocation once a register file has been obtained from {@link #newRegisters()}.
+ * <p>
+ * Programs are immutable and never modify the values of their {@link AtomicProposition AtomicPropositions},
+ * so one program may be shared between threads as long as each thread uses its own register file.
+ * <p>
+ * Programs are created by {@link PropositionCompiler}.
+ *
+ * @see PropositionCompiler
+ */
+public final class EvaluationProgram {
+
+    static final byte LOAD = 0;
+    static final byte CONSTANT_TRUE = 1;
+    static final byte CONSTANT_FALSE = 2;
+    static final byte NOT = 3;
+    static final byte AND = 4;
+    static final byte OR = 5;
+    static final byte IMPLY = 6;
+    static final byte BICONDITIONAL = 7;
+
+    /**
+     * The number of rows evaluated at once by {@link #evaluateLanes(long[], long[])}.
+     */
+    public static final int LANES = Long.SIZE;
+
+    /**
+     * The lane patterns of the atomics that change within a block of 64 rows:
+     * lane <code>j</code> of pattern <code>i</code> is bit <code>i</code> of <code>j</code>.
+     */
+    private static final long[] LOW_LANE_PATTERNS = {
+            0xAAAAAAAAAAAAAAAAL,
+            0xCCCCCCCCCCCCCCCCL,
+            0xF0F0F0F0F0F0F0F0L,
+            0xFF00FF00FF00FF00L,
+            0xFFFF0000FFFF0000L,
+            0xFFFFFFFF00000000L
+    };
+
+    // Package-private so that other evaluators in this package can run instructions directly
+    final byte[] opcodes;
+    final int[] left;
+    final int[] right;
+    final int[] outputs;
+    final byte[] truthTables;
+    private final List<AtomicProposition> atomics;
+    private final int[] loads;
+
+    EvaluationProgram(byte[] opcodes, int[] left, int[] right, int[] outputs, List<AtomicProposition> atomics) {
+        this.opcodes = opcodes;
+        this.left = left;
+        this.right = right;
+        this.outputs = outputs;
+        this.atomics = Collections.unmodifiableList(atomics);
+
+        // When evaluating one row, every other instruction indexes a 4-bit truth table with (left, right),
+        // which avoids a hard-to-predict branch on the opcode for a single bit of work
+        this.truthTables = new byte[opcodes.length];
+        int loadCount = 0;
+        for (int i = 0; i < opcodes.length; i++) {
+            if (opcodes[i] == LOAD)
+                loadCount++;
+            truthTables[i] = truthTable(opcodes[i]);
+        }
+        this.loads = new int[loadCount];
+        for (int i = 0, j = 0; i < opcodes.length; i++) {
+            if (opcodes[i] == LOAD)
+                loads[j++] = i;
+        }
+    }
+
+    /**
+     * Returns the truth table of an operation, where bit <code>2 * p + q</code> holds the result for operands p and q,
+     * or -1 for <code>LOAD</code>.
+     */
+    private static byte truthTable(byte opcode) {
+        return switch (opcode) {
+            case LOAD -> -1;
+            case CONSTANT_TRUE -> 0b1111;
+            case CONSTANT_FALSE -> 0b0000;
+            case NOT -> 0b0011;
+            case AND -> 0b1000;
+            case OR -> 0b1110;
+            case IMPLY -> 0b1011;
+            case BICONDITIONAL -> 0b1001;
+            default -> throw new IllegalStateException("Unknown opcode: " + opcode);
+        };
+    }
+
+    /**
+     * Returns the atomics read by this program.
+     * <p>
+     * The atomic at index <code>i</code> is read from bit <code>i</code> of an assignment.
+     */
+    public List<AtomicProposition> atomics() {
+        return atomics;
+    }
+
+    /**
+     * Returns the number of instructions (and registers) in this program.
+     */
+    public int size() {
+        return opcodes.length;
+    }
+
+    /**
+     * Returns the operation performed by instruction <code>i</code>.
+     */
+    public Operation operation(int i) {
+        return Operation.of(opcodes[i]);
+    }
+
+    /**
+     * Returns the register read as the first operand of instruction <code>i</code>,
+     * or for a {@link Operation#LOAD LOAD}, the index of the atomic it reads.
+     */
+    public int leftOperand(int i) {
+        return left[i];
+    }
+
+    /**
+     * Returns the register read as the second operand of instruction <code>i</code>,
+     * which is only meaningful for binary operations.
+     */
+    public int rightOperand(int i) {
+        return right[i];
+    }
+
+    /**
+     * Returns the register holding an output.
+     *
+     * @param index the index of the output, in the order propositions were added to the compiler
+     */
+    public int outputRegister(int index) {
+        return outputs[index];
+    }
+
+    /**
+     * Returns the number of propositions this program computes.
+     */
+    public int outputCount() {
+        return outputs.length;
+    }
+
+    /**
+     * Returns a register file large enough to evaluate this program.
+     */
+    public boolean[] newRegisters() {
+        return new boolean[opcodes.length];
+    }
+
+    /**
+     * Evaluates every instruction, then returns the value of the first output.
+     *
+     * @param assignment the truth values of each atomic, where bit <code>i</code> holds the value of atomic <code>i</code>
+     * @param registers a register file from {@link #newRegisters()}
+     * @return the truth value of the first compiled proposition
+     */
+    public boolean evaluate(long assignment, boolean[] registers) {
+        final int[] left = this.left;
+        final int[] loads = this.loads;
+        for (int i = 0; i < loads.length; i++)
+            registers[loads[i]] = (assignment >>> left[loads[i]] & 1L) != 0;
+        return run(registers);
+    }
+
+    /**
+     * Evaluates every instruction, then returns the value of the first output.
+     * <p>
+     * Unlike {@link #evaluate(long, boolean[])}, the assignment may order its atomics differently from this program,
+     * and may hold any number of them.
+     *
+     * @param assignment the truth values of every atomic of this program
+     * @param registers a register file from {@link #newRegisters()}
+     * @return the truth value of the first compiled proposition
+     * @throws IllegalArgumentException if an atomic of this program is not part of the assignment
+     */
+    public boolean evaluate(Assignment assignment, boolean[] registers) {
+        final int[] ids = assignment.idsOf(atomics);
+        final int[] left = this.left;
+        final int[] loads = this.loads;
+        for (int i = 0; i < loads.length; i++)
+            registers[loads[i]] = assignment.get(ids[left[loads[i]]]);
+        return run(registers);
+    }
+
+    /**
+     * Evaluates every instruction other than <code>LOAD</code>, whose registers must already be filled.
+     */
+    private boolean run(boolean[] registers) {
+        final byte[] truthTables = this.truthTables;
+        final int[] left = this.left;
+        final int[] right = this.right;
+        for (int i = 0; i < truthTables.length; i++) {
+            if (truthTables[i] < 0)
+                continue;
+            int row = (registers[left[i]] ? 2 : 0) | (registers[right[i]] ? 1 : 0);
+            registers[i] = (truthTables[i] >> row & 1) != 0;
+        }
+        return registers[outputs[0]];
+    }
+
+    /**
+     * Returns a register file large enough to evaluate this program 64 rows at a time.
+     */
+    public long[] newLaneRegisters() {
+        return new long[opcodes.length];
+    }
+
+    /**
+     * Evaluates every instruction for 64 assignments at once, then returns the lanes of the first output.
+     * <p>
+     * Each <code>long</code> holds one truth value per bit (lane), so every operation is a single bitwise
+     * expression covering all 64 assignments, which is worth the branch on its opcode.
+     * Use {@link #fillLanes(long, long[])} to obtain the lanes
+     * of consecutive rows of a truth table.
+     *
+     * @param lanes the truth values of each atomic, where bit <code>j</code> of <code>lanes[i]</code>
+     *              holds the value of atomic <code>i</code> in assignment <code>j</code>
+     * @param registers a register file from {@link #newLaneRegisters()}
+     * @return the truth values of the first compiled proposition, one per lane
+     */
+    public long evaluateLanes(long[] lanes, long[] registers) {
+        final byte[] opcodes = this.opcodes;
+        final int[] left = this.left;
+        final int[] right = this.right;
+        for (int i = 0; i < opcodes.length; i++) {
+            registers[i] = switch (opcodes[i]) {
+                case LOAD -> lanes[left[i]];
+                case CONSTANT_TRUE -> -1L;
+                case CONSTANT_FALSE -> 0L;
+                case NOT -> ~registers[left[i]];
+                case AND -> registers[left[i]] & registers[right[i]];
+                case OR -> registers[left[i]] | registers[right[i]];
+                case IMPLY -> ~registers[left[i]] | registers[right[i]];
+                case BICONDITIONAL -> ~(registers[left[i]] ^ registers[right[i]]);
+                default -> throw new IllegalStateException("Unknown opcode: " + opcodes[i]);
+            };
+        }
+        return registers[outputs[0]];
+    }
+
+    /**
+     * Returns the lanes of an output from the last evaluation using <code>registers</code>.
+     *
+     * @param index the index of the output, in the order propositions were added to the compiler
+     * @param registers the register file that was last passed to {@link #evaluateLanes(long[], long[])}
+     */
+    public long outputLanes(int index, long[] registers) {
+        return registers[outputs[index]];
+    }
+
+    /**
+     * Fills <code>lanes</code> with the truth values of each atomic for rows
+     * <code>64 * block</code> through <code>64 * block + 63</code> of a truth table,
+     * where bit <code>i</code> of a row number holds the value of atomic <code>i</code>.
+     * <p>
+     * The first six atomics alternate within a block, and the remaining atomics are constant across it.
+     *
+     * @param block the index of the block of 64 rows
+     * @param lanes one element per atomic, to be overwritten
+     */
+    public static void fillLanes(long block, long[] lanes) {
+        for (int i = 0; i < lanes.length; i++) {
+            if (i < LOW_LANE_PATTERNS.length)
+                lanes[i] = LOW_LANE_PATTERNS[i];
+            else
+                lanes[i] = -(block >>> (i - LOW_LANE_PATTERNS.length) & 1L);
+        }
+    }
+
+    /**
+     * Returns the number of blocks of 64 rows needed to cover every assignment of <code>atomicCount</code> atomics.
+     */
+    public static long blockCount(int atomicCount) {
+        return atomicCount <= LOW_LANE_PATTERNS.length ? 1 : 1L << (atomicCount - LOW_LANE_PATTERNS.length);
+    }
+
+    /**
+     * Returns a mask of the lanes that hold real rows when there are <code>atomicCount</code> atomics.
+     * <p>
+     * With fewer than six atomics a block has fewer than 64 rows, and the remaining lanes must be ignored.
+     */
+    public static long validLanes(int atomicCount) {
+        return atomicCount >= LOW_LANE_PATTERNS.length ? -1L : (1L << (1 << atomicCount)) - 1;
+    }
+
+    /**
+     * Returns the value of an output from the last evaluation using <code>registers</code>.
+     *
+     * @param index the index of the output, in the order propositions were added to the compiler
+     * @param registers the register file that was last passed to {@link #evaluate(long, boolean[])}
+     */
+    public boolean output(int index, boolean[] registers) {
+        return registers[outputs[index]];
+    }
+
+    /**
+     * Returns a copy of this program that reads its atomics from the positions they hold in <code>order</code>.
+     * <p>
+     * This allows programs compiled separately to be evaluated against one shared assignment.
+     * Instructions are shared with this program, so binding costs one pass over the instructions.
+     *
+     * @param order a list containing at least every atomic of this program
+     * @throws IllegalArgumentException if an atomic of this program is missing from <code>order</code>
+     */
+    public EvaluationProgram bind(List<AtomicProposition> order) {
+        Map<AtomicProposition, Integer> positions = new IdentityHashMap<>();
+        for (int i = 0; i < order.size(); i++)
+            positions.putIfAbsent(order.get(i), i);
+
+        int[] slots = new int[atomics.size()];
+        for (int slot = 0; slot < slots.length; slot++) {
+            Integer position = positions.get(atomics.get(slot));
+            if (position == null)
+                throw new IllegalArgumentException("Atomic '" + atomics.get(slot) + "' is not in the given order");
+            slots[slot] = position;
+        }
+
+        int[] boundLeft = left.clone();
+        for (int i = 0; i < opcodes.length; i++) {
+            if (opcodes[i] == LOAD)
+                boundLeft[i] = slots[left[i]];
+        }
+        return new EvaluationProgram(opcodes, boundLeft, right, outputs, new ArrayList<>(order));
+    }
+}
@@ -0,0 +1,176 @@
+package logic.evaluation;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the value of every instruction of an {@link EvaluationProgram} up to date
+ * while atomics are flipped one at a time.
+ * <p>
+ * For each atomic, the evaluator indexes its <em>cone</em>: the instructions that depend on it, directly or not,
+ * in evaluation order. {@link #flip(int)} only revisits the cone of the flipped atomic,
+ * and skips instructions whose operands did not change, so a flip costs at most
+ * the number of instructions on the paths from that atomic's occurrences to the outputs.
+ * <p>
+ * This pairs naturally with Gray-code enumeration, where consecutive assignments differ in exactly one atomic.
+ * <p>
+ * Instances hold mutable state and should not be shared between threads.
+ */
+public class IncrementalEvaluator {
+
+    private final EvaluationProgram program;
+    private final boolean[] registers;
+    private final boolean[] changed;
+    private final int[][] cones;
+    private long assignment;
+
+    /**
+     * Instantiates a new evaluator, indexing the cone of every atomic of <code>program</code>.
+     *
+     * @param program the program to evaluate, which should have at most 64 atomics
+     */
+    public IncrementalEvaluator(EvaluationProgram program) {
+        this.program = program;
+        this.registers = program.newRegisters();
+        this.changed = new boolean[program.size()];
+        this.cones = buildCones(program);
+    }
+
+    /**
+     * Fully evaluates the program under a new assignment.
+     *
+     * @param assignment the truth values of each atomic, where bit <code>i</code> holds the value of atomic <code>i</code>
+     */
+    public void reset(long assignment) {
+        this.assignment = assignment;
+        program.evaluate(assignment, registers);
+    }
+
+    /**
+     * Negates the value of one atomic, then re-evaluates only the instructions that depend on it.
+     *
+     * @param atomic the index of the atomic in {@link EvaluationProgram#atomics()}
+     * @return whether the value of any output changed
+     */
+    public boolean flip(int atomic) {
+        assignment ^= 1L << atomic;
+        final byte[] truthTables = program.truthTables;
+        final int[] left = program.left;
+        final int[] right = program.right;
+        final int[] cone = cones[atomic];
+
+        for (int i: cone) {
+            if (truthTables[i] < 0) { // LOAD of the flipped atomic
+                registers[i] = !registers[i];
+                changed[i] = true;
+            }
+            else if (changed[left[i]] || changed[right[i]]) {
+                int row = (registers[left[i]] ? 2 : 0) | (registers[right[i]] ? 1 : 0);
+                boolean value = (truthTables[i] >> row & 1) != 0;
+                changed[i] = value != registers[i];
+                registers[i] = value;
+            }
+        }
+
+        boolean outputChanged = false;
+        for (int output: program.outputs)
+            outputChanged |= changed[output];
+        for (int i: cone)
+            changed[i] = false;
+        return outputChanged;
+    }
+
+    /**
+     * Returns the current value of the first output.
+     */
+    public boolean value() {
+        return registers[program.outputs[0]];
+    }
+
+    /**
+     * Returns the current value of an output.
+     *
+     * @param index the index of the output, in the order propositions were added to the compiler
+     */
+    public boolean value(int index) {
+        return registers[program.outputs[index]];
+    }
+
+    /**
+     * Returns the current assignment.
+     */
+    public long assignment() {
+        return assignment;
+    }
+
+    /**
+     * Returns the number of instructions that a flip of <code>atomic</code> may revisit.
+     */
+    public int coneSize(int atomic) {
+        return cones[atomic].length;
+    }
+
+    private static int[][] buildCones(EvaluationProgram program) {
+        int size = program.size();
+        byte[] opcodes = program.opcodes;
+
+        // Consumers of each instruction, stored as compressed rows
+        int[] consumerCounts = new int[size + 1];
+        for (int i = 0; i < size; i++) {
+            if (isOperation(opcodes[i])) {
+                consumerCounts[program.left[i] + 1]++;
+                if (isBinary(opcodes[i]))
+                    consumerCounts[program.right[i] + 1]++;
+            }
+        }
+        for (int i = 0; i < size; i++)
+            consumerCounts[i + 1] += consumerCounts[i];
+        int[] consumers = new int[consumerCounts[size]];
+        int[] next = Arrays.copyOf(consumerCounts, size);
+        for (int i = 0; i < size; i++) {
+            if (isOperation(opcodes[i])) {
+                consumers[next[program.left[i]]++] = i;
+                if (isBinary(opcodes[i]))
+                    consumers[next[program.right[i]]++] = i;
+            }
+        }
+
+        int[][] cones = new int[program.atomics().size()][];
+        int[] visitedBy = new int[size];
+        Arrays.fill(visitedBy, -1);
+        int[] stack = new int[size];
+        int[] cone = new int[size];
+        for (int atomic = 0; atomic < cones.length; atomic++) {
+            int top = 0;
+            int coneSize = 0;
+            for (int i = 0; i < size; i++) {
+                if (opcodes[i] == EvaluationProgram.LOAD && program.left[i] == atomic) {
+                    visitedBy[i] = atomic;
+                    stack[top++] = i;
+                }
+            }
+            while (top > 0) {
+                int instruction = stack[--top];
+                cone[coneSize++] = instruction;
+                for (int c = consumerCounts[instruction]; c < consumerCounts[instruction + 1]; c++) {
+                    int consumer = consumers[c];
+                    if (visitedBy[consumer] != atomic) {
+                        visitedBy[consumer] = atomic;
+                        stack[top++] = consumer;
+                    }
+                }
+            }
+            // Instructions only read earlier registers, so ascending order is an evaluation order
+            cones[atomic] = Arrays.copyOf(cone, coneSize);
+            Arrays.sort(cones[atomic]);
+        }
+        return cones;
+    }
+
+    private static boolean isOperation(byte opcode) {
+        return opcode >= EvaluationProgram.NOT;
+    }
+
+    private static boolean isBinary(byte opcode) {
+        return opcode > EvaluationProgram.NOT;
+    }
+}
@@ -0,0 +1,26 @@
+package logic.evaluation;
+
+/**
+ * An enum class representing the operation performed by one instruction of an {@link EvaluationProgram}.
+ * <p>
+ * Ordinals match the opcodes stored in compiled programs.
+ */
+public enum Operation {
+    /**
+     * Reads the value of an atomic. Its left operand is the index of the atomic, rather than a register.
+     */
+    LOAD,
+    TRUE,
+    FALSE,
+    NOT,
+    AND,
+    OR,
+    IMPLY,
+    BICONDITIONAL;
+
+    private static final Operation[] values = values();
+
+    static Operation of(byte opcode) {
+        return values[opcode];
+    }
+}
@@ -0,0 +1,184 @@
+package logic.evaluation;
+
+import common.PropositionEntry;
+import common.Simplifier;
+import common.operators.BinaryOperator;
+import common.propositions.AtomicProposition;
+import common.propositions.BinaryProposition;
+import common.propositions.Proposition;
+import common.propositions.UnaryProposition;
+
+import java.util.*;
+
+/**
+ * A class that translates {@link Proposition} trees into {@link EvaluationProgram EvaluationPrograms}.
+ * <p>
+ * Trees are walked iteratively in post-order, so arbitrarily deep propositions can be compiled
+ * without risking a {@link StackOverflowError}. A node reached more than once
+ * (because it is shared between trees or subtrees) is only compiled once.
+ * <p>
+ * Atomics are assigned slots in the order they are first encountered, from left to right.
+ * <p>
+ * For single propositions, {@link #compile(PropositionEntry)} should be preferred,
+ * as it reuses programs that have already been compiled.
+ * Several propositions may share one program by {@link #add adding} each of them to a single compiler.
+ */
+public class PropositionCompiler {
+
+    private static final Map<Proposition, EvaluationProgram> cache = new WeakHashMap<>();
+
+    private byte[] opcodes = new byte[16];
+    private int[] left = new int[16];
+    private int[] right = new int[16];
+    private int size = 0;
+
+    private final Map<Proposition, Integer> registers = new IdentityHashMap<>();
+    private final Map<AtomicProposition, Integer> slots = new IdentityHashMap<>();
+    private final List<AtomicProposition> atomics = new ArrayList<>();
+    private final List<Integer> outputs = new ArrayList<>();
+
+    /**
+     * Returns a program evaluating the proposition of <code>entry</code>.
+     * <p>
+     * The proposition is {@link Simplifier simplified} first, so the program may read fewer atomics
+     * than the entry has, and every reasoner built on compiled programs benefits from the simplification.
+     * Programs are cached per proposition for as long as the proposition itself is reachable,
+     * except for atomic propositions, whose programs would keep their own proposition reachable.
+     *
+     * @param entry the entry to compile
+     * @return a program with a single output
+     */
+    public static EvaluationProgram compile(PropositionEntry entry) {
+        return compile(entry.proposition());
+    }
+
+    /**
+     * Returns a program evaluating <code>proposition</code>.
+     *
+     * @see #compile(PropositionEntry)
+     */
+    public static EvaluationProgram compile(Proposition proposition) {
+        synchronized (cache) {
+            EvaluationProgram program = cache.get(proposition);
+            if (program != null)
+                return program;
+        }
+        PropositionCompiler compiler = new PropositionCompiler();
+        compiler.add(new Simplifier().simplify(proposition));
+        EvaluationProgram program = compiler.build();
+        if (proposition instanceof AtomicProposition)
+            return program;
+        synchronized (cache) {
+            cache.putIfAbsent(proposition, program);
+        }
+        return program;
+    }
+
+    /**
+     * Adds a proposition as the next output of the program being built.
+     *
+     * @param proposition the root of the tree to compile
+     * @return the index of the output corresponding to <code>proposition</code>
+     */
+    public int add(Proposition proposition) {
+        outputs.add(emit(proposition));
+        return outputs.size() - 1;
+    }
+
+    /**
+     * Returns a program computing every proposition added so far.
+     *
+     * @throws IllegalStateException if nothing has been added
+     */
+    public EvaluationProgram build() {
+        if (outputs.isEmpty())
+            throw new IllegalStateException("No propositions were added to the compiler");
+        return new EvaluationProgram(
+                Arrays.copyOf(opcodes, size),
+                Arrays.copyOf(left, size),
+                Arrays.copyOf(right, size),
+                outputs.stream().mapToInt(Integer::intValue).toArray(),
+                new ArrayList<>(atomics));
+    }
+
+    private int emit(Proposition root) {
+        Deque<Proposition> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Proposition node = stack.peek();
+            if (registers.containsKey(node)) {
+                stack.pop();
+                continue;
+            }
+
+            if (node instanceof AtomicProposition atomic) {
+                stack.pop();
+                registers.put(node, emitAtomic(atomic));
+            }
+            else if (node instanceof UnaryProposition unary) {
+                Integer operand = registers.get(unary.getProposition());
+                if (operand == null) {
+                    stack.push(unary.getProposition());
+                    continue;
+                }
+                stack.pop();
+                registers.put(node, append(switch (unary.getOperator()) {
+                    case NOT -> EvaluationProgram.NOT;
+                }, operand, 0));
+            }
+            else if (node instanceof BinaryProposition binary) {
+                Integer p = registers.get(binary.getLeftProposition());
+                Integer q = registers.get(binary.getRightProposition());
+                if (p == null || q == null) {
+                    // Right is pushed first so that the left operand is compiled first
+                    if (q == null)
+                        stack.push(binary.getRightProposition());
+                    if (p == null)
+                        stack.push(binary.getLeftProposition());
+                    continue;
+                }
+                stack.pop();
+                registers.put(node, append(opcode(binary.getOperator()), p, q));
+            }
+            else throw new IllegalStateException("Unexpected proposition type: " + node.getClass());
+        }
+        return registers.get(root);
+    }
+
+    private int emitAtomic(AtomicProposition atomic) {
+        if (atomic == Proposition.getTrue())
+            return append(EvaluationProgram.CONSTANT_TRUE, 0, 0);
+        if (atomic == Proposition.getFalse())
+            return append(EvaluationProgram.CONSTANT_FALSE, 0, 0);
+
+        Integer slot = slots.get(atomic);
+        if (slot == null) {
+            slot = atomics.size();
+            slots.put(atomic, slot);
+            atomics.add(atomic);
+        }
+        return append(EvaluationProgram.LOAD, slot, 0);
+    }
+
+    private static byte opcode(BinaryOperator operator) {
+        return switch (operator) {
+            case AND -> EvaluationProgram.AND;
+            case OR -> EvaluationProgram.OR;
+            case IMPLY -> EvaluationProgram.IMPLY;
+            case BICONDITIONAL -> EvaluationProgram.BICONDITIONAL;
+        };
+    }
+
+    private int append(byte opcode, int p, int q) {
+        if (size == opcodes.length) {
+            int capacity = size * 2;
+            opcodes = Arrays.copyOf(opcodes, capacity);
+            left = Arrays.copyOf(left, capacity);
+            right = Arrays.copyOf(right, capacity);
+        }
+        opcodes[size] = opcode;
+        left[size] = p;
+        right[size] = q;
+        return size++;
+    }
+}
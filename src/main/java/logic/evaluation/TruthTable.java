@@ -0,0 +1,365 @@
+package logic.evaluation;
+
+import common.PropositionEntry;
+import common.propositions.AtomicProposition;
+import common.propositions.Proposition;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.*;
+import java.util.stream.LongStream;
+
+/**
+ * The output column of a truth table, packed one row per bit.
+ * <p>
+ * For atomics <code>a<sub>0</sub>, ..., a<sub>n-1</sub></code>, bit <code>c</code> of the column holds the value
+ * of the proposition when each atomic <code>a<sub>i</sub></code> has the value of bit <code>i</code> of
+ * <code>c</code>, the same numbering as {@link common.Assignment#setRow(long)}. Word <code>w</code> of the column
+ * therefore holds exactly the 64 rows of block <code>w</code> of {@link EvaluationProgram#evaluateLanes},
+ * and the whole column is computed one block per pass. With fewer than six atomics, unused bits are always clear.
+ * <p>
+ * Columns up to {@link #HEAP_LIMIT_BYTES} are kept in a <code>long[]</code>; larger columns are kept outside the heap
+ * in direct buffers, which bounds them only by memory, up to {@value #MAX_ATOMICS} atomics (2 GiB).
+ * <p>
+ * Tables are immutable. {@link #of(PropositionEntry)} keeps each table on the heap for as long as its proposition
+ * is reachable, so rendering, comparing and counting the same entry evaluate it only once. Columns outside the heap,
+ * and the tables of atomic propositions, which would keep their own proposition reachable, are not kept.
+ *
+ * @see EvaluationProgram
+ */
+public final class TruthTable {
+
+    /**
+     * The largest number of atomics a table can have.
+     */
+    public static final int MAX_ATOMICS = 34;
+
+    /**
+     * The largest column, in bytes, kept on the heap.
+     */
+    public static final long HEAP_LIMIT_BYTES = 1L << 26;
+
+    // The number of atomics that vary within a word
+    private static final int WORD_ATOMICS = 6;
+    // Off-heap columns are split into direct buffers of 2^SEGMENT_SHIFT words
+    private static final int SEGMENT_SHIFT = 24;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+    // Words computed by each parallel task
+    private static final long CHUNK_WORDS = 1 << 12;
+
+    private static final Map<Proposition, TruthTable> cache = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final List<AtomicProposition> atomics;
+    private final long wordCount;
+    private final long validBits;
+    // Exactly one of these holds the column
+    private final long[] heapWords;
+    private final LongBuffer[] segments;
+
+    /**
+     * Instantiates a table over the given atomics that is false in every row, to be filled by {@link #setWord}.
+     */
+    TruthTable(List<AtomicProposition> atomics) {
+        if (atomics.size() > MAX_ATOMICS)
+            throw new IllegalArgumentException("Too many atomic propositions! (" + atomics.size() + ")");
+        this.atomics = List.copyOf(atomics);
+        wordCount = EvaluationProgram.blockCount(atomics.size());
+        validBits = EvaluationProgram.validLanes(atomics.size());
+
+        if (fitsOnHeap(atomics.size())) {
+            heapWords = new long[(int) wordCount];
+            segments = null;
+        }
+        else {
+            heapWords = null;
+            segments = new LongBuffer[(int) ((wordCount + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+            for (int i = 0; i < segments.length; i++) {
+                long words = Math.min(wordCount - ((long) i << SEGMENT_SHIFT), 1L << SEGMENT_SHIFT);
+                segments[i] = ByteBuffer.allocateDirect((int) words * Long.BYTES)
+                        .order(ByteOrder.nativeOrder()).asLongBuffer();
+            }
+        }
+    }
+
+    /**
+     * Returns the truth table of an entry over its atomics, in the order of {@link PropositionEntry#atomics()},
+     * computing it only if it has not been kept from an earlier call.
+     *
+     * @throws IllegalArgumentException if the entry has more than {@value #MAX_ATOMICS} atomics
+     */
+    public static TruthTable of(PropositionEntry entry) {
+        TruthTable table = cached(entry);
+        if (table != null)
+            return table;
+        table = of(entry, new ArrayList<>(entry.atomics()));
+        if (!table.isOffHeap() && !(entry.proposition() instanceof AtomicProposition))
+            cache.put(entry.proposition(), table);
+        return table;
+    }
+
+    /**
+     * Returns the truth table of an entry if it has been kept from an earlier call to {@link #of(PropositionEntry)},
+     * without computing it. Its atomics are those of the entry, but not necessarily in the same order.
+     *
+     * @return the table, or <code>null</code> if none is kept
+     */
+    public static TruthTable cached(PropositionEntry entry) {
+        TruthTable table = cache.get(entry.proposition());
+        if (table != null && table.atomics.size() == entry.atomics().size()
+                && entry.atomics().containsAll(table.atomics))
+            return table;
+        return null;
+    }
+
+    /**
+     * Returns whether a table over <code>atomicCount</code> atomics is small enough to be kept on the heap,
+     * and so by {@link #of(PropositionEntry)}.
+     */
+    public static boolean fitsOnHeap(int atomicCount) {
+        return EvaluationProgram.blockCount(atomicCount) * Long.BYTES <= HEAP_LIMIT_BYTES;
+    }
+
+    /**
+     * Computes the truth table of an entry over the given atomics, which are not required to all appear in it.
+     *
+     * @param atomics the atomics of the table, without duplicates
+     * @throws IllegalArgumentException if an atomic the entry depends on is missing from <code>atomics</code>,
+     *                                  or there are more than {@value #MAX_ATOMICS} atomics
+     */
+    public static TruthTable of(PropositionEntry entry, List<AtomicProposition> atomics) {
+        TruthTable table = new TruthTable(atomics);
+        EvaluationProgram program = PropositionCompiler.compile(entry).bind(atomics);
+        // Large columns are computed in parallel, each task with its own register file
+        LongStream chunks = LongStream.range(0, (table.wordCount + CHUNK_WORDS - 1) / CHUNK_WORDS);
+        if (table.wordCount > CHUNK_WORDS)
+            chunks = chunks.parallel();
+        chunks.forEach(chunk -> {
+            long[] lanes = new long[atomics.size()];
+            long[] registers = program.newLaneRegisters();
+            long end = Math.min(table.wordCount, (chunk + 1) * CHUNK_WORDS);
+            for (long w = chunk * CHUNK_WORDS; w < end; w++) {
+                EvaluationProgram.fillLanes(w, lanes);
+                table.setWord(w, program.evaluateLanes(lanes, registers) & table.validBits);
+            }
+        });
+        return table;
+    }
+
+    /**
+     * Returns the atomics of this table, where atomic <code>i</code> is read from bit <code>i</code> of a row.
+     */
+    public List<AtomicProposition> getAtomics() {
+        return atomics;
+    }
+
+    /**
+     * Returns the number of rows, <code>2<sup>n</sup></code> for <code>n</code> atomics.
+     */
+    public long rowCount() {
+        return 1L << atomics.size();
+    }
+
+    /**
+     * Returns the number of words in the packed column.
+     */
+    public long wordCount() {
+        return wordCount;
+    }
+
+    /**
+     * Returns word <code>index</code> of the packed column, holding rows <code>64 * index</code> onwards.
+     */
+    public long word(long index) {
+        if (heapWords != null)
+            return heapWords[(int) index];
+        return segments[(int) (index >>> SEGMENT_SHIFT)].get((int) (index & SEGMENT_MASK));
+    }
+
+    /**
+     * Returns whether the proposition is true in a row.
+     *
+     * @param row the row, where bit <code>i</code> holds the value of atomic <code>i</code>
+     */
+    public boolean get(long row) {
+        return (word(row / EvaluationProgram.LANES) >>> (row % EvaluationProgram.LANES) & 1) != 0;
+    }
+
+    /**
+     * Returns whether this table is stored outside the heap.
+     */
+    public boolean isOffHeap() {
+        return segments != null;
+    }
+
+    /**
+     * Returns the number of rows in which the proposition is true.
+     */
+    public long popCount() {
+        long count = 0;
+        for (long w = 0; w < wordCount; w++)
+            count += Long.bitCount(word(w));
+        return count;
+    }
+
+    /**
+     * Returns the table of the negation of the proposition.
+     */
+    public TruthTable not() {
+        TruthTable result = new TruthTable(atomics);
+        for (long w = 0; w < wordCount; w++)
+            result.setWord(w, ~word(w) & validBits);
+        return result;
+    }
+
+    /**
+     * Returns the table of the conjunction of the two propositions.
+     *
+     * @throws IllegalArgumentException if the tables do not have the same atomics in the same order
+     */
+    public TruthTable and(TruthTable other) {
+        TruthTable result = sameShape(other);
+        for (long w = 0; w < wordCount; w++)
+            result.setWord(w, word(w) & other.word(w));
+        return result;
+    }
+
+    /**
+     * Returns the table of the disjunction of the two propositions.
+     *
+     * @throws IllegalArgumentException if the tables do not have the same atomics in the same order
+     */
+    public TruthTable or(TruthTable other) {
+        TruthTable result = sameShape(other);
+        for (long w = 0; w < wordCount; w++)
+            result.setWord(w, word(w) | other.word(w));
+        return result;
+    }
+
+    /**
+     * Returns the table of the exclusive disjunction of the two propositions,
+     * which is true in exactly the rows where the propositions differ.
+     *
+     * @throws IllegalArgumentException if the tables do not have the same atomics in the same order
+     */
+    public TruthTable xor(TruthTable other) {
+        TruthTable result = sameShape(other);
+        for (long w = 0; w < wordCount; w++)
+            result.setWord(w, word(w) ^ other.word(w));
+        return result;
+    }
+
+    /**
+     * Returns the table over the remaining atomics, with one atomic fixed to a value.
+     * <p>
+     * Fixing the last atomic keeps one contiguous half of the column, so fixing the last few atomics
+     * slices the table into a contiguous range of rows.
+     *
+     * @throws IllegalArgumentException if the atomic is not in this table
+     */
+    public TruthTable restrict(AtomicProposition atomic, boolean value) {
+        int index = atomics.indexOf(atomic);
+        if (index < 0)
+            throw new IllegalArgumentException("Atomic '" + atomic + "' is not in the table");
+        List<AtomicProposition> remaining = new ArrayList<>(atomics);
+        remaining.remove(index);
+        TruthTable result = new TruthTable(remaining);
+
+        if (index >= WORD_ATOMICS) {
+            // The atomic selects whole words
+            int bit = index - WORD_ATOMICS;
+            for (long w = 0; w < result.wordCount; w++)
+                result.setWord(w, word(insertBit(w, bit, value)));
+        }
+        else if (wordCount == 1)
+            result.setWord(0, compress(word(0), index, value));
+        else {
+            // Each result word gathers half the bits of two consecutive words
+            for (long w = 0; w < result.wordCount; w++)
+                result.setWord(w, compress(word(2 * w), index, value) | compress(word(2 * w + 1), index, value) << 32);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the table over the remaining atomics, with every atomic in <code>values</code> fixed to its value.
+     *
+     * @throws IllegalArgumentException if an atomic in <code>values</code> is not in this table
+     */
+    public TruthTable restrict(Map<AtomicProposition, Boolean> values) {
+        TruthTable result = this;
+        for (Map.Entry<AtomicProposition, Boolean> value: values.entrySet())
+            result = result.restrict(value.getKey(), value.getValue());
+        return result;
+    }
+
+    /**
+     * Returns whether the other table has the same atomics in the same order, and the same column.
+     * Two tables computed over the same atomics are equal exactly when their propositions are equivalent.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof TruthTable other) || !atomics.equals(other.atomics))
+            return false;
+        for (long w = 0; w < wordCount; w++) {
+            if (word(w) != other.word(w))
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        long hash = atomics.hashCode();
+        for (long w = 0; w < wordCount; w++)
+            hash = hash * 31 + word(w);
+        return Long.hashCode(hash);
+    }
+
+    @Override
+    public String toString() {
+        return "TruthTable[atomics=" + atomics + ", rows=" + rowCount() + ", true=" + popCount() + "]";
+    }
+
+    /**
+     * Sets a word of the column, which must not have any bit set past the last row.
+     * Only used while a table is being built, since tables are otherwise immutable.
+     */
+    void setWord(long index, long value) {
+        if (heapWords != null)
+            heapWords[(int) index] = value;
+        else
+            segments[(int) (index >>> SEGMENT_SHIFT)].put((int) (index & SEGMENT_MASK), value);
+    }
+
+    private TruthTable sameShape(TruthTable other) {
+        if (!atomics.equals(other.atomics))
+            throw new IllegalArgumentException("Tables have different atomics: " + atomics + " and " + other.atomics);
+        return new TruthTable(atomics);
+    }
+
+    /**
+     * Returns <code>x</code> with a bit of the given value inserted at position <code>bit</code>.
+     */
+    private static long insertBit(long x, int bit, boolean value) {
+        long low = x & ((1L << bit) - 1);
+        return (x - low) << 1 | (value ? 1L << bit : 0) | low;
+    }
+
+    /**
+     * Gathers the 32 bits of a word whose position has bit <code>index</code> equal to <code>value</code>
+     * into the low half of the result, in order.
+     */
+    private static long compress(long word, int index, boolean value) {
+        int run = 1 << index;
+        if (value)
+            word >>>= run;
+        long runMask = (1L << run) - 1;
+        long result = 0;
+        for (int i = 0; i < Integer.SIZE / run; i++)
+            result |= (word >>> (2 * i * run) & runMask) << (i * run);
+        return result;
+    }
+}
@@ -0,0 +1,129 @@
+package logic.sat;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A compact, append-only list of clauses.
+ * <p>
+ * Every literal of every clause is stored in one <code>int</code> array, with a second array
+ * marking where each clause starts, so a store of millions of clauses needs no per-clause objects.
+ * Literals follow the DIMACS convention used by {@link SatSolver}.
+ */
+public class ClauseStore {
+
+    private int[] literals = new int[64];
+    private int[] starts = new int[17];
+    private int size = 0;
+
+    /**
+     * Appends a clause.
+     *
+     * @param clause the literals of the clause
+     */
+    public void add(int... clause) {
+        reserve(clause.length);
+        int end = starts[size];
+        for (int literal: clause)
+            literals[end++] = literal;
+        close(end);
+    }
+
+    /**
+     * Appends a unit clause, without allocating an array.
+     */
+    public void add(int a) {
+        reserve(1);
+        int end = starts[size];
+        literals[end++] = a;
+        close(end);
+    }
+
+    /**
+     * Appends a binary clause, without allocating an array.
+     */
+    public void add(int a, int b) {
+        reserve(2);
+        int end = starts[size];
+        literals[end++] = a;
+        literals[end++] = b;
+        close(end);
+    }
+
+    /**
+     * Appends a ternary clause, without allocating an array.
+     */
+    public void add(int a, int b, int c) {
+        reserve(3);
+        int end = starts[size];
+        literals[end++] = a;
+        literals[end++] = b;
+        literals[end++] = c;
+        close(end);
+    }
+
+    /**
+     * Returns the number of clauses.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the total number of literals across every clause.
+     */
+    public int literalCount() {
+        return starts[size];
+    }
+
+    /**
+     * Returns the number of literals in a clause.
+     */
+    public int length(int clause) {
+        return starts[clause + 1] - starts[clause];
+    }
+
+    /**
+     * Returns one literal of a clause.
+     */
+    public int literal(int clause, int index) {
+        return literals[starts[clause] + index];
+    }
+
+    /**
+     * Returns a copy of the literals of a clause.
+     */
+    public int[] clause(int clause) {
+        return Arrays.copyOfRange(literals, starts[clause], starts[clause + 1]);
+    }
+
+    /**
+     * Writes every clause in the DIMACS CNF format.
+     *
+     * @param out the destination
+     * @param variableCount the number of variables to declare in the header
+     */
+    public void writeDimacs(Appendable out, int variableCount) throws IOException {
+        out.append("p cnf ").append(Integer.toString(variableCount)).append(' ')
+                .append(Integer.toString(size)).append('\n');
+        for (int clause = 0; clause < size; clause++) {
+            for (int i = starts[clause]; i < starts[clause + 1]; i++)
+                out.append(Integer.toString(literals[i])).append(' ');
+            out.append("0\n");
+        }
+    }
+
+    private void reserve(int count) {
+        if (starts[size] + count > literals.length)
+            literals = Arrays.copyOf(literals, Math.max(literals.length * 2, starts[size] + count));
+        if (size + 2 > starts.length)
+            starts = Arrays.copyOf(starts, starts.length * 2);
+    }
+
+    /**
+     * Ends the clause being appended, whose literals were written from <code>starts[size]</code> up to <code>end</code>.
+     */
+    private void close(int end) {
+        starts[++size] = end;
+    }
+}
@@ -0,0 +1,156 @@
+package logic.sat;
+
+import common.PropositionEntry;
+import common.propositions.AtomicProposition;
+import logic.sat.TseitinEncoder.Polarity;
+
+import java.util.*;
+
+/**
+ * An argument that can be edited premise by premise, whose validity is re-checked incrementally.
+ * <p>
+ * Every premise and conclusion is encoded once into a single {@link SatSolver}, which keeps its clauses
+ * and everything it has learned between checks. Each premise is guarded by its own activation variable
+ * and only holds while that variable is assumed, so removing a premise never requires rebuilding the solver,
+ * and the conclusion is only ever negated through an assumption.
+ * After a small edit, a check usually costs a few propagations rather than a fresh search.
+ * <p>
+ * Instances hold mutable state and should not be shared between threads.
+ */
+public class IncrementalArgument {
+
+    private final TseitinEncoder encoder = new TseitinEncoder();
+    private final SatSolver solver = new SatSolver();
+    private int addedClauses = 0;
+
+    private final List<PropositionEntry> premises = new ArrayList<>();
+    private final List<Integer> activations = new ArrayList<>();
+    private PropositionEntry conclusion;
+    private int conclusionLiteral;
+    private Map<AtomicProposition, Boolean> counterexample;
+
+    /**
+     * Instantiates an argument with no premises and no conclusion.
+     */
+    public IncrementalArgument() {}
+
+    /**
+     * Instantiates an argument with no premises.
+     *
+     * @param conclusion the conclusion to be proved
+     */
+    public IncrementalArgument(PropositionEntry conclusion) {
+        setConclusion(conclusion);
+    }
+
+    /**
+     * Sets the conclusion to be proved, replacing any previous one.
+     */
+    public void setConclusion(PropositionEntry conclusion) {
+        this.conclusion = conclusion;
+        // The conclusion is only ever assumed false
+        conclusionLiteral = encoder.encode(conclusion, Polarity.NEGATIVE);
+        sync();
+    }
+
+    /**
+     * Returns the conclusion, or <code>null</code> if none has been set.
+     */
+    public PropositionEntry getConclusion() {
+        return conclusion;
+    }
+
+    /**
+     * Adds a premise.
+     */
+    public void addPremise(PropositionEntry premise) {
+        int literal = encoder.encode(premise, Polarity.POSITIVE);
+        int activation = encoder.newVariable();
+        encoder.clauses().add(-activation, literal);
+        sync();
+        premises.add(premise);
+        activations.add(activation);
+    }
+
+    /**
+     * Removes the first occurrence of a premise.
+     *
+     * @return whether the premise was present
+     */
+    public boolean removePremise(PropositionEntry premise) {
+        int index = premises.indexOf(premise);
+        if (index < 0)
+            return false;
+        premises.remove(index);
+        int activation = activations.remove(index);
+        // Permanently deactivating the premise lets the solver simplify its guarded clause away
+        encoder.clauses().add(-activation);
+        sync();
+        return true;
+    }
+
+    /**
+     * Returns the current premises, in the order they were added.
+     */
+    public List<PropositionEntry> getPremises() {
+        return Collections.unmodifiableList(premises);
+    }
+
+    /**
+     * Determines whether the current premises form a valid argument with the current conclusion.
+     *
+     * @return whether the argument is valid, or <code>null</code> if there is no conclusion or no premise
+     * @see logic.Reasoner#isArgumentValid
+     */
+    public Boolean isValid() {
+        counterexample = null;
+        if (conclusion == null || premises.isEmpty())
+            return null;
+
+        // Search for an assignment where every active premise is true and the conclusion is false
+        int[] assumptions = new int[activations.size() + 1];
+        for (int i = 0; i < activations.size(); i++)
+            assumptions[i] = activations.get(i);
+        assumptions[activations.size()] = -conclusionLiteral;
+        if (!solver.solve(assumptions))
+            return true;
+
+        counterexample = new LinkedHashMap<>();
+        List<PropositionEntry> entries = new ArrayList<>(premises);
+        entries.add(conclusion);
+        for (PropositionEntry entry: entries) {
+            for (AtomicProposition atomic: entry.atomics()) {
+                int variable = encoder.existingVariableOf(atomic);
+                counterexample.putIfAbsent(atomic, variable == 0 || solver.modelValue(variable));
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the assignment refuting the argument found by the last call to {@link #isValid},
+     * with <code>true</code> for every atomic the encoding simplified away.
+     *
+     * @return the truth value of each atomic in the premises and conclusion, or <code>null</code>
+     * if the last check found the argument valid or could not be made
+     */
+    public Map<AtomicProposition, Boolean> getCounterexample() {
+        return counterexample;
+    }
+
+    /**
+     * Returns the solver holding this argument, for its statistics.
+     */
+    public SatSolver getSolver() {
+        return solver;
+    }
+
+    /**
+     * Passes every clause the encoder produced since the last call on to the solver.
+     */
+    private void sync() {
+        solver.ensureVariables(encoder.variableCount());
+        solver.addClauses(encoder.clauses(), addedClauses);
+        addedClauses = encoder.clauses().size();
+    }
+}
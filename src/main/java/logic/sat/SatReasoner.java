@@ -0,0 +1,173 @@
+package logic.sat;
+
+import common.PropositionEntry;
+import common.propositions.AtomicProposition;
+import logic.*;
+import logic.sat.TseitinEncoder.Polarity;
+
+import java.util.*;
+
+/**
+ * An implementation of the {@link Reasoner} interface that reduces each question to satisfiability,
+ * and answers it with a {@link SatSolver}.
+ * <p>
+ * Two propositions are equal exactly when <code>p1 XOR p2</code> is unsatisfiable,
+ * and an argument is valid exactly when its premises together with the negated conclusion are unsatisfiable.
+ * Unlike {@link logic.BruteForceReasoner}, the cost does not necessarily double with every atomic,
+ * so propositions with hundreds of atomics can often be decided.
+ * <p>
+ * When a question is disproved, the result carries the model the solver found as its counterexample,
+ * assigning <code>true</code> to any atomic the encoding simplified away.
+ * <p>
+ * Each question uses a fresh solver, so instances may be used by several threads at once.
+ */
+public class SatReasoner implements Reasoner {
+
+    @Override
+    public Boolean areEqual(PropositionEntry p1, PropositionEntry p2) {
+        return equal(p1, p2, null).value();
+    }
+
+    @Override
+    public Boolean isArgumentValid(PropositionEntry conclusion, Collection<PropositionEntry> premises) {
+        return valid(conclusion, premises, null).value();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The question is decided as a whole instead, so that a counterexample can be read from the model the solver found.
+     */
+    @Override
+    public ReasoningResult checkEquality(PropositionEntry p1, PropositionEntry p2) {
+        return checkEquality(p1, p2, ReasoningBudget.unlimited());
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The question is decided as a whole instead, so that a counterexample can be read from the model the solver found.
+     */
+    @Override
+    public ReasoningResult checkValidity(PropositionEntry conclusion, Collection<PropositionEntry> premises) {
+        return checkValidity(conclusion, premises, ReasoningBudget.unlimited());
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The question is decided as a whole, since the solver does not gain from splitting it.
+     * The budget is checked, and progress reported in solver decisions, every 256 decisions and conflicts.
+     */
+    @Override
+    public ReasoningResult checkEquality(PropositionEntry p1, PropositionEntry p2, ReasoningBudget budget) {
+        try {
+            return equal(p1, p2, budget).withReduction(Reduction.none(List.of(p1, p2)));
+        } catch (BudgetExhaustedException e) {
+            return ReasoningResult.unknown(e.getReason());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The question is decided as a whole, since the solver does not gain from splitting it.
+     * The budget is checked, and progress reported in solver decisions, every 256 decisions and conflicts.
+     */
+    @Override
+    public ReasoningResult checkValidity(PropositionEntry conclusion, Collection<PropositionEntry> premises,
+                                         ReasoningBudget budget) {
+        try {
+            List<PropositionEntry> entries = new ArrayList<>(premises);
+            entries.add(conclusion);
+            return valid(conclusion, premises, budget).withReduction(Reduction.none(entries));
+        } catch (BudgetExhaustedException e) {
+            return ReasoningResult.unknown(e.getReason());
+        }
+    }
+
+    private ReasoningResult equal(PropositionEntry p1, PropositionEntry p2, ReasoningBudget budget) {
+        if (p1.proposition() == p2.proposition())
+            return new ReasoningResult(true, null);
+
+        TseitinEncoder encoder = new TseitinEncoder();
+        // Either proposition may need to be true or false, so both are fully encoded
+        int p = encoder.encode(p1, Polarity.BOTH);
+        int q = encoder.encode(p2, Polarity.BOTH);
+
+        // Search for an assignment where exactly one of p and q is true
+        ClauseStore clauses = encoder.clauses();
+        clauses.add(p, q);
+        clauses.add(-p, -q);
+        return solve(encoder, List.of(p1, p2), budget);
+    }
+
+    private ReasoningResult valid(PropositionEntry conclusion, Collection<PropositionEntry> premises,
+                                  ReasoningBudget budget) {
+        if (premises.isEmpty())
+            return new ReasoningResult(null, null);
+
+        TseitinEncoder encoder = new TseitinEncoder();
+        ClauseStore clauses = encoder.clauses();
+
+        // Search for an assignment where every premise is true and the conclusion is false
+        for (PropositionEntry premise: premises)
+            clauses.add(encoder.encode(premise, Polarity.POSITIVE));
+        clauses.add(-encoder.encode(conclusion, Polarity.NEGATIVE));
+        List<PropositionEntry> entries = new ArrayList<>(premises);
+        entries.add(conclusion);
+        return solve(encoder, entries, budget);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The premises and every conclusion are encoded into a single solver, and each conclusion is refuted
+     * through an assumption, so everything the solver learns about the premises is shared between conclusions.
+     */
+    @Override
+    public List<Boolean> areArgumentsValid(List<PropositionEntry> conclusions, Collection<PropositionEntry> premises) {
+        if (premises.isEmpty())
+            return Reasoner.super.areArgumentsValid(conclusions, premises);
+
+        TseitinEncoder encoder = new TseitinEncoder();
+        ClauseStore clauses = encoder.clauses();
+        for (PropositionEntry premise: premises)
+            clauses.add(encoder.encode(premise, Polarity.POSITIVE));
+        int[] literals = new int[conclusions.size()];
+        for (int i = 0; i < literals.length; i++)
+            literals[i] = encoder.encode(conclusions.get(i), Polarity.NEGATIVE);
+
+        SatSolver solver = new SatSolver();
+        solver.ensureVariables(encoder.variableCount());
+        // Contradictory premises prove every conclusion
+        boolean consistent = solver.addClauses(clauses, 0);
+        List<Boolean> results = new ArrayList<>(literals.length);
+        for (int literal: literals)
+            results.add(!consistent || !solver.solve(-literal));
+        return results;
+    }
+
+    /**
+     * Searches for a model of the encoded clauses, which disproves the question.
+     *
+     * @param entries every entry in the question, whose atomics the counterexample assigns
+     */
+    private static ReasoningResult solve(TseitinEncoder encoder, List<PropositionEntry> entries,
+                                         ReasoningBudget budget) {
+        SatSolver solver = new SatSolver();
+        solver.setBudget(budget);
+        solver.ensureVariables(encoder.variableCount());
+        if (!solver.addClauses(encoder.clauses(), 0) || !solver.solve())
+            return new ReasoningResult(true, null);
+
+        Map<AtomicProposition, Boolean> counterexample = new LinkedHashMap<>();
+        for (PropositionEntry entry: entries) {
+            for (AtomicProposition atomic: entry.atomics()) {
+                int variable = encoder.existingVariableOf(atomic);
+                counterexample.putIfAbsent(atomic, variable == 0 || solver.modelValue(variable));
+            }
+        }
+        return new ReasoningResult(false, null, null, counterexample, -1);
+    }
+}
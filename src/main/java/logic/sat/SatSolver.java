@@ -0,0 +1,680 @@
+package logic.sat;
+
+import logic.BudgetExhaustedException;
+import logic.ReasoningBudget;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A conflict-driven clause learning (CDCL) solver for propositional formulas in conjunctive normal form.
+ * <p>
+ * Clauses are given as arrays of non-zero <code>int</code> literals in the DIMACS convention:
+ * variable <code>v</code> (numbered from 1) appears as <code>v</code> when positive and <code>-v</code> when negated.
+ * <p>
+ * The solver uses two watched literals per clause for unit propagation, learns a first-UIP clause from every conflict,
+ * branches on the unassigned variable with the highest VSIDS activity (using its last assigned polarity),
+ * restarts following the Luby sequence, and periodically discards its least active learned clauses.
+ * <p>
+ * Clauses may be added between calls to {@link #solve}, and every learned clause is kept for later calls,
+ * so a sequence of related formulas can be solved incrementally. Temporary facts are given as assumptions:
+ * literals that only hold for one call. A clause can be made retractable by adding a fresh activation literal
+ * <code>-a</code> to it and assuming <code>a</code> whenever the clause should hold.
+ * <p>
+ * Instances hold mutable state and should not be shared between threads.
+ */
+public class SatSolver {
+
+    private static final double VARIABLE_DECAY = 0.95;
+    private static final double CLAUSE_DECAY = 0.999;
+    private static final int RESTART_BASE = 100;
+    private static final long BUDGET_CHECK_MASK = (1 << 8) - 1;
+
+    /**
+     * A clause, whose first two literals are the watched ones.
+     */
+    private static final class Clause {
+        final int[] literals;
+        final boolean learnt;
+        double activity;
+        boolean deleted;
+
+        Clause(int[] literals, boolean learnt) {
+            this.literals = literals;
+            this.learnt = learnt;
+        }
+    }
+
+    private int numVariables = 0;
+    private boolean ok = true;
+
+    // Indexed by internal literal (2 * variable + sign)
+    private Clause[][] watches = new Clause[0][];
+    private int[] watchSizes = new int[0];
+
+    // Indexed by variable
+    private byte[] values = new byte[0]; // 0 unassigned, 1 true, -1 false
+    private int[] levels = new int[0];
+    private Clause[] reasons = new Clause[0];
+    private boolean[] phases = new boolean[0];
+    private boolean[] seen = new boolean[0];
+    private double[] activity = new double[0];
+    private boolean[] model = new boolean[0];
+
+    private int[] trail = new int[0];
+    private int trailSize = 0;
+    private int propagationHead = 0;
+    private final IntList trailLimits = new IntList();
+    private int[] assumptions = new int[0];
+
+    private final VariableHeap heap = new VariableHeap();
+    private double variableIncrement = 1;
+    private double clauseIncrement = 1;
+
+    private final List<Clause> learnts = new ArrayList<>();
+    private double maxLearnts = 0;
+    private long conflicts = 0;
+    private long decisions = 0;
+    private long propagations = 0;
+
+    private ReasoningBudget budget;
+
+    /**
+     * Adds a new variable.
+     *
+     * @return the number of the new variable, starting from 1
+     */
+    public int newVariable() {
+        int variable = numVariables++;
+        if (variable == values.length) {
+            int capacity = Math.max(16, variable * 2);
+            values = Arrays.copyOf(values, capacity);
+            levels = Arrays.copyOf(levels, capacity);
+            reasons = Arrays.copyOf(reasons, capacity);
+            phases = Arrays.copyOf(phases, capacity);
+            seen = Arrays.copyOf(seen, capacity);
+            activity = Arrays.copyOf(activity, capacity);
+            trail = Arrays.copyOf(trail, capacity);
+            watches = Arrays.copyOf(watches, 2 * capacity);
+            watchSizes = Arrays.copyOf(watchSizes, 2 * capacity);
+        }
+        watches[2 * variable] = new Clause[4];
+        watches[2 * variable + 1] = new Clause[4];
+        heap.insert(variable);
+        return variable + 1;
+    }
+
+    /**
+     * Returns the number of variables.
+     */
+    public int variableCount() {
+        return numVariables;
+    }
+
+    /**
+     * Adds variables until there are at least <code>count</code>.
+     */
+    public void ensureVariables(int count) {
+        while (numVariables < count)
+            newVariable();
+    }
+
+    /**
+     * Adds clauses from a store, creating any variables they mention.
+     *
+     * @param clauses the store to read from
+     * @param from the index of the first clause to add, so that a growing store can be added in several steps
+     * @return <code>false</code> if the formula is now known to be unsatisfiable
+     */
+    public boolean addClauses(ClauseStore clauses, int from) {
+        for (int c = from; c < clauses.size(); c++) {
+            int[] clause = clauses.clause(c);
+            for (int literal: clause)
+                ensureVariables(Math.abs(literal));
+            if (!addClause(clause))
+                return false;
+        }
+        return ok;
+    }
+
+    /**
+     * Adds a clause, which must hold in every model.
+     * <p>
+     * Clauses may only be added while the solver is not solving.
+     *
+     * @param clause DIMACS literals of variables that already exist
+     * @return <code>false</code> if the formula is now known to be unsatisfiable
+     */
+    public boolean addClause(int... clause) {
+        if (!ok)
+            return false;
+
+        // Remove duplicate and false literals; drop the clause if it is already satisfied
+        int[] literals = new int[clause.length];
+        int size = 0;
+        for (int external: clause) {
+            int literal = toInternal(external);
+            int value = literalValue(literal);
+            if (value > 0 || contains(literals, size, literal ^ 1))
+                return true;
+            if (value == 0 && !contains(literals, size, literal))
+                literals[size++] = literal;
+        }
+
+        if (size == 0)
+            return ok = false;
+        if (size == 1) {
+            enqueue(literals[0], null);
+            return ok = propagate() == null;
+        }
+        attach(new Clause(Arrays.copyOf(literals, size), false));
+        return true;
+    }
+
+    /**
+     * Determines whether every clause added so far can be satisfied at once, with every assumption true.
+     * <p>
+     * Assumptions only hold for this call: an unsatisfiable result caused by them
+     * does not prevent later calls with different assumptions from succeeding.
+     *
+     * @param assumptions DIMACS literals of variables that already exist
+     * @return whether the clauses and assumptions are satisfiable
+     * @throws BudgetExhaustedException if the {@link #setBudget budget} is exhausted first
+     */
+    public boolean solve(int... assumptions) {
+        if (!ok)
+            return false;
+        this.assumptions = new int[assumptions.length];
+        for (int i = 0; i < assumptions.length; i++)
+            this.assumptions[i] = toInternal(assumptions[i]);
+        maxLearnts = Math.max(maxLearnts, clauseCount() / 3.0 + 1000);
+
+        try {
+            for (int restart = 0; ; restart++) {
+                Boolean result = search(RESTART_BASE * luby(restart));
+                if (result != null)
+                    return result;
+            }
+        } finally {
+            cancelUntil(0);
+        }
+    }
+
+    /**
+     * Sets the budget checked every 256 decisions and conflicts while solving,
+     * reporting progress as the number of decisions made.
+     * <p>
+     * When the budget is exhausted, {@link #solve} throws a {@link BudgetExhaustedException}.
+     * The solver remains usable afterwards, and keeps every clause learned so far.
+     *
+     * @param budget the budget, or <code>null</code> for none
+     */
+    public void setBudget(ReasoningBudget budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Returns the value of a variable in the model found by the last successful call to {@link #solve}.
+     *
+     * @param variable the number of the variable, starting from 1
+     */
+    public boolean modelValue(int variable) {
+        return model[variable - 1];
+    }
+
+    /**
+     * Returns the number of conflicts encountered across every call to {@link #solve}.
+     */
+    public long getConflicts() {
+        return conflicts;
+    }
+
+    /**
+     * Returns the number of branching decisions made across every call to {@link #solve}.
+     */
+    public long getDecisions() {
+        return decisions;
+    }
+
+    /**
+     * Returns the number of literals assigned by unit propagation across every call to {@link #solve}.
+     */
+    public long getPropagations() {
+        return propagations;
+    }
+
+    /**
+     * Runs CDCL until the formula is decided or <code>conflictLimit</code> conflicts occur.
+     *
+     * @return the result, or <code>null</code> to restart
+     */
+    private Boolean search(long conflictLimit) {
+        int conflictCount = 0;
+        while (true) {
+            Clause conflict = propagate();
+            if (conflict != null) {
+                conflicts++;
+                conflictCount++;
+                if (budget != null && (conflicts & BUDGET_CHECK_MASK) == 0)
+                    budget.checkpoint(decisions, -1);
+                if (decisionLevel() == 0) {
+                    ok = false;
+                    return false;
+                }
+                IntList learnt = new IntList();
+                int backtrackLevel = analyze(conflict, learnt);
+                cancelUntil(backtrackLevel);
+                if (learnt.size() == 1) {
+                    enqueue(learnt.get(0), null);
+                }
+                else {
+                    Clause clause = new Clause(learnt.toArray(), true);
+                    attach(clause);
+                    learnts.add(clause);
+                    bumpClause(clause);
+                    enqueue(clause.literals[0], clause);
+                }
+                variableIncrement /= VARIABLE_DECAY;
+                clauseIncrement /= CLAUSE_DECAY;
+                continue;
+            }
+
+            if (conflictCount >= conflictLimit) {
+                cancelUntil(0);
+                return null;
+            }
+            if (learnts.size() - trailSize >= maxLearnts) {
+                reduceLearnts();
+                maxLearnts *= 1.1;
+            }
+
+            // Assumptions are decided first, one per decision level
+            int decision = -1;
+            while (decisionLevel() < assumptions.length) {
+                int assumption = assumptions[decisionLevel()];
+                int value = literalValue(assumption);
+                if (value < 0)
+                    return false;
+                if (value == 0) {
+                    decision = assumption;
+                    break;
+                }
+                // Already true: an empty level keeps each assumption at its own level
+                trailLimits.add(trailSize);
+            }
+            if (decision < 0) {
+                int next = pickBranchVariable();
+                if (next < 0) {
+                    model = new boolean[numVariables];
+                    for (int v = 0; v < numVariables; v++)
+                        model[v] = values[v] > 0;
+                    return true;
+                }
+                decision = 2 * next + (phases[next] ? 0 : 1);
+            }
+            decisions++;
+            if (budget != null && (decisions & BUDGET_CHECK_MASK) == 0)
+                budget.checkpoint(decisions, -1);
+            trailLimits.add(trailSize);
+            enqueue(decision, null);
+        }
+    }
+
+    /**
+     * Propagates every enqueued assignment through the watch lists.
+     *
+     * @return a clause whose literals are all false, or <code>null</code> if there is no conflict
+     */
+    private Clause propagate() {
+        while (propagationHead < trailSize) {
+            int falseLiteral = trail[propagationHead++] ^ 1;
+            Clause[] watchList = watches[falseLiteral];
+            int size = watchSizes[falseLiteral];
+            int kept = 0;
+            propagations++;
+
+            for (int w = 0; w < size; w++) {
+                Clause clause = watchList[w];
+                if (clause.deleted)
+                    continue;
+                int[] literals = clause.literals;
+
+                // Make sure the false literal is at index 1
+                if (literals[0] == falseLiteral) {
+                    literals[0] = literals[1];
+                    literals[1] = falseLiteral;
+                }
+                if (literalValue(literals[0]) > 0) {
+                    watchList[kept++] = clause;
+                    continue;
+                }
+
+                // Look for a new literal to watch
+                boolean moved = false;
+                for (int k = 2; k < literals.length; k++) {
+                    if (literalValue(literals[k]) >= 0) {
+                        literals[1] = literals[k];
+                        literals[k] = falseLiteral;
+                        watch(literals[1], clause);
+                        moved = true;
+                        break;
+                    }
+                }
+                if (moved)
+                    continue;
+
+                watchList[kept++] = clause;
+                if (literalValue(literals[0]) < 0) {
+                    // Conflict: keep the remaining watches and stop
+                    for (w++; w < size; w++)
+                        watchList[kept++] = watchList[w];
+                    watchSizes[falseLiteral] = kept;
+                    propagationHead = trailSize;
+                    return clause;
+                }
+                enqueue(literals[0], clause);
+            }
+            watchSizes[falseLiteral] = kept;
+        }
+        return null;
+    }
+
+    /**
+     * Derives a first-UIP clause from a conflict.
+     *
+     * @param learnt receives the learned clause, with the asserting literal first
+     *               and a literal of the backtrack level second
+     * @return the level to backtrack to
+     */
+    private int analyze(Clause conflict, IntList learnt) {
+        learnt.add(-1); // Placeholder for the asserting literal
+        int pathCount = 0;
+        int literal = -1;
+        int index = trailSize - 1;
+        Clause reason = conflict;
+
+        do {
+            if (reason.learnt)
+                bumpClause(reason);
+            for (int j = (literal == -1) ? 0 : 1; j < reason.literals.length; j++) {
+                int q = reason.literals[j];
+                int variable = q >> 1;
+                if (!seen[variable] && levels[variable] > 0) {
+                    bumpVariable(variable);
+                    seen[variable] = true;
+                    if (levels[variable] >= decisionLevel())
+                        pathCount++;
+                    else
+                        learnt.add(q);
+                }
+            }
+            // Select the next literal on the trail to expand
+            while (!seen[trail[index] >> 1])
+                index--;
+            literal = trail[index--];
+            reason = reasons[literal >> 1];
+            seen[literal >> 1] = false;
+            pathCount--;
+        } while (pathCount > 0);
+        learnt.set(0, literal ^ 1);
+
+        int backtrackLevel = 0;
+        if (learnt.size() > 1) {
+            int max = 1;
+            for (int i = 2; i < learnt.size(); i++) {
+                if (levels[learnt.get(i) >> 1] > levels[learnt.get(max) >> 1])
+                    max = i;
+            }
+            int swap = learnt.get(max);
+            learnt.set(max, learnt.get(1));
+            learnt.set(1, swap);
+            backtrackLevel = levels[swap >> 1];
+        }
+        for (int i = 1; i < learnt.size(); i++)
+            seen[learnt.get(i) >> 1] = false;
+        return backtrackLevel;
+    }
+
+    private int pickBranchVariable() {
+        while (!heap.isEmpty()) {
+            int variable = heap.removeMax();
+            if (values[variable] == 0)
+                return variable;
+        }
+        return -1;
+    }
+
+    private void enqueue(int literal, Clause reason) {
+        int variable = literal >> 1;
+        values[variable] = (byte) ((literal & 1) == 0 ? 1 : -1);
+        levels[variable] = decisionLevel();
+        reasons[variable] = reason;
+        trail[trailSize++] = literal;
+    }
+
+    private void cancelUntil(int level) {
+        if (decisionLevel() <= level)
+            return;
+        int limit = trailLimits.get(level);
+        for (int i = trailSize - 1; i >= limit; i--) {
+            int variable = trail[i] >> 1;
+            phases[variable] = values[variable] > 0;
+            values[variable] = 0;
+            reasons[variable] = null;
+            if (!heap.contains(variable))
+                heap.insert(variable);
+        }
+        trailSize = limit;
+        propagationHead = limit;
+        trailLimits.truncate(level);
+    }
+
+    private void reduceLearnts() {
+        learnts.removeIf(clause -> clause.deleted);
+        learnts.sort((a, b) -> Double.compare(a.activity, b.activity));
+        int target = learnts.size() / 2;
+        int removed = 0;
+        for (Clause clause: learnts) {
+            if (removed >= target)
+                break;
+            if (clause.literals.length > 2 && !isReason(clause)) {
+                clause.deleted = true;
+                removed++;
+            }
+        }
+        learnts.removeIf(clause -> clause.deleted);
+    }
+
+    private boolean isReason(Clause clause) {
+        int variable = clause.literals[0] >> 1;
+        return reasons[variable] == clause && values[variable] != 0;
+    }
+
+    private void attach(Clause clause) {
+        watch(clause.literals[0], clause);
+        watch(clause.literals[1], clause);
+    }
+
+    private void watch(int literal, Clause clause) {
+        if (watchSizes[literal] == watches[literal].length)
+            watches[literal] = Arrays.copyOf(watches[literal], watchSizes[literal] * 2);
+        watches[literal][watchSizes[literal]++] = clause;
+    }
+
+    private void bumpVariable(int variable) {
+        if ((activity[variable] += variableIncrement) > 1e100) {
+            for (int v = 0; v < numVariables; v++)
+                activity[v] *= 1e-100;
+            variableIncrement *= 1e-100;
+        }
+        heap.increased(variable);
+    }
+
+    private void bumpClause(Clause clause) {
+        if ((clause.activity += clauseIncrement) > 1e20) {
+            for (Clause learnt: learnts)
+                learnt.activity *= 1e-20;
+            clauseIncrement *= 1e-20;
+        }
+    }
+
+    private int clauseCount() {
+        int count = 0;
+        for (int literal = 0; literal < 2 * numVariables; literal++)
+            count += watchSizes[literal];
+        return count / 2;
+    }
+
+    private int decisionLevel() {
+        return trailLimits.size();
+    }
+
+    private int literalValue(int literal) {
+        int value = values[literal >> 1];
+        return (literal & 1) == 0 ? value : -value;
+    }
+
+    private int toInternal(int external) {
+        int variable = Math.abs(external) - 1;
+        if (external == 0 || variable >= numVariables)
+            throw new IllegalArgumentException("Unknown variable in literal " + external);
+        return 2 * variable + (external < 0 ? 1 : 0);
+    }
+
+    private static boolean contains(int[] literals, int size, int literal) {
+        for (int i = 0; i < size; i++) {
+            if (literals[i] == literal)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns element <code>i</code> of the Luby sequence (1, 1, 2, 1, 1, 2, 4, ...).
+     */
+    private static long luby(int i) {
+        int size = 1;
+        int sequence = 0;
+        while (size < i + 1) {
+            sequence++;
+            size = 2 * size + 1;
+        }
+        while (size - 1 != i) {
+            size = (size - 1) >> 1;
+            sequence--;
+            i %= size;
+        }
+        return 1L << sequence;
+    }
+
+    /**
+     * A max-heap of variables ordered by activity.
+     */
+    private final class VariableHeap {
+        private int[] heap = new int[16];
+        private int[] positions = new int[16];
+        private int size = 0;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        boolean contains(int variable) {
+            return variable < positions.length && positions[variable] >= 0;
+        }
+
+        void insert(int variable) {
+            if (variable >= positions.length) {
+                int old = positions.length;
+                positions = Arrays.copyOf(positions, Math.max(variable + 1, old * 2));
+                Arrays.fill(positions, old, positions.length, -1);
+            }
+            if (size == heap.length)
+                heap = Arrays.copyOf(heap, size * 2);
+            heap[size] = variable;
+            positions[variable] = size;
+            siftUp(size++);
+        }
+
+        void increased(int variable) {
+            if (contains(variable))
+                siftUp(positions[variable]);
+        }
+
+        int removeMax() {
+            int max = heap[0];
+            positions[max] = -1;
+            if (--size > 0) {
+                heap[0] = heap[size];
+                positions[heap[0]] = 0;
+                siftDown(0);
+            }
+            return max;
+        }
+
+        private void siftUp(int i) {
+            int variable = heap[i];
+            while (i > 0) {
+                int parent = (i - 1) >> 1;
+                if (activity[heap[parent]] >= activity[variable])
+                    break;
+                heap[i] = heap[parent];
+                positions[heap[i]] = i;
+                i = parent;
+            }
+            heap[i] = variable;
+            positions[variable] = i;
+        }
+
+        private void siftDown(int i) {
+            int variable = heap[i];
+            while (2 * i + 1 < size) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && activity[heap[child + 1]] > activity[heap[child]])
+                    child++;
+                if (activity[heap[child]] <= activity[variable])
+                    break;
+                heap[i] = heap[child];
+                positions[heap[i]] = i;
+                i = child;
+            }
+            heap[i] = variable;
+            positions[variable] = i;
+        }
+    }
+
+    /**
+     * A growable list of primitive <code>int</code> values.
+     */
+    private static final class IntList {
+        private int[] elements = new int[8];
+        private int size = 0;
+
+        void add(int value) {
+            if (size == elements.length)
+                elements = Arrays.copyOf(elements, size * 2);
+            elements[size++] = value;
+        }
+
+        int get(int index) {
+            return elements[index];
+        }
+
+        void set(int index, int value) {
+            elements[index] = value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void truncate(int newSize) {
+            size = newSize;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(elements, size);
+        }
+    }
+}
@@ -0,0 +1,370 @@
+package logic.sat;
+
+import common.PropositionEntry;
+import common.propositions.AtomicProposition;
+import logic.evaluation.EvaluationProgram;
+import logic.evaluation.PropositionCompiler;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * A class that translates propositions into clauses, using the Tseitin transformation.
+ * <p>
+ * Variables are numbered densely from 1. Each {@link AtomicProposition} is given one variable,
+ * shared by every proposition encoded through the same encoder, and each operation is given an auxiliary variable
+ * constrained to be equivalent to it, so the number of clauses grows linearly with the size of the proposition.
+ * Negations need no variable, as they are encoded by negating a literal,
+ * and disjunctions and implications are encoded as negated conjunctions.
+ * <p>
+ * Operations are hash-consed by operator and operand literals: a subterm that is structurally identical
+ * to one already encoded (in the same or an earlier proposition) reuses its auxiliary variable.
+ * <p>
+ * By default the encoder also applies the Plaisted–Greenbaum optimisation: an auxiliary variable
+ * only receives the clauses for the {@link Polarity polarity} in which it is actually used.
+ * This preserves satisfiability but not the number of models, so it can be turned off
+ * when models must correspond one-to-one with assignments of the atomics.
+ * <p>
+ * Propositions are read from their compiled {@link EvaluationProgram EvaluationPrograms},
+ * so arbitrarily deep propositions are encoded without recursion.
+ */
+public class TseitinEncoder {
+
+    /**
+     * The ways an encoded literal may be used.
+     */
+    public enum Polarity {
+        /**
+         * The literal will only be required to be true.
+         */
+        POSITIVE,
+        /**
+         * The literal will only be required to be false.
+         */
+        NEGATIVE,
+        /**
+         * The literal may be required to be either.
+         */
+        BOTH;
+
+        private int mask() {
+            return ordinal() + 1;
+        }
+    }
+
+    private static final int POSITIVE = 1;
+    private static final int NEGATIVE = 2;
+    private static final int BOTH = POSITIVE | NEGATIVE;
+
+    private static final byte AND = 1;
+    private static final byte BICONDITIONAL = 2;
+
+    private final boolean polarityOptimized;
+    private final ClauseStore clauses = new ClauseStore();
+    private final Map<AtomicProposition, Integer> variables = new IdentityHashMap<>();
+    private int variableCount = 0;
+    private int trueLiteral = 0;
+
+    // Structural table from (operation, p, q) to the auxiliary variable defined as that operation
+    private final LongIntMap definitions = new LongIntMap();
+
+    // Indexed by variable: the definition of each auxiliary variable, and which of its polarities have clauses
+    private byte[] operations = new byte[16];
+    private int[] lefts = new int[16];
+    private int[] rights = new int[16];
+    private byte[] encodedPolarities = new byte[16];
+
+    /**
+     * Instantiates a new encoder using the Plaisted–Greenbaum optimisation.
+     */
+    public TseitinEncoder() {
+        this(true);
+    }
+
+    /**
+     * Instantiates a new encoder.
+     *
+     * @param polarityOptimized whether auxiliary variables only receive the clauses for the polarities they are used in
+     */
+    public TseitinEncoder(boolean polarityOptimized) {
+        this.polarityOptimized = polarityOptimized;
+    }
+
+    /**
+     * Returns every clause produced so far.
+     */
+    public ClauseStore clauses() {
+        return clauses;
+    }
+
+    /**
+     * Returns the number of variables created so far, which are numbered from 1 to this count.
+     */
+    public int variableCount() {
+        return variableCount;
+    }
+
+    /**
+     * Creates a fresh variable, unrelated to any proposition.
+     */
+    public int newVariable() {
+        int variable = ++variableCount;
+        if (variable == operations.length) {
+            int capacity = variable * 2;
+            operations = Arrays.copyOf(operations, capacity);
+            lefts = Arrays.copyOf(lefts, capacity);
+            rights = Arrays.copyOf(rights, capacity);
+            encodedPolarities = Arrays.copyOf(encodedPolarities, capacity);
+        }
+        return variable;
+    }
+
+    /**
+     * Returns the variable of an atomic, creating it if needed.
+     */
+    public int variableOf(AtomicProposition atomic) {
+        Integer variable = variables.get(atomic);
+        if (variable == null) {
+            variable = newVariable();
+            variables.put(atomic, variable);
+        }
+        return variable;
+    }
+
+    /**
+     * Returns the variable of an atomic, or 0 if it has not been encoded.
+     */
+    public int existingVariableOf(AtomicProposition atomic) {
+        return variables.getOrDefault(atomic, 0);
+    }
+
+    /**
+     * Encodes the proposition of an entry for use in either polarity.
+     *
+     * @return a literal that is true exactly when the proposition is true
+     */
+    public int encode(PropositionEntry entry) {
+        return encode(PropositionCompiler.compile(entry), Polarity.BOTH);
+    }
+
+    /**
+     * Encodes the proposition of an entry.
+     *
+     * @param polarity how the returned literal will be used
+     * @return a literal constrained to agree with the proposition in the given polarity
+     */
+    public int encode(PropositionEntry entry, Polarity polarity) {
+        return encode(PropositionCompiler.compile(entry), polarity);
+    }
+
+    /**
+     * Encodes the first output of a compiled program.
+     *
+     * @param polarity how the returned literal will be used
+     * @return a literal constrained to agree with the output in the given polarity
+     */
+    public int encode(EvaluationProgram program, Polarity polarity) {
+        int size = program.size();
+        int[] polarities = new int[size];
+        polarities[program.outputRegister(0)] = polarityOptimized ? polarity.mask() : BOTH;
+
+        // Operands only refer to earlier registers, so a backward pass visits every user before its operands
+        for (int i = size - 1; i >= 0; i--) {
+            int pol = polarities[i];
+            if (pol == 0)
+                continue;
+            int p = program.leftOperand(i);
+            int q = program.rightOperand(i);
+            switch (program.operation(i)) {
+                case NOT -> polarities[p] |= flip(pol);
+                case AND, OR -> {
+                    polarities[p] |= pol;
+                    polarities[q] |= pol;
+                }
+                case IMPLY -> {
+                    polarities[p] |= flip(pol);
+                    polarities[q] |= pol;
+                }
+                case BICONDITIONAL -> {
+                    polarities[p] = BOTH;
+                    polarities[q] = BOTH;
+                }
+                default -> {}
+            }
+        }
+
+        int[] literals = new int[size];
+        for (int i = 0; i < size; i++) {
+            int pol = polarities[i];
+            if (pol == 0)
+                continue;
+            int p = program.leftOperand(i);
+            int q = program.rightOperand(i);
+            literals[i] = switch (program.operation(i)) {
+                case LOAD -> variableOf(program.atomics().get(p));
+                case TRUE -> trueLiteral();
+                case FALSE -> -trueLiteral();
+                case NOT -> -literals[p];
+                case AND -> and(literals[p], literals[q], pol);
+                case OR -> -and(-literals[p], -literals[q], flip(pol));
+                case IMPLY -> -and(literals[p], -literals[q], flip(pol));
+                case BICONDITIONAL -> biconditional(literals[p], literals[q], pol);
+            };
+        }
+        return literals[program.outputRegister(0)];
+    }
+
+    private int trueLiteral() {
+        if (trueLiteral == 0) {
+            trueLiteral = newVariable();
+            clauses.add(trueLiteral);
+        }
+        return trueLiteral;
+    }
+
+    private int and(int p, int q, int polarity) {
+        if (p == q)
+            return p;
+        if (p == -q)
+            return -trueLiteral();
+        // Conjunction is commutative, so operands are ordered to share more definitions
+        if (p > q) {
+            int swap = p;
+            p = q;
+            q = swap;
+        }
+        int x = define(AND, p, q);
+        encodeMissing(x, polarity);
+        return x;
+    }
+
+    private int biconditional(int p, int q, int polarity) {
+        if (p == q)
+            return trueLiteral();
+        if (p == -q)
+            return -trueLiteral();
+        // (¬p <-> q) is ¬(p <-> q), so signs are moved outside to share more definitions
+        int sign = 1;
+        if (p < 0) {
+            p = -p;
+            sign = -sign;
+        }
+        if (q < 0) {
+            q = -q;
+            sign = -sign;
+        }
+        if (p > q) {
+            int swap = p;
+            p = q;
+            q = swap;
+        }
+        int x = define(BICONDITIONAL, p, q);
+        encodeMissing(x, sign > 0 ? polarity : flip(polarity));
+        return sign * x;
+    }
+
+    /**
+     * Returns the auxiliary variable defined as <code>(p operation q)</code>, creating it if needed.
+     */
+    private int define(byte operation, int p, int q) {
+        long key = key(operation, p, q);
+        int x = definitions.get(key);
+        if (x == 0) {
+            x = newVariable();
+            operations[x] = operation;
+            lefts[x] = p;
+            rights[x] = q;
+            definitions.put(key, x);
+        }
+        return x;
+    }
+
+    /**
+     * Adds the clauses for the polarities of <code>x</code> that are needed but have not been encoded yet.
+     */
+    private void encodeMissing(int x, int polarity) {
+        int missing = polarity & ~encodedPolarities[x];
+        if (missing == 0)
+            return;
+        encodedPolarities[x] |= (byte) missing;
+        int p = lefts[x];
+        int q = rights[x];
+
+        if (operations[x] == AND) {
+            if ((missing & POSITIVE) != 0) {
+                clauses.add(-x, p);
+                clauses.add(-x, q);
+            }
+            if ((missing & NEGATIVE) != 0)
+                clauses.add(x, -p, -q);
+        }
+        else {
+            if ((missing & POSITIVE) != 0) {
+                clauses.add(-x, -p, q);
+                clauses.add(-x, p, -q);
+            }
+            if ((missing & NEGATIVE) != 0) {
+                clauses.add(x, p, q);
+                clauses.add(x, -p, -q);
+            }
+        }
+    }
+
+    private static int flip(int polarity) {
+        return ((polarity & POSITIVE) << 1) | ((polarity & NEGATIVE) >> 1);
+    }
+
+    private static long key(byte operation, int p, int q) {
+        // Literals are below 2^30 in magnitude, so each fits in 31 bits once offset
+        return ((long) operation << 62) | ((long) (p + (1 << 30)) << 31) | (q + (1 << 30));
+    }
+
+    /**
+     * An open-addressing hash map from <code>long</code> keys to non-zero <code>int</code> values.
+     */
+    private static final class LongIntMap {
+        private long[] keys = new long[64];
+        private int[] values = new int[64];
+        private int size = 0;
+
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int slot = slot(key, mask); values[slot] != 0; slot = (slot + 1) & mask) {
+                if (keys[slot] == key)
+                    return values[slot];
+            }
+            return 0;
+        }
+
+        void put(long key, int value) {
+            if (2 * (size + 1) > keys.length)
+                resize();
+            int mask = keys.length - 1;
+            int slot = slot(key, mask);
+            while (values[slot] != 0 && keys[slot] != key)
+                slot = (slot + 1) & mask;
+            if (values[slot] == 0)
+                size++;
+            keys[slot] = key;
+            values[slot] = value;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldValues.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != 0)
+                    put(oldKeys[i], oldValues[i]);
+            }
+        }
+
+        private static int slot(long key, int mask) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package testing;
+
+import common.Assignment;
+import common.LogicContext;
+import common.PropositionEntry;
+import common.propositions.AtomicProposition;
+import common.propositions.Proposition;
+import interpreting.common.InterpretingResult;
+import interpreting.parsing.Parser;
+import logic.evaluation.EvaluationProgram;
+import logic.evaluation.PropositionCompiler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares walking a {@link Proposition} tree against running its compiled {@link EvaluationProgram},
+ * one row and 64 rows at a time, over every row of a truth table.
+ * <p>
+ * Usage: <code>EvaluationBenchmark [tokens] [atomics]</code>
+ */
+public class EvaluationBenchmark {
+
+    public static void main(String[] args) {
+        int tokens = args.length > 0 ? Integer.parseInt(args[0]) : 400;
+        int numAtomics = args.length > 1 ? Integer.parseInt(args[1]) : 18;
+
+        PropositionEntry entry = randomEntry(tokens, numAtomics);
+        List<AtomicProposition> atomics = new ArrayList<>(entry.atomics());
+        long rows = 1L << atomics.size();
+        System.out.printf("%d atomics, %d rows%n", atomics.size(), rows);
+
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            long treeCount = treeWalk(entry.proposition(), atomics);
+            long treeTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            long compiledCount = compiled(entry, atomics);
+            long compiledTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            long bitSlicedCount = bitSliced(entry, atomics);
+            long bitSlicedTime = System.nanoTime() - start;
+
+            if (treeCount != compiledCount || treeCount != bitSlicedCount)
+                throw new IllegalStateException("Results differ: " + treeCount + " vs " + compiledCount + " vs " + bitSlicedCount);
+            System.out.printf("round %d: tree walk %.2f ns/row, compiled %.2f ns/row (%.1fx), bit-sliced %.2f ns/row (%.1fx)%n",
+                    round, (double) treeTime / rows,
+                    (double) compiledTime / rows, (double) treeTime / compiledTime,
+                    (double) bitSlicedTime / rows, (double) treeTime / bitSlicedTime);
+        }
+    }
+
+    private static long treeWalk(Proposition proposition, List<AtomicProposition> atomics) {
+        Assignment assignment = new Assignment(atomics);
+        long trueRows = 0;
+        for (long comb = (1L << atomics.size()) - 1; comb >= 0; comb--) {
+            assignment.setRow(comb);
+            if (proposition.evaluate(assignment))
+                trueRows++;
+        }
+        return trueRows;
+    }
+
+    private static long compiled(PropositionEntry entry, List<AtomicProposition> atomics) {
+        EvaluationProgram program = PropositionCompiler.compile(entry).bind(atomics);
+        boolean[] registers = program.newRegisters();
+        long trueRows = 0;
+        for (long comb = (1L << atomics.size()) - 1; comb >= 0; comb--) {
+            if (program.evaluate(comb, registers))
+                trueRows++;
+        }
+        return trueRows;
+    }
+
+    private static long bitSliced(PropositionEntry entry, List<AtomicProposition> atomics) {
+        EvaluationProgram program = PropositionCompiler.compile(entry).bind(atomics);
+        long[] registers = program.newLaneRegisters();
+        long[] lanes = new long[atomics.size()];
+        long validLanes = EvaluationProgram.validLanes(atomics.size());
+        long trueRows = 0;
+        for (long block = EvaluationProgram.blockCount(atomics.size()) - 1; block >= 0; block--) {
+            EvaluationProgram.fillLanes(block, lanes);
+            trueRows += Long.bitCount(program.evaluateLanes(lanes, registers) & validLanes);
+        }
+        return trueRows;
+    }
+
+    /**
+     * Generates a random, syntactically valid proposition using every one of <code>numAtomics</code> atomics.
+     */
+    static PropositionEntry randomEntry(int tokens, int numAtomics) {
+        String[] names = new String[numAtomics];
+        for (int i = 0; i < numAtomics; i++)
+            names[i] = "p" + i;
+
+        while (true) {
+            Parser parser = new Parser(new SmartTokenGenerator(tokens, names), new LogicContext());
+            InterpretingResult<PropositionEntry> result = parser.buildPropositionTree();
+            if (result.value() != null && result.value().atomics().size() == numAtomics)
+                return result.value();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package testing;
+
+import common.LogicContext;
+import common.PropositionEntry;
+import common.operators.BinaryOperator;
+import common.operators.UnaryOperator;
+import common.propositions.Proposition;
+import interpreting.common.InterpretingResult;
+import interpreting.parsing.Parser;
+import interpreting.parsing.TokenPreParser;
+import interpreting.tokenization.Lexer;
+import interpreting.tokenization.Token;
+import interpreting.tokenization.TokenStream;
+import interpreting.tokenization.TokenType;
+
+import java.util.Random;
+import java.util.Stack;
+
+/**
+ * Compares parsing through {@link TokenPreParser} and a postfix stack, as {@link Parser} used to,
+ * against {@link Parser} over a {@link Lexer}, and over a reused {@link TokenStream},
+ * on random formulas and on deeply nested formulas of up to <code>maxTokens</code> tokens.
+ * <p>
+ * Usage: <code>ParserBenchmark [maxTokens]</code>
+ */
+public class ParserBenchmark {
+
+    private static final int ROUNDS = 10;
+    private static final String[] BINARY_OPERATORS = {" ^ ", " v ", " -> ", " <-> "};
+
+    public static void main(String[] args) {
+        int maxTokens = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Random random = new Random(0);
+
+        for (int tokens = 1000; tokens <= maxTokens; tokens *= 10) {
+            benchmark("random", tokens, randomFormula(tokens, random));
+            benchmark("nested", tokens, nestedFormula(tokens));
+        }
+    }
+
+    private static void benchmark(String shape, int tokens, String input) {
+        TokenStream stream = new TokenStream();
+        boolean overflowed = !verify(shape, input, stream);
+        long[] best = {Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE};
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            if (!overflowed) {
+                legacyParse(input, new LogicContext());
+                best[0] = Math.min(best[0], System.nanoTime() - start);
+            }
+
+            start = System.nanoTime();
+            proposition(new Parser(new Lexer(input), new LogicContext()).buildPropositionTree());
+            best[1] = Math.min(best[1], System.nanoTime() - start);
+
+            start = System.nanoTime();
+            Lexer.tokenize(input, stream);
+            proposition(new Parser(new LogicContext()).buildPropositionTree(stream));
+            best[2] = Math.min(best[2], System.nanoTime() - start);
+        }
+
+        String legacyTime = overflowed ? "stack overflow" : String.format("%.1f ns/token", (double) best[0] / tokens);
+        System.out.printf("%s, %d tokens: pre-parser %s, parser %.1f ns/token, token stream %.1f ns/token%n",
+                shape, tokens, legacyTime, (double) best[1] / tokens, (double) best[2] / tokens);
+    }
+
+    /**
+     * Checks that every way of parsing builds the same tree. Trees built in one context share every node,
+     * so they are compared by identity, since deep trees are too deep to compare recursively.
+     *
+     * @return whether parsing through the {@link TokenPreParser} finished without overflowing the stack
+     */
+    private static boolean verify(String shape, String input, TokenStream stream) {
+        LogicContext context = new LogicContext();
+        Proposition legacy = null;
+        try {
+            legacy = legacyParse(input, context);
+        } catch (StackOverflowError e) {
+            // Compared without it
+        }
+        // The parser shares atomics that are already in the context, so the first entry is added to it
+        InterpretingResult<PropositionEntry> parsed = new Parser(new Lexer(input), context).buildPropositionTree();
+        context.add(parsed.value());
+        Lexer.tokenize(input, stream);
+        Proposition streamed = proposition(new Parser(context).buildPropositionTree(stream));
+        if (proposition(parsed) != streamed || legacy != null && legacy != streamed)
+            throw new IllegalStateException("Results differ for " + shape + " formula");
+        return legacy != null;
+    }
+
+    private static Proposition proposition(InterpretingResult<PropositionEntry> result) {
+        if (result.value() == null)
+            throw new IllegalStateException(result.message());
+        return result.value().proposition();
+    }
+
+    /**
+     * Parses the way {@link Parser} did before it built trees directly:
+     * converting the tokens to postfix with a {@link TokenPreParser}, then evaluating them with a {@link Stack}.
+     */
+    private static Proposition legacyParse(String input, LogicContext context) {
+        Stack<Proposition> propositionStack = new Stack<>();
+        for (InterpretingResult<Token> inToken: new TokenPreParser(new Lexer(input))) {
+            Token token = inToken.value();
+            if (token == null)
+                throw new IllegalStateException(inToken.message());
+
+            if (token.isConstant())
+                propositionStack.add(token.getType() == TokenType.TRUE ? Proposition.getTrue() : Proposition.getFalse());
+            else if (token.isIdentifier())
+                propositionStack.add(context.getOrCreateAtomic(token.getText()));
+            else if (token.isBinaryOperation()) {
+                Proposition p2 = propositionStack.pop();
+                Proposition p1 = propositionStack.pop();
+                propositionStack.add(context.getOrCreateBinary(p1, p2, switch (token.getType()) {
+                    case AND -> BinaryOperator.AND;
+                    case OR -> BinaryOperator.OR;
+                    case IMPLY -> BinaryOperator.IMPLY;
+                    case BICONDITIONAL -> BinaryOperator.BICONDITIONAL;
+                    default -> throw new IllegalStateException("Unexpected value: " + token.getType());
+                }));
+            }
+            else
+                propositionStack.add(context.getOrCreateUnary(propositionStack.pop(), UnaryOperator.NOT));
+        }
+        return propositionStack.pop();
+    }
+
+    /**
+     * Generates a random, syntactically valid formula of at least <code>tokens</code> tokens.
+     * <p>
+     * Formulas start with a binary operator outside any parentheses, since the {@link TokenPreParser}
+     * rejects a formula that ends with a closing parenthesis when nothing else is left to output.
+     */
+    static String randomFormula(int tokens, Random random) {
+        StringBuilder formula = new StringBuilder("p0 ^ ");
+        boolean propositionExpected = true;
+        int depth = 0;
+        for (int count = 2; count < tokens || propositionExpected || depth > 0; count++) {
+            boolean ending = count >= tokens;
+            if (propositionExpected) {
+                switch (ending ? 0 : random.nextInt(4)) {
+                    case 0, 1 -> {
+                        formula.append('p').append(random.nextInt(26));
+                        propositionExpected = false;
+                    }
+                    case 2 -> formula.append('-');
+                    default -> {
+                        formula.append('(');
+                        depth++;
+                    }
+                }
+            }
+            else if (depth > 0 && (ending || random.nextInt(4) == 0)) {
+                formula.append(')');
+                depth--;
+            }
+            else {
+                formula.append(BINARY_OPERATORS[random.nextInt(BINARY_OPERATORS.length)]);
+                propositionExpected = true;
+            }
+        }
+        return formula.toString();
+    }
+
+    /**
+     * Generates <code>((p ^ q) ^ q) ...</code>, nested as deeply as <code>tokens</code> tokens allow.
+     */
+    static String nestedFormula(int tokens) {
+        int depth = (tokens - 1) / 4;
+        return "(".repeat(depth) + "p" + " ^ q)".repeat(depth);
+    }
+}
@@ -0,0 +1,76 @@
+package testing;
+
+import common.PropositionEntry;
+import common.operators.BinaryOperator;
+import common.operators.UnaryOperator;
+import common.propositions.BinaryProposition;
+import common.propositions.Proposition;
+import common.propositions.UnaryProposition;
+import logic.BruteForceReasoner;
+import logic.ParallelBruteForceReasoner;
+import logic.Reasoner;
+import logic.bdd.BddReasoner;
+import logic.sat.SatReasoner;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Times {@link Reasoner} implementations on the worst case for enumeration:
+ * an equality check between a proposition and a structurally different equivalent of it,
+ * which must consider every combination.
+ * Reasoners that enumerate combinations are skipped above {@value #MAX_ENUMERATED_ATOMICS} atomics.
+ * <p>
+ * Usage: <code>ReasonerBenchmark [tokens] [atomics]</code>
+ */
+public class ReasonerBenchmark {
+
+    private static final int MAX_ENUMERATED_ATOMICS = 30;
+
+    public static void main(String[] args) {
+        int tokens = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int numAtomics = args.length > 1 ? Integer.parseInt(args[1]) : 24;
+
+        PropositionEntry entry = EvaluationBenchmark.randomEntry(tokens, numAtomics);
+        PropositionEntry mirrored = new PropositionEntry(mirror(entry.proposition()), entry.atomics());
+        System.out.printf("%d atomics%n", entry.atomics().size());
+
+        Map<String, Reasoner> reasoners = new LinkedHashMap<>();
+        if (entry.atomics().size() <= MAX_ENUMERATED_ATOMICS) {
+            reasoners.put("brute force (scalar)", new BruteForceReasoner(BruteForceReasoner.EvaluationMode.SCALAR));
+            reasoners.put("brute force (bit-sliced)", new BruteForceReasoner());
+            reasoners.put("brute force (Gray code)", new BruteForceReasoner(BruteForceReasoner.EvaluationMode.GRAY_CODE));
+            reasoners.put("parallel brute force", new ParallelBruteForceReasoner());
+        }
+        reasoners.put("SAT", new SatReasoner());
+        reasoners.put("BDD", new BddReasoner());
+
+        for (int round = 0; round < 3; round++) {
+            for (Map.Entry<String, Reasoner> reasoner: reasoners.entrySet()) {
+                long start = System.nanoTime();
+                Boolean result = reasoner.getValue().areEqual(entry, mirrored);
+                long time = System.nanoTime() - start;
+                System.out.printf("round %d: %-26s %8.1f ms (%s)%n", round, reasoner.getKey(), time / 1e6, result);
+            }
+        }
+        if (reasoners.get("parallel brute force") instanceof ParallelBruteForceReasoner parallel)
+            parallel.close();
+    }
+
+    /**
+     * Returns an equivalent proposition with the operands of every symmetric operator swapped,
+     * and every implication rewritten as a disjunction.
+     */
+    private static Proposition mirror(Proposition p) {
+        if (p instanceof UnaryProposition unary)
+            return new UnaryProposition(mirror(unary.getProposition()), unary.getOperator());
+        if (p instanceof BinaryProposition binary) {
+            Proposition left = mirror(binary.getLeftProposition());
+            Proposition right = mirror(binary.getRightProposition());
+            if (binary.getOperator() == BinaryOperator.IMPLY)
+                return new BinaryProposition(right, new UnaryProposition(left, UnaryOperator.NOT), BinaryOperator.OR);
+            return new BinaryProposition(right, left, binary.getOperator());
+        }
+        return p;
+    }
+}